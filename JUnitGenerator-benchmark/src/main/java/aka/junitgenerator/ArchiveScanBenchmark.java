@@ -0,0 +1,88 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Discovery of the classes of a jar and of a classes directory.
+ * The score is for a whole archive; the <code>classes</code> secondary result is the time per class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveScanBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int classCount;
+
+    @Param({ "WIDE", "DEEP" })
+    public SyntheticClasses.Layout layout;
+
+    private Path workDirectory;
+    private Path jar;
+    private Path classesDirectory;
+
+    /**
+     * Classes discovered, so that results are also reported per class.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ClassCounter {
+
+        public long classes;
+    }
+
+    @Setup(Level.Trial)
+    public void createArchives() throws IOException {
+        this.workDirectory = Files.createTempDirectory("junitgenerator-benchmark");
+        this.jar = this.workDirectory.resolve("synthetic.jar");
+        SyntheticClasses.writeJar(this.jar, this.classCount, this.layout, 4, 2);
+        this.classesDirectory = this.workDirectory.resolve("classes");
+        SyntheticClasses.writeDirectory(this.classesDirectory, this.classCount, this.layout, 4, 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteArchives() throws IOException {
+        FileUtils.deleteDirectory(this.workDirectory.toFile());
+    }
+
+    @Benchmark
+    public int scanJar(final ClassCounter classCounter) throws IOException {
+        try (InputArchives inputArchives = InputArchives.open(Collections.singletonList(this.jar.toString()), false)) {
+            final int result = inputArchives.getClassNames().size();
+            classCounter.classes += result;
+            return result;
+        }
+    }
+
+    @Benchmark
+    public int scanDirectory(final ClassCounter classCounter) throws IOException {
+        try (InputArchives inputArchives = InputArchives.open(Collections.singletonList(this.classesDirectory.toString()), false)) {
+            final int result = inputArchives.getClassNames().size();
+            classCounter.classes += result;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package aka.junitgenerator;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks, accepting the usual JMH options.
+ * Unless told otherwise, results are written as JSON to <code>jmh-result.json</code>
+ * and the allocation rate is measured, <code>gc.alloc.rate.norm</code> being the bytes allocated per operation.
+ */
+public final class BenchmarkMain {
+
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+        // Main class
+    }
+
+    /**
+     * @param args JMH options, see <code>-h</code>
+     * @throws CommandLineOptionException if an option is invalid
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        final ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(commandLineOptions);
+        if (!commandLineOptions.getResultFormat().hasValue()) {
+            optionsBuilder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLineOptions.getResult().hasValue()) {
+            optionsBuilder.result(RESULT_FILE);
+        }
+        if (commandLineOptions.getProfilers().isEmpty()) {
+            optionsBuilder.addProfiler(GCProfiler.class);
+        }
+        new Runner(optionsBuilder.build()).run();
+    }
+}
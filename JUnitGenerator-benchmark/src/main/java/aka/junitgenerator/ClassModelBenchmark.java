@@ -0,0 +1,54 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the model of one class from its class file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassModelBenchmark {
+
+    private static final int CLASS_COUNT = 1000;
+
+    @Param({ "1", "16", "64" })
+    public int overloads;
+
+    private final ClassFileReader classFileReader = new ClassFileReader();
+    private ByteBuffer[] classFiles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createClassFiles() {
+        this.classFiles = new ByteBuffer[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            this.classFiles[i] = ByteBuffer.wrap(SyntheticClasses.createClassFile(SyntheticClasses.getClassName(i, CLASS_COUNT, SyntheticClasses.Layout.WIDE), 8, this.overloads)).asReadOnlyBuffer();
+        }
+    }
+
+    @Benchmark
+    public ClassModel readClassModel() throws IOException {
+        final ByteBuffer classFile = this.classFiles[this.next];
+        this.next = (this.next + 1) % CLASS_COUNT;
+        return this.classFileReader.read(classFile.duplicate());
+    }
+}
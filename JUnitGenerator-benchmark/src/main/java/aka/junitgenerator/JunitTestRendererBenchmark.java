@@ -0,0 +1,67 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Import collection and rendering of the test of one class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JunitTestRendererBenchmark {
+
+    private static final int CLASS_COUNT = 1000;
+
+    @Param({ "1", "16", "64" })
+    public int overloads;
+
+    private final JunitTestRenderer junitTestRenderer = new JunitTestRenderer();
+    private final StringBuilder buffer = new StringBuilder(16 * 1024);
+    private ClassModel[] classModels;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createClassModels() throws IOException {
+        final ClassFileReader classFileReader = new ClassFileReader();
+        this.classModels = new ClassModel[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            this.classModels[i] = classFileReader.read(SyntheticClasses.createClassFile(SyntheticClasses.getClassName(i, CLASS_COUNT, SyntheticClasses.Layout.WIDE), 8, this.overloads));
+        }
+    }
+
+    private ClassModel nextClassModel() {
+        final ClassModel result = this.classModels[this.next];
+        this.next = (this.next + 1) % CLASS_COUNT;
+        return result;
+    }
+
+    @Benchmark
+    public Set<String> collectImports() {
+        return this.junitTestRenderer.getAllImports(nextClassModel());
+    }
+
+    @Benchmark
+    public int render() {
+        this.buffer.setLength(0);
+        this.junitTestRenderer.render(nextClassModel(), this.buffer);
+        return this.buffer.length();
+    }
+}
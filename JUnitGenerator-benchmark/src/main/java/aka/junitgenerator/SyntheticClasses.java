@@ -0,0 +1,276 @@
+package aka.junitgenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Generate class files, jars and classes directories of any size for the benchmarks.
+ * Classes have a public constructor and public native methods, so they are valid without any code to generate.
+ */
+public final class SyntheticClasses {
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_NATIVE = 0x0100;
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final String[] TYPE_DESCRIPTORS = { "I", "Ljava/lang/String;", "Ljava/util/List;", "J", "Ljava/util/Map;", "[B", "Ljava/io/File;", "Z", "Ljava/math/BigDecimal;", "[Ljava/lang/String;" };
+    private static final int DEEP_PACKAGE_DEPTH = 32;
+    private static final int WIDE_CLASSES_PER_PACKAGE = 8;
+
+    /**
+     * How the classes are spread over packages.
+     */
+    public enum Layout {
+        /** Many packages of a few classes each. */
+        WIDE,
+        /** A single chain of nested packages. */
+        DEEP
+    }
+
+    private SyntheticClasses() {
+        // Utility class
+    }
+
+    /**
+     * @param index index of the class
+     * @param classCount number of classes
+     * @param layout how the classes are spread over packages
+     * @return binary name of the class
+     */
+    @NonNull
+    public static String getClassName(final int index, final int classCount, @NonNull final Layout layout) {
+        final StringBuilder result = new StringBuilder("synthetic");
+        if (layout == Layout.WIDE) {
+            result.append(".p").append(index / WIDE_CLASSES_PER_PACKAGE);
+        } else {
+            final int depth = (int) ((long) index * DEEP_PACKAGE_DEPTH / Math.max(1, classCount));
+            for (int i = 0; i <= depth; i++) {
+                result.append(".d").append(i);
+            }
+        }
+        return result.append(".Synthetic").append(index).toString();
+    }
+
+    /**
+     * Generate a class file.
+     *
+     * @param className binary name of the class
+     * @param methods number of distinct method names
+     * @param overloads number of overloads of each method, the n-th one having n parameters
+     * @return class file
+     */
+    @NonNull
+    public static byte[] createClassFile(@NonNull final String className, final int methods, final int overloads) {
+        final ConstantPool constantPool = new ConstantPool();
+        final int thisClass = constantPool.classInfo(className.replace('.', '/'));
+        final int superClass = constantPool.classInfo("java/lang/Object");
+        final int objectConstructor = constantPool.methodRef(superClass, "<init>", "()V");
+        final int codeAttribute = constantPool.utf8("Code");
+        final int exceptionsAttribute = constantPool.utf8("Exceptions");
+        final int exception = constantPool.classInfo("java/io/IOException");
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(256 + methods * overloads * 16);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(1 + methods * overloads);
+
+            // public constructor calling super()
+            out.writeShort(ACC_PUBLIC);
+            out.writeShort(constantPool.utf8("<init>"));
+            out.writeShort(constantPool.utf8("()V"));
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(17);
+            out.writeShort(1); // max stack
+            out.writeShort(1); // max locals
+            out.writeInt(5);
+            out.writeByte(0x2a); // aload_0
+            out.writeByte(0xb7); // invokespecial
+            out.writeShort(objectConstructor);
+            out.writeByte(0xb1); // return
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+
+            final StringBuilder descriptor = new StringBuilder();
+            for (int method = 0; method < methods; method++) {
+                final int name = constantPool.utf8("method" + method);
+                for (int overload = 0; overload < overloads; overload++) {
+                    descriptor.setLength(0);
+                    descriptor.append('(');
+                    for (int parameter = 0; parameter < overload; parameter++) {
+                        descriptor.append(TYPE_DESCRIPTORS[(method + parameter) % TYPE_DESCRIPTORS.length]);
+                    }
+                    descriptor.append(')').append(overload == 0 ? "V" : TYPE_DESCRIPTORS[(method + overload) % TYPE_DESCRIPTORS.length]);
+                    final boolean throwsException = (method + overload) % 3 == 0;
+                    out.writeShort(ACC_PUBLIC | ACC_NATIVE | (method % 2 == 0 ? 0 : ACC_STATIC));
+                    out.writeShort(name);
+                    out.writeShort(constantPool.utf8(descriptor.toString()));
+                    if (throwsException) {
+                        out.writeShort(1);
+                        out.writeShort(exceptionsAttribute);
+                        out.writeInt(4);
+                        out.writeShort(1);
+                        out.writeShort(exception);
+                    } else {
+                        out.writeShort(0);
+                    }
+                }
+            }
+            out.writeShort(0); // attributes
+        } catch (final IOException e) {
+            // Not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(body.size() + constantPool.size() + 10);
+        try (DataOutputStream out = new DataOutputStream(result)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            constantPool.writeTo(out);
+            body.writeTo(out);
+        } catch (final IOException e) {
+            // Not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Generate a jar of classes.
+     *
+     * @param jar jar to write
+     * @param classCount number of classes
+     * @param layout how the classes are spread over packages
+     * @param methods number of distinct method names of each class
+     * @param overloads number of overloads of each method
+     * @throws IOException if the jar can not be written
+     */
+    public static void writeJar(@NonNull final Path jar, final int classCount, @NonNull final Layout layout, final int methods, final int overloads) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(jar); ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (int i = 0; i < classCount; i++) {
+                final String className = getClassName(i, classCount, layout);
+                zipOutputStream.putNextEntry(new ZipEntry(className.replace('.', '/') + ".class"));
+                zipOutputStream.write(createClassFile(className, methods, overloads));
+                zipOutputStream.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Generate a classes directory.
+     *
+     * @param directory directory to write to
+     * @param classCount number of classes
+     * @param layout how the classes are spread over packages
+     * @param methods number of distinct method names of each class
+     * @param overloads number of overloads of each method
+     * @throws IOException if a file can not be written
+     */
+    public static void writeDirectory(@NonNull final Path directory, final int classCount, @NonNull final Layout layout, final int methods, final int overloads) throws IOException {
+        for (int i = 0; i < classCount; i++) {
+            final String className = getClassName(i, classCount, layout);
+            final Path classFile = directory.resolve(className.replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, createClassFile(className, methods, overloads));
+        }
+    }
+
+    /**
+     * Constant pool being built, each constant written once.
+     */
+    private static final class ConstantPool {
+
+        @NonNull
+        private final Map<String, Integer> indexByConstant = new HashMap<>();
+        @NonNull
+        private final List<byte[]> constants = new ArrayList<>();
+        private int size;
+
+        int utf8(@NonNull final String value) {
+            return add("U" + value, out -> {
+                out.writeByte(CONSTANT_UTF8);
+                out.writeUTF(value);
+            });
+        }
+
+        int classInfo(@NonNull final String internalName) {
+            final int name = utf8(internalName);
+            return add("C" + internalName, out -> {
+                out.writeByte(CONSTANT_CLASS);
+                out.writeShort(name);
+            });
+        }
+
+        int methodRef(final int owner, @NonNull final String name, @NonNull final String descriptor) {
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            final int nameAndType = add("N" + name + descriptor, out -> {
+                out.writeByte(CONSTANT_NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return add("M" + owner + name + descriptor, out -> {
+                out.writeByte(CONSTANT_METHODREF);
+                out.writeShort(owner);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        private int add(@NonNull final String key, @NonNull final ConstantWriter constantWriter) {
+            final Integer index = this.indexByConstant.get(key);
+            if (index != null) {
+                return index.intValue();
+            }
+            final ByteArrayOutputStream constant = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(constant)) {
+                constantWriter.write(out);
+            } catch (final IOException e) {
+                // Not thrown by a ByteArrayOutputStream
+                throw new IllegalStateException(e);
+            }
+            this.constants.add(constant.toByteArray());
+            this.size += constant.size();
+            final int result = this.constants.size();
+            this.indexByConstant.put(key, Integer.valueOf(result));
+            return result;
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        void writeTo(@NonNull final DataOutputStream out) throws IOException {
+            out.writeShort(this.constants.size() + 1);
+            for (final byte[] constant : this.constants) {
+                out.write(constant);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConstantWriter {
+
+        void write(@NonNull DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,221 @@
+package aka.junitgenerator.maven;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jdt.annotation.NonNull;
+
+import aka.junitgenerator.ClassFilter;
+import aka.junitgenerator.ClassModelSource;
+import aka.junitgenerator.GenerationMetrics;
+import aka.junitgenerator.JunitTestGenerator;
+
+/**
+ * Generate JUnit tests for the classes of the project, inside the Maven JVM.
+ * The inputs are the output directory of the project and the dependencies its resolved compile classpath.
+ * Once a manifest exists, only the classes whose class file changed since their tests were generated are generated again.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public final class GenerateMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * Classes directory the tests are generated for.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    /**
+     * Directory where the tests are generated.
+     */
+    @Parameter(property = "junitgenerator.outputDirectory", defaultValue = "${project.build.directory}/generated-test-sources/junitgenerator", required = true)
+    private File outputDirectory;
+
+    /**
+     * Manifest of the generated files, used to skip unchanged classes and to delete the tests of removed classes.
+     */
+    @Parameter(property = "junitgenerator.manifestFile", defaultValue = "${project.build.directory}/junitgenerator/manifest.txt", required = true)
+    private File manifestFile;
+
+    /**
+     * Skip the class files modified before the previous run without reading them; disable it if they can be replaced with their modification time kept.
+     */
+    @Parameter(property = "junitgenerator.useTimestamps", defaultValue = "true")
+    private boolean useTimestamps;
+
+    /**
+     * How class models are built: <code>BYTECODE</code> or <code>REFLECTION</code>.
+     */
+    @Parameter(property = "junitgenerator.source", defaultValue = "BYTECODE")
+    private ClassModelSource source;
+
+    /**
+     * File where the packages of every dependency are saved, with <code>REFLECTION</code> only.
+     */
+    @Parameter(property = "junitgenerator.dependencyIndexFile", defaultValue = "${project.build.directory}/junitgenerator/dependencies.idx")
+    private File dependencyIndexFile;
+
+    /**
+     * File where the model of every class is saved, reused by the next builds and readable by other tools.
+     */
+    @Parameter(property = "junitgenerator.classModelIndexFile", defaultValue = "${project.build.directory}/junitgenerator/models.idx")
+    private File classModelIndexFile;
+
+    /**
+     * File where a summary of the run is written, as JSON.
+     */
+    @Parameter(property = "junitgenerator.runSummaryFile")
+    private File runSummaryFile;
+
+    /**
+     * Directory of a Maven module where a JMH benchmark skeleton of every class is generated, none if not set.
+     */
+    @Parameter(property = "junitgenerator.benchmarkDirectory")
+    private File benchmarkDirectory;
+
+    /**
+     * File where the performance baselines of the invocable members are saved; the generated tests then check them. None if not set.
+     * Measuring calls the code of the project, in a separate JVM with the permissions of the build.
+     */
+    @Parameter(property = "junitgenerator.baselineFile")
+    private File baselineFile;
+
+    /**
+     * Ignore the baseline file: nothing of the project is called, for instance on a build server.
+     */
+    @Parameter(property = "junitgenerator.skipBaselines", defaultValue = "false")
+    private boolean skipBaselines;
+
+    /**
+     * How many times its baseline a call may take in the generated performance tests.
+     */
+    @Parameter(property = "junitgenerator.baselineTolerance", defaultValue = "3")
+    private double baselineTolerance;
+
+    /**
+     * Size of the class files generated per chunk of packages, in megabytes; 0 to generate all the classes in a single chunk.
+     * With a budget, the manifest and the class model index are not used: every class is generated.
+     */
+    @Parameter(property = "junitgenerator.memoryBudget", defaultValue = "0")
+    private int memoryBudget;
+
+    /**
+     * Patterns of the classes to generate, such as <code>a.b.*</code> or <code>a.b.**</code>; all classes if none.
+     */
+    @Parameter(property = "junitgenerator.includes")
+    private List<String> includes;
+
+    /**
+     * Patterns of the classes not to generate.
+     */
+    @Parameter(property = "junitgenerator.excludes")
+    private List<String> excludes;
+
+    /**
+     * Shard of the classes to generate, as <code>index/count</code>, for instance <code>0/4</code>.
+     */
+    @Parameter(property = "junitgenerator.shard")
+    private String shard;
+
+    /**
+     * Whether the output directory is added to the test sources of the project.
+     * The generated tests are skeletons to complete, so they are not compiled by default.
+     */
+    @Parameter(property = "junitgenerator.addTestSourceRoot", defaultValue = "false")
+    private boolean addTestSourceRoot;
+
+    /**
+     * Skip the generation.
+     */
+    @Parameter(property = "junitgenerator.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (this.skip) {
+            getLog().info("Skipping test generation");
+            return;
+        }
+        if (this.addTestSourceRoot) {
+            this.project.addTestCompileSourceRoot(this.outputDirectory.getAbsolutePath());
+        }
+        final Path classesPath = this.classesDirectory.toPath();
+        if (!Files.isDirectory(classesPath)) {
+            getLog().info("No classes to generate tests for");
+            return;
+        }
+        final JunitTestGenerator junitTestGenerator = new JunitTestGenerator();
+        junitTestGenerator.setClassModelSource(this.source);
+        junitTestGenerator.setManifestFile(this.manifestFile.getAbsolutePath());
+        junitTestGenerator.setUseTimestamps(this.useTimestamps);
+        junitTestGenerator.setDependencyIndexFile(this.dependencyIndexFile.getAbsolutePath());
+        junitTestGenerator.setClassModelIndexFile(this.classModelIndexFile.getAbsolutePath());
+        final ClassFilter classFilter = new ClassFilter(this.includes == null ? Collections.emptyList() : this.includes, this.excludes == null ? Collections.emptyList() : this.excludes);
+        try {
+            junitTestGenerator.setClassFilter(this.shard == null ? classFilter : classFilter.withShard(this.shard));
+        } catch (final IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        if (this.runSummaryFile != null) {
+            junitTestGenerator.setRunSummaryFile(this.runSummaryFile.getAbsolutePath());
+        }
+        if (this.benchmarkDirectory != null) {
+            junitTestGenerator.setBenchmarkDirectory(this.benchmarkDirectory.getAbsolutePath());
+        }
+        if (this.baselineFile != null && !this.skipBaselines) {
+            junitTestGenerator.setBaselineFile(this.baselineFile.getAbsolutePath());
+            try {
+                junitTestGenerator.setBaselineTolerance(this.baselineTolerance);
+            } catch (final IllegalArgumentException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+        try {
+            junitTestGenerator.setMemoryBudget(this.memoryBudget);
+        } catch (final IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        junitTestGenerator.generateJunitTestClasses(this.outputDirectory.getAbsolutePath(), Collections.singletonList(classesPath.toAbsolutePath().toString()), getDependencies());
+        final GenerationMetrics generationMetrics = junitTestGenerator.getLastRunMetrics();
+        if (generationMetrics != null) {
+            getLog().info("Generated " + generationMetrics.getGeneratedFiles() + " test(s) in " + generationMetrics.getDurationNanos() / 1_000_000 + " ms");
+            if (generationMetrics.getFailureCount() > 0) {
+                getLog().warn(generationMetrics.getFailureCount() + " class(es) failed: " + generationMetrics.getFailures());
+            }
+        }
+    }
+
+    @NonNull
+    private List<String> getDependencies() throws MojoExecutionException {
+        if (this.source == ClassModelSource.BYTECODE) {
+            // Class files are read without resolving any other class
+            return Collections.emptyList();
+        }
+        final List<String> result = new ArrayList<>();
+        try {
+            for (final String element : this.project.getCompileClasspathElements()) {
+                // The classes directory is the input, not a dependency
+                if (!new File(element).getAbsoluteFile().equals(this.classesDirectory.getAbsoluteFile())) {
+                    result.add(element);
+                }
+            }
+        } catch (final DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Cannot resolve the compile classpath", e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package aka.junitgenerator.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+import aka.junitgenerator.ClassModelSource;
+
+public class GenerateMojo_Test {
+
+    private static final String SAMPLE_SOURCE = "package sample;\n\npublic class Sample {\n\n    public void run(final int count) {\n    }\n\n    public boolean check(final boolean flag, final long value, final char c) {\n        return flag;\n    }\n}\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File classesDirectory;
+    private File outputDirectory;
+    private File manifestFile;
+
+    @Before
+    public void setUp() throws IOException {
+        this.classesDirectory = this.temporaryFolder.newFolder("classes");
+        this.outputDirectory = new File(this.temporaryFolder.getRoot(), "generated");
+        this.manifestFile = new File(this.temporaryFolder.getRoot(), "junitgenerator/manifest.txt");
+        final File sourceFile = new File(this.temporaryFolder.newFolder("sources"), "sample/Sample.java");
+        FileUtils.writeStringToFile(sourceFile, SAMPLE_SOURCE, "UTF-8");
+        compile(sourceFile, this.classesDirectory, "");
+    }
+
+    @org.junit.Test
+    public void Test_generateCompilableTests() throws Exception {
+        final MavenProject project = new MavenProject();
+        newMojo(project).execute();
+
+        // Not compiled with the tests of the project unless asked
+        Assert.assertFalse(project.getTestCompileSourceRoots().contains(this.outputDirectory.getAbsolutePath()));
+        final File generatedFile = new File(this.outputDirectory, "sample/Sample_TEST.java");
+        Assert.assertTrue(generatedFile.isFile());
+        final String junitJar = new File(org.junit.Test.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        compile(generatedFile, this.temporaryFolder.newFolder("test-classes"), this.classesDirectory.getAbsolutePath() + File.pathSeparator + junitJar);
+    }
+
+    @org.junit.Test
+    public void Test_addTestSourceRoot() throws Exception {
+        final MavenProject project = new MavenProject();
+        final GenerateMojo generateMojo = newMojo(project);
+        setField(generateMojo, "addTestSourceRoot", Boolean.TRUE);
+        generateMojo.execute();
+
+        Assert.assertTrue(project.getTestCompileSourceRoots().contains(this.outputDirectory.getAbsolutePath()));
+    }
+
+    @org.junit.Test
+    public void Test_generateClassesCompiledByAnEarlierBuild() throws Exception {
+        newMojo(new MavenProject()).execute();
+        Assert.assertTrue(this.manifestFile.isFile());
+        final File generatedFile = new File(this.outputDirectory, "sample/Sample_TEST.java");
+        Assert.assertTrue(generatedFile.delete());
+
+        // Compiled long before the build: its missing test is still generated
+        final File classFile = new File(this.classesDirectory, "sample/Sample.class");
+        Files.setLastModifiedTime(classFile.toPath(), FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+        newMojo(new MavenProject()).execute();
+
+        Assert.assertTrue(generatedFile.isFile());
+    }
+
+    private GenerateMojo newMojo(final MavenProject project) throws ReflectiveOperationException {
+        final GenerateMojo result = new GenerateMojo();
+        setField(result, "project", project);
+        setField(result, "classesDirectory", this.classesDirectory);
+        setField(result, "outputDirectory", this.outputDirectory);
+        setField(result, "manifestFile", this.manifestFile);
+        setField(result, "source", ClassModelSource.BYTECODE);
+        setField(result, "dependencyIndexFile", new File(this.temporaryFolder.getRoot(), "junitgenerator/dependencies.idx"));
+        setField(result, "classModelIndexFile", new File(this.temporaryFolder.getRoot(), "junitgenerator/models.idx"));
+        setField(result, "baselineTolerance", Double.valueOf(3));
+        return result;
+    }
+
+    private static void setField(final GenerateMojo generateMojo, final String name, final Object value) throws ReflectiveOperationException {
+        // Set by Maven from the plugin configuration
+        final Field field = GenerateMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(generateMojo, value);
+    }
+
+    private static void compile(final File sourceFile, final File destinationDirectory, final String classpath) {
+        final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertNotNull(javaCompiler);
+        final int result = javaCompiler.run(null, null, null, "-d", destinationDirectory.getAbsolutePath(), "-cp", classpath.isEmpty() ? destinationDirectory.getAbsolutePath() : classpath, sourceFile.getAbsolutePath());
+        Assert.assertEquals("Compilation of " + sourceFile, 0, result);
+    }
+}
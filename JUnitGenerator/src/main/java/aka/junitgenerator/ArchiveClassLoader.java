@@ -0,0 +1,46 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.ProtectionDomain;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Class loader defining classes straight from the class files of {@link InputArchives} or of a {@link DependencyIndex},
+ * including classes nested in fat jars and wars that an URLClassLoader can not reach.
+ */
+final class ArchiveClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    @NonNull
+    private final ClassFileLookup classFileLookup;
+
+    /**
+     * Constructor.
+     *
+     * @param classFileLookup where to find the class files
+     * @param parent parent class loader, asked first
+     */
+    ArchiveClassLoader(@NonNull final ClassFileLookup classFileLookup, @NonNull final ClassLoader parent) {
+        super(parent);
+        this.classFileLookup = classFileLookup;
+    }
+
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        final ByteBuffer classFile;
+        try {
+            classFile = this.classFileLookup.readClassFile(name);
+        } catch (final IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+        if (classFile == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, classFile, (ProtectionDomain) null);
+    }
+}
@@ -0,0 +1,238 @@
+package aka.junitgenerator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import aka.junitgenerator.PerformanceBaselines.Baseline;
+
+/**
+ * Measure the performance baselines of the invocable members of classes: public constructors and methods whose parameters are all primitive,
+ * called with zero values, instance methods on an instance built by the invocable constructor with the fewest parameters.
+ * <p>
+ * Classes are loaded by a sandbox class loader that only sees the inputs, the dependencies and the platform classes,
+ * and measured one at a time on a dedicated thread, abandoned if the class takes longer than the timeout: the members measured
+ * before the timeout or a failure keep their baselines.
+ * The measured code runs in the JVM of the caller, see {@link ForkedBaselineMeasurer} to keep it away from the generator.
+ * Each member gets warmup calls then measured calls, each of them timed, within a time budget so that slow members stop early.
+ * Members throwing with zero values get no baseline.
+ */
+final class BaselineMeasurer {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.BaselineMeasurer");
+
+    private static final long MEMBER_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @NonNull
+    private final ClassLoader sandboxClassLoader;
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param sandboxClassLoader class loader of the measured classes
+     * @param warmupIterations maximum number of calls before measuring a member
+     * @param measuredIterations maximum number of measured calls of a member
+     * @param timeoutMillis time after which the measure of a class is abandoned, in milliseconds
+     */
+    BaselineMeasurer(@NonNull final ClassLoader sandboxClassLoader, final int warmupIterations, final int measuredIterations, final long timeoutMillis) {
+        this.sandboxClassLoader = sandboxClassLoader;
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Measure the invocable members of a class.
+     *
+     * @param className binary name of the class
+     * @return baselines by member key of the members measured before the timeout, empty if nothing could be measured
+     * @throws InterruptedException if interrupted while waiting for the measures
+     */
+    @NonNull
+    Map<String, Baseline> measure(@NonNull final String className) throws InterruptedException {
+        // Filled by the measuring thread, read when it is abandoned
+        final Map<String, Baseline> result = Collections.synchronizedMap(new TreeMap<>());
+        final FutureTask<Void> task = new FutureTask<>(() -> {
+            measureClass(className, result);
+            return null;
+        });
+        final Thread thread = new Thread(task, "junitgenerator-baseline");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            task.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (final ExecutionException e) {
+            LOGGER.logp(Level.WARNING, "BaselineMeasurer", "measure", "Can not measure " + className, e.getCause());
+        } catch (final TimeoutException e) {
+            // The thread may keep running, it is a daemon and holds nothing of the generator
+            thread.interrupt();
+            LOGGER.logp(Level.WARNING, "BaselineMeasurer", "measure", "Measure of " + className + " abandoned after " + this.timeoutMillis + " ms");
+        } catch (final InterruptedException e) {
+            thread.interrupt();
+            throw e;
+        }
+        synchronized (result) {
+            return new TreeMap<>(result);
+        }
+    }
+
+    private void measureClass(@NonNull final String className, @NonNull final Map<String, Baseline> result) throws ClassNotFoundException {
+        final Class<?> measuredClass = Class.forName(className, true, this.sandboxClassLoader);
+        if (measuredClass.isInterface() || Modifier.isAbstract(measuredClass.getModifiers()) || measuredClass.isAnonymousClass() || measuredClass.isLocalClass()) {
+            return;
+        }
+        final List<Executable> members = new ArrayList<>();
+        for (final Constructor<?> constructor : measuredClass.getDeclaredConstructors()) {
+            if (isInvocable(constructor)) {
+                members.add(constructor);
+            }
+        }
+        final Constructor<?> instanceConstructor = (Constructor<?>) getSimplest(members);
+        for (final Method method : measuredClass.getDeclaredMethods()) {
+            if (isInvocable(method) && !method.isBridge() && !Modifier.isAbstract(method.getModifiers()) && (instanceConstructor != null || Modifier.isStatic(method.getModifiers()))) {
+                members.add(method);
+            }
+        }
+
+        Object instance = null;
+        for (final Executable member : members) {
+            try {
+                member.setAccessible(true);
+                final Object[] arguments = getZeroArguments(member);
+                final Call call;
+                if (member instanceof Constructor) {
+                    final Constructor<?> constructor = (Constructor<?>) member;
+                    call = () -> constructor.newInstance(arguments);
+                } else {
+                    final Method method = (Method) member;
+                    if (instance == null && !Modifier.isStatic(method.getModifiers()) && instanceConstructor != null) {
+                        instance = instanceConstructor.newInstance(getZeroArguments(instanceConstructor));
+                    }
+                    final Object target = instance;
+                    call = () -> method.invoke(target, arguments);
+                }
+                result.put(getMemberKey(member), measureCalls(call));
+            } catch (final ReflectiveOperationException | RuntimeException | LinkageError e) {
+                // Not invocable with zero values: no baseline
+                LOGGER.logp(Level.FINE, "BaselineMeasurer", "measureClass", className + "." + member.getName(), e);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+    }
+
+    @NonNull
+    private Baseline measureCalls(@NonNull final Call call) throws ReflectiveOperationException {
+        long deadline = System.nanoTime() + MEMBER_BUDGET_NANOS / 2;
+        for (int i = 0; i < this.warmupIterations && System.nanoTime() < deadline; i++) {
+            call.call();
+        }
+        final LatencyHistogram latencyHistogram = new LatencyHistogram();
+        long minNanos = Long.MAX_VALUE;
+        final long startBytes = getAllocatedBytes();
+        deadline = System.nanoTime() + MEMBER_BUDGET_NANOS / 2;
+        for (int i = 0; i < this.measuredIterations; i++) {
+            final long start = System.nanoTime();
+            call.call();
+            final long end = System.nanoTime();
+            latencyHistogram.record(end - start);
+            minNanos = Math.min(minNanos, end - start);
+            if (end > deadline) {
+                break;
+            }
+        }
+        final long iterations = latencyHistogram.getCount();
+        final long bytesPerCall = startBytes < 0 ? -1 : Math.max(0, getAllocatedBytes() - startBytes) / iterations;
+        return new Baseline(iterations, latencyHistogram.getTotalNanos() / iterations, latencyHistogram.getPercentileNanos(50), latencyHistogram.getPercentileNanos(99), latencyHistogram.getMaxNanos(), minNanos, bytesPerCall);
+    }
+
+    /**
+     * @param members invocable members
+     * @return constructor with the fewest parameters, then with the smallest key, so that generated tests pick the same; <code>null</code> if none
+     */
+    @Nullable
+    private static Executable getSimplest(@NonNull final List<Executable> members) {
+        Executable result = null;
+        for (final Executable member : members) {
+            if (result == null || member.getParameterCount() < result.getParameterCount() || member.getParameterCount() == result.getParameterCount() && getMemberKey(member).compareTo(getMemberKey(result)) < 0) {
+                result = member;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isInvocable(@NonNull final Executable member) {
+        if (!Modifier.isPublic(member.getModifiers()) || member.isSynthetic()) {
+            return false;
+        }
+        for (final Class<?> parameterType : member.getParameterTypes()) {
+            if (!parameterType.isPrimitive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NonNull
+    private static Object[] getZeroArguments(@NonNull final Executable member) {
+        final Class<?>[] parameterTypes = member.getParameterTypes();
+        final Object[] result = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            // Boxed zero value of the primitive type
+            result[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+        }
+        return result;
+    }
+
+    @NonNull
+    private static String getMemberKey(@NonNull final Executable member) {
+        final List<String> parameterTypeNames = new ArrayList<>(member.getParameterCount());
+        for (final Class<?> parameterType : member.getParameterTypes()) {
+            parameterTypeNames.add(parameterType.getName());
+        }
+        return PerformanceBaselines.getMemberKey(member instanceof Constructor ? PerformanceBaselines.CONSTRUCTOR : member.getName(), parameterTypeNames);
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, -1 if the JVM does not count them
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Call of a measured member.
+     */
+    @FunctionalInterface
+    private interface Call {
+
+        @Nullable
+        Object call() throws ReflectiveOperationException;
+    }
+}
@@ -0,0 +1,63 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@link ClassModelProvider} reusing the models of a {@link GenerationCache} while their class file does not change.
+ */
+final class CachingClassModelProvider implements ClassModelProvider {
+
+    @NonNull
+    private final ClassModelProvider classModelProvider;
+    @NonNull
+    private final InputArchives inputArchives;
+    @NonNull
+    private final GenerationCache generationCache;
+    @NonNull
+    private final ClassModelSource classModelSource;
+
+    /**
+     * Constructor.
+     *
+     * @param classModelProvider provider of the models missing from the cache, closed by this provider
+     * @param inputArchives archives containing the class files, not closed by this provider
+     * @param generationCache cache of the models
+     * @param classModelSource how the given provider builds the models
+     */
+    CachingClassModelProvider(@NonNull final ClassModelProvider classModelProvider, @NonNull final InputArchives inputArchives, @NonNull final GenerationCache generationCache, @NonNull final ClassModelSource classModelSource) {
+        this.classModelProvider = classModelProvider;
+        this.inputArchives = inputArchives;
+        this.generationCache = generationCache;
+        this.classModelSource = classModelSource;
+    }
+
+    @Override
+    @NonNull
+    public ClassModel getClassModel(@NonNull final String className, @Nullable final ByteBuffer classFile) throws IOException, ClassNotFoundException {
+        final ByteBuffer currentClassFile = classFile == null ? this.inputArchives.readClassFile(className) : classFile;
+        if (currentClassFile == null) {
+            throw new ClassNotFoundException(className);
+        }
+        final ClassModel cachedClassModel = this.generationCache.getClassModel(className, this.classModelSource, currentClassFile);
+        if (cachedClassModel != null) {
+            return cachedClassModel;
+        }
+        final ClassModel result = this.classModelProvider.getClassModel(className, currentClassFile);
+        this.generationCache.putClassModel(className, this.classModelSource, currentClassFile, result);
+        return result;
+    }
+
+    @Override
+    public void endChunk() {
+        this.classModelProvider.endChunk();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.classModelProvider.close();
+    }
+}
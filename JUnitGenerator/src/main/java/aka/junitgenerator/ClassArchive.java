@@ -0,0 +1,49 @@
+package aka.junitgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Jar, war or classes directory giving random access to its class files.
+ * Implementations must be safe for use by several threads.
+ */
+public interface ClassArchive extends ClassFileLookup, Closeable {
+
+    /**
+     * @return location of the archive, for messages
+     */
+    @NonNull
+    String getLocation();
+
+    /**
+     * @return binary names of the classes of the archive, module and package descriptors excluded
+     */
+    @NonNull
+    List<String> getClassNames();
+
+    /**
+     * @param className binary name of a class
+     * @return size of its class file in bytes, -1 if the class is not in this archive
+     * @throws IOException if the size can not be read
+     */
+    long getClassFileSize(@NonNull String className) throws IOException;
+
+    /**
+     * @param className binary name of a class
+     * @return time its class file was last modified at the latest, in milliseconds since the epoch, -1 if unknown or if the class is not in this archive
+     * @throws IOException if the time can not be read
+     */
+    default long getLastModified(@NonNull final String className) throws IOException {
+        return -1;
+    }
+
+    /**
+     * @return archives stored in this archive (e.g. libraries of a fat jar or a war), empty if none
+     * @throws IOException if a nested archive can not be read
+     */
+    @NonNull
+    List<ClassArchive> getNestedArchives() throws IOException;
+}
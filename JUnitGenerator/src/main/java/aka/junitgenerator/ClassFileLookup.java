@@ -0,0 +1,24 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Find the class file of a class by its name.
+ * Implementations must be safe for use by several threads.
+ */
+public interface ClassFileLookup {
+
+    /**
+     * Read the class file of a class.
+     *
+     * @param className binary name of the class
+     * @return read-only bytes of the class file, <code>null</code> if the class is unknown
+     * @throws IOException if the class file can not be read
+     */
+    @Nullable
+    ByteBuffer readClassFile(@NonNull String className) throws IOException;
+}
@@ -0,0 +1,56 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import aka.junitgenerator.GenerationMetrics.Phase;
+
+/**
+ * {@link ClassModelProvider} reading the <code>.class</code> files of the input archives.
+ */
+final class ClassFileModelProvider implements ClassModelProvider {
+
+    @NonNull
+    private final ClassFileReader classFileReader = new ClassFileReader();
+    @NonNull
+    private final InputArchives inputArchives;
+    @NonNull
+    private final GenerationMetrics generationMetrics;
+
+    /**
+     * Constructor.
+     *
+     * @param inputArchives archives containing the class files, not closed by this provider
+     * @param generationMetrics measures of the run
+     */
+    ClassFileModelProvider(@NonNull final InputArchives inputArchives, @NonNull final GenerationMetrics generationMetrics) {
+        this.inputArchives = inputArchives;
+        this.generationMetrics = generationMetrics;
+    }
+
+    @Override
+    @NonNull
+    public ClassModel getClassModel(@NonNull final String className, @Nullable final ByteBuffer classFile) throws IOException, ClassNotFoundException {
+        ByteBuffer readClassFile = classFile;
+        if (readClassFile == null) {
+            final long start = System.nanoTime();
+            readClassFile = this.inputArchives.readClassFile(className);
+            this.generationMetrics.record(Phase.READ, System.nanoTime() - start);
+            if (readClassFile == null) {
+                throw new ClassNotFoundException(className);
+            }
+        }
+        final long start = System.nanoTime();
+        final ClassModel result = this.classFileReader.read(readClassFile);
+        this.generationMetrics.record(Phase.MODEL, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close
+    }
+}
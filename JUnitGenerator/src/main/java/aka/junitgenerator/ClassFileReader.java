@@ -0,0 +1,387 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Build a {@link ClassModel} directly from the bytes of a <code>.class</code> file.
+ * The class is never loaded, so its dependencies do not need to be on the classpath.
+ * Instances are stateless and can be shared between threads.
+ */
+public final class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String CLASS_INITIALIZER_NAME = "<clinit>";
+    private static final String EXCEPTIONS_ATTRIBUTE = "Exceptions";
+    private static final String INNER_CLASSES_ATTRIBUTE = "InnerClasses";
+
+    /**
+     * Read the given class file.
+     *
+     * @param classFile bytes of the class file
+     * @return model of the class
+     * @throws IOException if the bytes are not a valid class file
+     */
+    @NonNull
+    public ClassModel read(@NonNull final byte[] classFile) throws IOException {
+        return read(ByteBuffer.wrap(classFile));
+    }
+
+    /**
+     * Read the class file between the position and the limit of the given buffer.
+     * The position of the given buffer is not modified.
+     *
+     * @param classFile bytes of the class file
+     * @return model of the class
+     * @throws IOException if the bytes are not a valid class file
+     */
+    @NonNull
+    public ClassModel read(@NonNull final ByteBuffer classFile) throws IOException {
+        try {
+            return new Parser(classFile.slice()).parse();
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+    }
+
+    /**
+     * State of a single read.
+     */
+    private static final class Parser {
+
+        @NonNull
+        private final ByteBuffer buffer;
+        private int[] offsets = new int[0];
+        private String[] strings = new String[0];
+
+        Parser(@NonNull final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @NonNull
+        ClassModel parse() throws IOException {
+            if (this.buffer.getInt() != MAGIC) {
+                throw new IOException("Not a class file");
+            }
+            // minor and major versions
+            this.buffer.getInt();
+            readConstantPool();
+
+            int modifiers = u2();
+            final String name = className(u2());
+            // super class
+            u2();
+            final int interfacesCount = u2();
+            skip(2 * interfacesCount);
+
+            final int fieldsCount = u2();
+            for (int i = 0; i < fieldsCount; i++) {
+                skip(6);
+                skipAttributes();
+            }
+
+            final int methodsCount = u2();
+            final List<RawMethod> rawMethods = new ArrayList<>(methodsCount);
+            for (int i = 0; i < methodsCount; i++) {
+                final int access = u2();
+                final String methodName = utf8(u2());
+                final String descriptor = utf8(u2());
+                List<String> exceptions = Collections.emptyList();
+                final int attributesCount = u2();
+                for (int j = 0; j < attributesCount; j++) {
+                    final String attributeName = utf8(u2());
+                    final int length = this.buffer.getInt();
+                    if (EXCEPTIONS_ATTRIBUTE.equals(attributeName)) {
+                        final int exceptionsCount = u2();
+                        exceptions = new ArrayList<>(exceptionsCount);
+                        for (int k = 0; k < exceptionsCount; k++) {
+                            exceptions.add(className(u2()));
+                        }
+                    } else {
+                        skip(length);
+                    }
+                }
+                rawMethods.add(new RawMethod(access, methodName, descriptor, exceptions));
+            }
+
+            // Simple names of nested classes, as javac records them for every nested class it references
+            final Map<String, String> simpleNames = new HashMap<>();
+            final int attributesCount = u2();
+            for (int i = 0; i < attributesCount; i++) {
+                final String attributeName = utf8(u2());
+                final int length = this.buffer.getInt();
+                if (INNER_CLASSES_ATTRIBUTE.equals(attributeName)) {
+                    final int classesCount = u2();
+                    for (int j = 0; j < classesCount; j++) {
+                        final String innerClass = className(u2());
+                        // outer class
+                        u2();
+                        final int innerNameIndex = u2();
+                        final int innerAccess = u2();
+                        simpleNames.put(innerClass, innerNameIndex == 0 ? "" : utf8(innerNameIndex));
+                        if (innerClass.equals(name)) {
+                            // Same as Class.getModifiers() for a nested class
+                            modifiers = innerAccess;
+                        }
+                    }
+                } else {
+                    skip(length);
+                }
+            }
+
+            final List<@NonNull MethodModel> constructors = new ArrayList<>();
+            final List<@NonNull MethodModel> methods = new ArrayList<>();
+            for (final RawMethod rawMethod : rawMethods) {
+                if (CLASS_INITIALIZER_NAME.equals(rawMethod.name)) {
+                    continue;
+                }
+                final MethodModel methodModel = toMethodModel(rawMethod, simpleNames);
+                if (methodModel.isConstructor()) {
+                    constructors.add(methodModel);
+                } else {
+                    methods.add(methodModel);
+                }
+            }
+
+            final int lastDot = name.lastIndexOf('.');
+            final String packageName = lastDot < 0 ? "" : name.substring(0, lastDot);
+            return new ClassModel(name, packageName, simpleName(name, simpleNames), modifiers, constructors, methods);
+        }
+
+        private void readConstantPool() throws IOException {
+            final int count = u2();
+            this.offsets = new int[count];
+            this.strings = new String[count];
+            for (int i = 1; i < count; i++) {
+                final int tag = this.buffer.get() & 0xFF;
+                this.offsets[i] = this.buffer.position();
+                switch (tag) {
+                    case CONSTANT_UTF8:
+                        skip(2 + (this.buffer.getShort(this.buffer.position()) & 0xFFFF));
+                        break;
+                    case CONSTANT_CLASS:
+                    case CONSTANT_STRING:
+                    case CONSTANT_METHOD_TYPE:
+                    case CONSTANT_MODULE:
+                    case CONSTANT_PACKAGE:
+                        skip(2);
+                        break;
+                    case CONSTANT_METHOD_HANDLE:
+                        skip(3);
+                        break;
+                    case CONSTANT_INTEGER:
+                    case CONSTANT_FLOAT:
+                    case CONSTANT_FIELDREF:
+                    case CONSTANT_METHODREF:
+                    case CONSTANT_INTERFACE_METHODREF:
+                    case CONSTANT_NAME_AND_TYPE:
+                    case CONSTANT_DYNAMIC:
+                    case CONSTANT_INVOKE_DYNAMIC:
+                        skip(4);
+                        break;
+                    case CONSTANT_LONG:
+                    case CONSTANT_DOUBLE:
+                        skip(8);
+                        // These constants take two entries
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+                }
+            }
+        }
+
+        @NonNull
+        private MethodModel toMethodModel(@NonNull final RawMethod rawMethod, @NonNull final Map<String, String> simpleNames) throws IOException {
+            final String descriptor = rawMethod.descriptor;
+            if (descriptor.isEmpty() || descriptor.charAt(0) != '(') {
+                throw new IOException("Invalid method descriptor " + descriptor);
+            }
+            final List<@NonNull TypeModel> parameterTypes = new ArrayList<>();
+            int index = 1;
+            while (descriptor.charAt(index) != ')') {
+                final int end = endOfType(descriptor, index);
+                parameterTypes.add(toTypeModel(descriptor.substring(index, end), simpleNames));
+                index = end;
+            }
+            final TypeModel returnType = toTypeModel(descriptor.substring(index + 1), simpleNames);
+            final List<@NonNull TypeModel> exceptionTypes = new ArrayList<>(rawMethod.exceptions.size());
+            for (final String exception : rawMethod.exceptions) {
+                exceptionTypes.add(new TypeModel(exception, simpleName(exception, simpleNames), false, false));
+            }
+            return new MethodModel(rawMethod.name, rawMethod.access, parameterTypes, returnType, exceptionTypes);
+        }
+
+        private int endOfType(@NonNull final String descriptor, final int start) throws IOException {
+            int index = start;
+            while (descriptor.charAt(index) == '[') {
+                index++;
+            }
+            if (descriptor.charAt(index) == 'L') {
+                index = descriptor.indexOf(';', index);
+                if (index < 0) {
+                    throw new IOException("Invalid descriptor " + descriptor);
+                }
+            }
+            return index + 1;
+        }
+
+        @NonNull
+        private TypeModel toTypeModel(@NonNull final String descriptor, @NonNull final Map<String, String> simpleNames) throws IOException {
+            if (descriptor.charAt(0) == '[') {
+                final TypeModel component = toTypeModel(descriptor.substring(1), simpleNames);
+                return new TypeModel(descriptor.replace('/', '.'), component.getSimpleName() + "[]", false, true);
+            }
+            if (descriptor.charAt(0) == 'L') {
+                final String name = descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+                return new TypeModel(name, simpleName(name, simpleNames), false, false);
+            }
+            final String primitive = primitiveName(descriptor.charAt(0));
+            return new TypeModel(primitive, primitive, true, false);
+        }
+
+        @NonNull
+        private String primitiveName(final char descriptor) throws IOException {
+            switch (descriptor) {
+                case 'B':
+                    return "byte";
+                case 'C':
+                    return "char";
+                case 'D':
+                    return "double";
+                case 'F':
+                    return "float";
+                case 'I':
+                    return "int";
+                case 'J':
+                    return "long";
+                case 'S':
+                    return "short";
+                case 'Z':
+                    return "boolean";
+                case 'V':
+                    return "void";
+                default:
+                    throw new IOException("Invalid type descriptor " + descriptor);
+            }
+        }
+
+        @NonNull
+        private String simpleName(@NonNull final String name, @NonNull final Map<String, String> simpleNames) {
+            final String simpleName = simpleNames.get(name);
+            if (simpleName != null) {
+                return simpleName;
+            }
+            return name.substring(Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1);
+        }
+
+        @NonNull
+        private String className(final int index) throws IOException {
+            final int nameIndex = this.buffer.getShort(offset(index)) & 0xFFFF;
+            return utf8(nameIndex).replace('/', '.');
+        }
+
+        @NonNull
+        private String utf8(final int index) throws IOException {
+            final String cached = this.strings[index];
+            if (cached != null) {
+                return cached;
+            }
+            final int offset = offset(index);
+            final int length = this.buffer.getShort(offset) & 0xFFFF;
+            // Modified UTF-8: never more chars than bytes
+            final char[] chars = new char[length];
+            int count = 0;
+            int position = offset + 2;
+            final int end = position + length;
+            while (position < end) {
+                final int c = this.buffer.get(position++) & 0xFF;
+                if (c < 0x80) {
+                    chars[count++] = (char) c;
+                } else if ((c & 0xE0) == 0xC0) {
+                    chars[count++] = (char) (((c & 0x1F) << 6) | (this.buffer.get(position++) & 0x3F));
+                } else {
+                    chars[count++] = (char) (((c & 0x0F) << 12) | ((this.buffer.get(position++) & 0x3F) << 6) | (this.buffer.get(position++) & 0x3F));
+                }
+            }
+            final String result = new String(chars, 0, count);
+            this.strings[index] = result;
+            return result;
+        }
+
+        private int offset(final int index) throws IOException {
+            if (index <= 0 || index >= this.offsets.length || this.offsets[index] == 0) {
+                throw new IOException("Invalid constant pool index " + index);
+            }
+            return this.offsets[index];
+        }
+
+        private void skipAttributes() throws IOException {
+            final int attributesCount = u2();
+            for (int i = 0; i < attributesCount; i++) {
+                skip(2);
+                skip(this.buffer.getInt());
+            }
+        }
+
+        private int u2() {
+            return this.buffer.getShort() & 0xFFFF;
+        }
+
+        private void skip(final int length) throws IOException {
+            // Lengths are read from the file: a corrupted one may be negative or past the end
+            if (length < 0 || length > this.buffer.remaining()) {
+                throw new IOException("Truncated class file: " + length + " bytes to skip at offset " + this.buffer.position());
+            }
+            this.buffer.position(this.buffer.position() + length);
+        }
+    }
+
+    /**
+     * Method as read from the class file, before its descriptor is decoded.
+     */
+    private static final class RawMethod {
+
+        private final int access;
+        @NonNull
+        private final String name;
+        @NonNull
+        private final String descriptor;
+        @NonNull
+        private final List<String> exceptions;
+
+        RawMethod(final int access, @NonNull final String name, @NonNull final String descriptor, @NonNull final List<String> exceptions) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.exceptions = exceptions;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package aka.junitgenerator;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Select the classes of a run by package or class name and by shard.
+ * <p>
+ * Patterns apply to binary names: <code>*</code> matches any part of a name without a dot and <code>**</code> any part of a name,
+ * so <code>a.b.*</code> matches the classes of package <code>a.b</code> and <code>a.b.**</code> those of its sub-packages too.
+ * A class is selected if it matches an include pattern, or if there is none, and no exclude pattern.
+ * <p>
+ * With <code>N</code> shards, each top-level class goes, with its nested classes, to a single shard that only depends on its name and on <code>N</code>;
+ * when <code>N</code> changes, only the classes needed to fill the new shards move.
+ * Instances are immutable.
+ */
+public final class ClassFilter {
+
+    /**
+     * Filter selecting every class.
+     */
+    @NonNull
+    public static final ClassFilter ALL = new ClassFilter(Collections.emptyList(), Collections.emptyList());
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @NonNull
+    private final List<Pattern> includes;
+    @NonNull
+    private final List<Pattern> excludes;
+    private final int shardIndex;
+    private final int shardCount;
+
+    /**
+     * Constructor.
+     *
+     * @param includes patterns of the classes to select, none to select every class
+     * @param excludes patterns of the classes not to select
+     */
+    public ClassFilter(@NonNull final List<String> includes, @NonNull final List<String> excludes) {
+        this(compile(includes), compile(excludes), 0, 1);
+    }
+
+    private ClassFilter(@NonNull final List<Pattern> includes, @NonNull final List<Pattern> excludes, final int shardIndex, final int shardCount) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Restrict this filter to a shard.
+     *
+     * @param shardIndex index of the shard, from 0 to <code>shardCount - 1</code>
+     * @param shardCount number of shards
+     * @return new filter
+     */
+    @NonNull
+    public ClassFilter withShard(final int shardIndex, final int shardCount) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shardIndex + " of " + shardCount);
+        }
+        return new ClassFilter(this.includes, this.excludes, shardIndex, shardCount);
+    }
+
+    /**
+     * Restrict this filter to a shard.
+     *
+     * @param shard shard as <code>index/count</code>, for instance <code>0/4</code> for the first of 4 shards
+     * @return new filter
+     */
+    @NonNull
+    public ClassFilter withShard(@NonNull final String shard) {
+        final int slash = shard.indexOf('/');
+        try {
+            if (slash > 0) {
+                return withShard(Integer.parseInt(shard.substring(0, slash).trim()), Integer.parseInt(shard.substring(slash + 1).trim()));
+            }
+        } catch (final NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid shard, expected index/count: " + shard);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return <code>true</code> if the class is selected
+     */
+    public boolean accept(@NonNull final String className) {
+        if (this.shardCount > 1 && getShard(className, this.shardCount) != this.shardIndex) {
+            return false;
+        }
+        if (!this.includes.isEmpty() && !matches(this.includes, className)) {
+            return false;
+        }
+        return !matches(this.excludes, className);
+    }
+
+    /**
+     * @param classNames binary names of classes
+     * @return names of the selected classes, in the same order
+     */
+    @NonNull
+    public List<String> filter(@NonNull final List<String> classNames) {
+        if (this == ALL) {
+            return classNames;
+        }
+        final List<String> result = new ArrayList<>(classNames.size() / this.shardCount + 1);
+        for (final String className : classNames) {
+            if (accept(className)) {
+                result.add(className);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the shard of a class, with a jump consistent hash of the name of its top-level class.
+     *
+     * @param className binary name of the class
+     * @param shardCount number of shards
+     * @return index of the shard, from 0 to <code>shardCount - 1</code>
+     */
+    public static int getShard(@NonNull final String className, final int shardCount) {
+        final int dollar = className.indexOf('$', className.lastIndexOf('.') + 1);
+        final String topLevelClassName = dollar < 0 ? className : className.substring(0, dollar);
+        // FNV-1a of the UTF-8 bytes, so that every machine computes the same shards
+        long key = FNV_OFFSET_BASIS;
+        for (final byte b : topLevelClassName.getBytes(Charset.forName("UTF-8"))) {
+            key = (key ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        // Jump consistent hash, Lamping and Veach
+        long bucket = -1;
+        long next = 0;
+        while (next < shardCount) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    private static boolean matches(@NonNull final List<Pattern> patterns, @NonNull final String className) {
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private static List<Pattern> compile(@NonNull final List<String> globs) {
+        final List<Pattern> result = new ArrayList<>(globs.size());
+        for (final String glob : globs) {
+            final StringBuilder regex = new StringBuilder(glob.length() + 16);
+            int literalStart = 0;
+            for (int i = 0; i <= glob.length(); i++) {
+                if (i == glob.length() || glob.charAt(i) == '*') {
+                    if (i > literalStart) {
+                        regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                    }
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else if (i < glob.length()) {
+                        regex.append("[^.]*");
+                    }
+                    literalStart = i + 1;
+                }
+            }
+            result.add(Pattern.compile(regex.toString()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,121 @@
+package aka.junitgenerator;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Constructors and methods of a class, as needed to generate its test skeleton.
+ */
+public final class ClassModel {
+
+    /**
+     * ACC_MODULE flag of <code>module-info</code> classes, unknown to {@link Modifier}.
+     */
+    private static final int ACC_MODULE = 0x8000;
+
+    @NonNull
+    private final String name;
+    @NonNull
+    private final String packageName;
+    @NonNull
+    private final String simpleName;
+    private final int modifiers;
+    @NonNull
+    private final List<@NonNull MethodModel> constructors;
+    @NonNull
+    private final List<@NonNull MethodModel> methods;
+
+    /**
+     * Constructor.
+     *
+     * @param name binary name of the class
+     * @param packageName package name of the class, empty for the default package
+     * @param simpleName simple name of the class
+     * @param modifiers modifiers of the class
+     * @param constructors declared constructors
+     * @param methods declared methods
+     */
+    public ClassModel(@NonNull final String name, @NonNull final String packageName, @NonNull final String simpleName, final int modifiers, @NonNull final List<@NonNull MethodModel> constructors, @NonNull final List<@NonNull MethodModel> methods) {
+        this.name = name;
+        this.packageName = packageName;
+        this.simpleName = simpleName;
+        this.modifiers = modifiers;
+        this.constructors = constructors;
+        this.methods = methods;
+    }
+
+    /**
+     * @return binary name of the class
+     */
+    @NonNull
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return package name of the class
+     */
+    @NonNull
+    public String getPackageName() {
+        return this.packageName;
+    }
+
+    /**
+     * @return simple name of the class
+     */
+    @NonNull
+    public String getSimpleName() {
+        return this.simpleName;
+    }
+
+    /**
+     * @return modifiers of the class
+     */
+    public int getModifiers() {
+        return this.modifiers;
+    }
+
+    /**
+     * @return declared constructors
+     */
+    @NonNull
+    public List<@NonNull MethodModel> getConstructors() {
+        return this.constructors;
+    }
+
+    /**
+     * @return declared methods, constructors and static initializer excluded
+     */
+    @NonNull
+    public List<@NonNull MethodModel> getMethods() {
+        return this.methods;
+    }
+
+    /**
+     * @return <code>true</code> if the class is abstract
+     */
+    public boolean isAbstract() {
+        return Modifier.isAbstract(this.modifiers);
+    }
+
+    /**
+     * @return <code>true</code> if the class is an interface
+     */
+    public boolean isInterface() {
+        return Modifier.isInterface(this.modifiers);
+    }
+
+    /**
+     * @return <code>true</code> if the class is a module descriptor
+     */
+    public boolean isModule() {
+        return (this.modifiers & ACC_MODULE) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
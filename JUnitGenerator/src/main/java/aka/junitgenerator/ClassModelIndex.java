@@ -0,0 +1,386 @@
+package aka.junitgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Memory-mapped index of class models, written by {@link ClassModelIndexWriter}.
+ * Only the header is read when opened: strings, types and classes are decoded when queried,
+ * so a tool can look up a few classes of a large code base without reading the whole index.
+ * <p>
+ * Format, big-endian:
+ * <ul>
+ * <li>header: magic, version, {@link ClassModelSource} ordinal, string, type and class counts and the offsets of their tables;</li>
+ * <li>string table: offset of each string, then the strings as a length followed by UTF-8 bytes; every name is stored once;</li>
+ * <li>type table: name and simple name string indexes and flags of each type; every type is stored once;</li>
+ * <li>class table, sorted by class name: name string index, class file length and CRC32, offset of the class record;</li>
+ * <li>class records: modifiers, package and simple name string indexes, constructor and method counts, offset of each method record;</li>
+ * <li>method records: name string index, modifiers, return type index, parameter type indexes and exception type indexes.</li>
+ * </ul>
+ * Instances can be shared between threads.
+ */
+public final class ClassModelIndex implements Closeable {
+
+    static final int MAGIC = 0x4A47434D;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 36;
+    static final int TYPE_RECORD_SIZE = 9;
+    static final int CLASS_RECORD_SIZE = 16;
+    static final int PRIMITIVE = 1;
+    static final int ARRAY = 2;
+
+    @NonNull
+    private final String location;
+    @NonNull
+    private final ByteBuffer index;
+    @NonNull
+    private final ClassModelSource classModelSource;
+    private final int stringCount;
+    private final int typeCount;
+    private final int classCount;
+    private final int stringTableOffset;
+    private final int typeTableOffset;
+    private final int classTableOffset;
+    // Decoded once, then shared by every class model
+    @NonNull
+    private final AtomicReferenceArray<String> strings;
+    @NonNull
+    private final AtomicReferenceArray<TypeModel> types;
+
+    private ClassModelIndex(@NonNull final String location, @NonNull final ByteBuffer index) throws IOException {
+        this.location = location;
+        this.index = index.slice().order(ByteOrder.BIG_ENDIAN);
+        if (this.index.remaining() < HEADER_SIZE || this.index.getInt(0) != MAGIC) {
+            throw new IOException("Not a class model index: " + location);
+        }
+        if (this.index.getInt(4) != VERSION) {
+            throw new IOException("Unsupported class model index version " + this.index.getInt(4) + ": " + location);
+        }
+        final int sourceOrdinal = this.index.getInt(8);
+        if (sourceOrdinal < 0 || sourceOrdinal >= ClassModelSource.values().length) {
+            throw new IOException("Invalid class model index: " + location);
+        }
+        this.classModelSource = ClassModelSource.values()[sourceOrdinal];
+        this.stringCount = this.index.getInt(12);
+        this.typeCount = this.index.getInt(16);
+        this.classCount = this.index.getInt(20);
+        this.stringTableOffset = this.index.getInt(24);
+        this.typeTableOffset = this.index.getInt(28);
+        this.classTableOffset = this.index.getInt(32);
+        if (this.stringCount < 0 || this.typeCount < 0 || this.classCount < 0 || !fits(this.stringTableOffset, 4L * this.stringCount) || !fits(this.typeTableOffset, (long) TYPE_RECORD_SIZE * this.typeCount)
+                || !fits(this.classTableOffset, (long) CLASS_RECORD_SIZE * this.classCount)) {
+            throw new IOException("Invalid class model index: " + location);
+        }
+        this.strings = new AtomicReferenceArray<>(this.stringCount);
+        this.types = new AtomicReferenceArray<>(this.typeCount);
+    }
+
+    /**
+     * Open and memory-map the given index.
+     *
+     * @param path path to the index file
+     * @return index
+     * @throws IOException if the file can not be mapped or is not an index
+     */
+    @NonNull
+    public static ClassModelIndex open(@NonNull final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index larger than 2 GB: " + path);
+            }
+            // The mapping stays valid once the channel is closed
+            return new ClassModelIndex(path.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read the given index into memory: unlike a mapped file, which stays mapped until garbage collected,
+     * the file can then be replaced while the index is in use, on Windows too.
+     *
+     * @param path path to the index file
+     * @return index
+     * @throws IOException if the file can not be read or is not an index
+     */
+    @NonNull
+    public static ClassModelIndex read(@NonNull final Path path) throws IOException {
+        return new ClassModelIndex(path.toString(), ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Read an index already in memory.
+     *
+     * @param location description of the index, for error messages
+     * @param index bytes of the index, between position and limit
+     * @return index
+     * @throws IOException if the bytes are not an index
+     */
+    @NonNull
+    public static ClassModelIndex wrap(@NonNull final String location, @NonNull final ByteBuffer index) throws IOException {
+        return new ClassModelIndex(location, index);
+    }
+
+    /**
+     * Compute the checksum identifying a class file in an index.
+     *
+     * @param classFile bytes of the class file, between position and limit; the position is not modified
+     * @return CRC32 of the class file
+     */
+    public static int checksum(@NonNull final ByteBuffer classFile) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(classFile.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * @return how the models of this index were built
+     */
+    @NonNull
+    public ClassModelSource getClassModelSource() {
+        return this.classModelSource;
+    }
+
+    /**
+     * @return number of classes
+     */
+    public int size() {
+        return this.classCount;
+    }
+
+    /**
+     * @return binary names of the classes, sorted, decoded when accessed
+     */
+    @NonNull
+    public List<String> getClassNames() {
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(final int i) {
+                if (i < 0 || i >= ClassModelIndex.this.classCount) {
+                    throw new IndexOutOfBoundsException(String.valueOf(i));
+                }
+                return getClassName(i);
+            }
+
+            @Override
+            public int size() {
+                return ClassModelIndex.this.classCount;
+            }
+        };
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return <code>true</code> if the class is in this index
+     * @throws IOException if the index is corrupted
+     */
+    public boolean contains(@NonNull final String className) throws IOException {
+        return find(className) >= 0;
+    }
+
+    /**
+     * Get the model of a class.
+     *
+     * @param className binary name of the class
+     * @return model, <code>null</code> if the class is not in this index
+     * @throws IOException if the index is corrupted
+     */
+    @Nullable
+    public ClassModel getClassModel(@NonNull final String className) throws IOException {
+        final int i = find(className);
+        return i < 0 ? null : readClassModel(i, className);
+    }
+
+    /**
+     * Get the model of a class, only if it was built from the given class file.
+     *
+     * @param className binary name of the class
+     * @param classFile current class file of the class, between position and limit; the position is not modified
+     * @return model, <code>null</code> if the class is not in this index or if it was built from another class file
+     * @throws IOException if the index is corrupted
+     */
+    @Nullable
+    public ClassModel getClassModel(@NonNull final String className, @NonNull final ByteBuffer classFile) throws IOException {
+        final int i = find(className);
+        if (i < 0) {
+            return null;
+        }
+        final int classTableEntry = this.classTableOffset + i * CLASS_RECORD_SIZE;
+        if (this.index.getInt(classTableEntry + 4) != classFile.remaining() || this.index.getInt(classTableEntry + 8) != checksum(classFile)) {
+            return null;
+        }
+        return readClassModel(i, className);
+    }
+
+    /**
+     * Nothing to release: the mapping of an opened index is released when the index is garbage collected.
+     */
+    @Override
+    public void close() {
+        // Mapped buffers can not be unmapped explicitly
+    }
+
+    /**
+     * @param i index of a class in the class table
+     * @return length of its class file
+     */
+    int getClassFileLength(final int i) {
+        return this.index.getInt(this.classTableOffset + i * CLASS_RECORD_SIZE + 4);
+    }
+
+    /**
+     * @param i index of a class in the class table
+     * @return checksum of its class file
+     */
+    int getClassFileChecksum(final int i) {
+        return this.index.getInt(this.classTableOffset + i * CLASS_RECORD_SIZE + 8);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return index of the class in the class table, negative if absent
+     * @throws IOException if the index is corrupted
+     */
+    int find(@NonNull final String className) throws IOException {
+        int low = 0;
+        int high = this.classCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = getClassName(middle).compareTo(className);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    @NonNull
+    private String getClassName(final int i) {
+        try {
+            return getString(this.index.getInt(this.classTableOffset + i * CLASS_RECORD_SIZE));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @NonNull
+    private ClassModel readClassModel(final int i, @NonNull final String className) throws IOException {
+        final int offset = this.index.getInt(this.classTableOffset + i * CLASS_RECORD_SIZE + 12);
+        checkRange(offset, 20);
+        final int modifiers = this.index.getInt(offset);
+        final String packageName = getString(this.index.getInt(offset + 4));
+        final String simpleName = getString(this.index.getInt(offset + 8));
+        final int constructorCount = this.index.getInt(offset + 12);
+        final int methodCount = this.index.getInt(offset + 16);
+        if (constructorCount < 0 || methodCount < 0) {
+            throw new IOException("Invalid class record of " + className + ": " + this.location);
+        }
+        checkRange(offset + 20, 4L * (constructorCount + methodCount));
+        final List<@NonNull MethodModel> constructors = new ArrayList<>(constructorCount);
+        for (int j = 0; j < constructorCount; j++) {
+            constructors.add(readMethodModel(this.index.getInt(offset + 20 + 4 * j)));
+        }
+        final List<@NonNull MethodModel> methods = new ArrayList<>(methodCount);
+        for (int j = constructorCount; j < constructorCount + methodCount; j++) {
+            methods.add(readMethodModel(this.index.getInt(offset + 20 + 4 * j)));
+        }
+        return new ClassModel(className, packageName, simpleName, modifiers, Collections.unmodifiableList(constructors), Collections.unmodifiableList(methods));
+    }
+
+    @NonNull
+    private MethodModel readMethodModel(final int offset) throws IOException {
+        checkRange(offset, 16);
+        final String name = getString(this.index.getInt(offset));
+        final int modifiers = this.index.getInt(offset + 4);
+        final TypeModel returnType = getType(this.index.getInt(offset + 8));
+        final int parameterCount = this.index.getInt(offset + 12);
+        final List<@NonNull TypeModel> parameterTypes = readTypes(offset + 16, parameterCount);
+        final int exceptionCountOffset = offset + 16 + 4 * parameterCount;
+        checkRange(exceptionCountOffset, 4);
+        final List<@NonNull TypeModel> exceptionTypes = readTypes(exceptionCountOffset + 4, this.index.getInt(exceptionCountOffset));
+        return new MethodModel(name, modifiers, parameterTypes, returnType, exceptionTypes);
+    }
+
+    @NonNull
+    private List<@NonNull TypeModel> readTypes(final int offset, final int count) throws IOException {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        if (count < 0) {
+            throw new IOException("Invalid type count: " + this.location);
+        }
+        checkRange(offset, 4L * count);
+        final List<@NonNull TypeModel> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(getType(this.index.getInt(offset + 4 * i)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @NonNull
+    private TypeModel getType(final int i) throws IOException {
+        if (i < 0 || i >= this.typeCount) {
+            throw new IOException("Invalid type index " + i + ": " + this.location);
+        }
+        TypeModel result = this.types.get(i);
+        if (result == null) {
+            final int offset = this.typeTableOffset + i * TYPE_RECORD_SIZE;
+            final int flags = this.index.get(offset + 8);
+            result = new TypeModel(getString(this.index.getInt(offset)), getString(this.index.getInt(offset + 4)), (flags & PRIMITIVE) != 0, (flags & ARRAY) != 0);
+            this.types.compareAndSet(i, null, result);
+            result = this.types.get(i);
+        }
+        return result;
+    }
+
+    @NonNull
+    private String getString(final int i) throws IOException {
+        if (i < 0 || i >= this.stringCount) {
+            throw new IOException("Invalid string index " + i + ": " + this.location);
+        }
+        String result = this.strings.get(i);
+        if (result == null) {
+            final int offset = this.index.getInt(this.stringTableOffset + 4 * i);
+            checkRange(offset, 4);
+            final int length = this.index.getInt(offset);
+            checkRange(offset + 4, length);
+            final byte[] bytes = new byte[length];
+            final ByteBuffer duplicate = this.index.duplicate();
+            duplicate.position(offset + 4);
+            duplicate.get(bytes);
+            result = new String(bytes, Charset.forName("UTF-8"));
+            this.strings.compareAndSet(i, null, result);
+            result = this.strings.get(i);
+        }
+        return result;
+    }
+
+    private void checkRange(final int offset, final long length) throws IOException {
+        if (!fits(offset, length)) {
+            throw new IOException("Truncated class model index: " + this.location);
+        }
+    }
+
+    private boolean fits(final int offset, final long length) {
+        return offset >= 0 && length >= 0 && offset + length <= this.index.limit();
+    }
+}
@@ -0,0 +1,282 @@
+package aka.junitgenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Collect class models and save them as a {@link ClassModelIndex}.
+ * Classes can be added by several threads.
+ */
+public final class ClassModelIndexWriter {
+
+    @NonNull
+    private final ClassModelSource classModelSource;
+    @NonNull
+    private final ConcurrentSkipListMap<String, IndexedClass> classes = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param classModelSource how the added models were built
+     */
+    public ClassModelIndexWriter(@NonNull final ClassModelSource classModelSource) {
+        this.classModelSource = classModelSource;
+    }
+
+    /**
+     * Add the model of a class, replacing the previous one if any.
+     *
+     * @param classFile class file the model was built from, between position and limit; the position is not modified
+     * @param classModel model of the class
+     */
+    public void add(@NonNull final ByteBuffer classFile, @NonNull final ClassModel classModel) {
+        this.classes.put(classModel.getName(), new IndexedClass(classFile.remaining(), ClassModelIndex.checksum(classFile), classModel));
+    }
+
+    /**
+     * Copy the given classes of a previous index, unless already added.
+     *
+     * @param previous previous index, built the same way
+     * @param classNames binary names of the classes to copy; those absent from the previous index are ignored
+     * @throws IOException if the previous index is corrupted
+     */
+    public void addPrevious(@NonNull final ClassModelIndex previous, @NonNull final Iterable<String> classNames) throws IOException {
+        if (previous.getClassModelSource() != this.classModelSource) {
+            return;
+        }
+        for (final String className : classNames) {
+            if (!this.classes.containsKey(className)) {
+                final int i = previous.find(className);
+                final ClassModel classModel = i < 0 ? null : previous.getClassModel(className);
+                if (classModel != null) {
+                    this.classes.putIfAbsent(className, new IndexedClass(previous.getClassFileLength(i), previous.getClassFileChecksum(i), classModel));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of added classes
+     */
+    public int size() {
+        return this.classes.size();
+    }
+
+    /**
+     * Save the index to the given file, replacing it atomically.
+     *
+     * @param indexFile index file
+     * @throws IOException if the file can not be written
+     */
+    public void save(@NonNull final Path indexFile) throws IOException {
+        final Path parent = indexFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+            write(outputStream);
+        }
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Write the index.
+     *
+     * @param outputStream stream to write to, not closed
+     * @throws IOException if the stream can not be written
+     */
+    public void write(@NonNull final OutputStream outputStream) throws IOException {
+        final Map<String, Integer> stringIndexes = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        final Map<TypeKey, Integer> typeIndexes = new HashMap<>();
+        final List<TypeModel> types = new ArrayList<>();
+        final List<Entry<String, IndexedClass>> entries = new ArrayList<>(this.classes.entrySet());
+
+        // Class and method records, with string and type indexes, offsets relative to the start of the records
+        final ByteArrayOutputStream records = new ByteArrayOutputStream(entries.size() * 256);
+        final DataOutputStream recordsOutput = new DataOutputStream(records);
+        final int[] classRecordOffsets = new int[entries.size()];
+        final int[] classNameIndexes = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            final ClassModel classModel = entries.get(i).getValue().classModel;
+            classNameIndexes[i] = intern(classModel.getName(), stringIndexes, strings);
+            final List<MethodModel> methodModels = new ArrayList<>(classModel.getConstructors());
+            methodModels.addAll(classModel.getMethods());
+            classRecordOffsets[i] = recordsOutput.size();
+            recordsOutput.writeInt(classModel.getModifiers());
+            recordsOutput.writeInt(intern(classModel.getPackageName(), stringIndexes, strings));
+            recordsOutput.writeInt(intern(classModel.getSimpleName(), stringIndexes, strings));
+            recordsOutput.writeInt(classModel.getConstructors().size());
+            recordsOutput.writeInt(classModel.getMethods().size());
+            // Method records follow their offset table
+            int methodOffset = recordsOutput.size() + 4 * methodModels.size();
+            for (final MethodModel methodModel : methodModels) {
+                recordsOutput.writeInt(methodOffset);
+                methodOffset += 20 + 4 * (methodModel.getParameterTypes().size() + methodModel.getExceptionTypes().size());
+            }
+            for (final MethodModel methodModel : methodModels) {
+                recordsOutput.writeInt(intern(methodModel.getName(), stringIndexes, strings));
+                recordsOutput.writeInt(methodModel.getModifiers());
+                recordsOutput.writeInt(intern(methodModel.getReturnType(), typeIndexes, types, stringIndexes, strings));
+                writeTypes(methodModel.getParameterTypes(), recordsOutput, typeIndexes, types, stringIndexes, strings);
+                writeTypes(methodModel.getExceptionTypes(), recordsOutput, typeIndexes, types, stringIndexes, strings);
+            }
+        }
+        recordsOutput.flush();
+
+        final List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+        int stringDataSize = 0;
+        for (final String string : strings) {
+            final byte[] bytes = string.getBytes(Charset.forName("UTF-8"));
+            encodedStrings.add(bytes);
+            stringDataSize += 4 + bytes.length;
+        }
+        final int stringTableOffset = ClassModelIndex.HEADER_SIZE;
+        final int stringDataOffset = stringTableOffset + 4 * strings.size();
+        final int typeTableOffset = stringDataOffset + stringDataSize;
+        final int classTableOffset = typeTableOffset + ClassModelIndex.TYPE_RECORD_SIZE * types.size();
+        final int recordsOffset = classTableOffset + ClassModelIndex.CLASS_RECORD_SIZE * entries.size();
+        if ((long) recordsOffset + records.size() > Integer.MAX_VALUE) {
+            throw new IOException("Index larger than 2 GB");
+        }
+
+        final DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(ClassModelIndex.MAGIC);
+        output.writeInt(ClassModelIndex.VERSION);
+        output.writeInt(this.classModelSource.ordinal());
+        output.writeInt(strings.size());
+        output.writeInt(types.size());
+        output.writeInt(entries.size());
+        output.writeInt(stringTableOffset);
+        output.writeInt(typeTableOffset);
+        output.writeInt(classTableOffset);
+        int stringOffset = stringDataOffset;
+        for (final byte[] bytes : encodedStrings) {
+            output.writeInt(stringOffset);
+            stringOffset += 4 + bytes.length;
+        }
+        for (final byte[] bytes : encodedStrings) {
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        for (final TypeModel typeModel : types) {
+            output.writeInt(stringIndexes.get(typeModel.getName()).intValue());
+            output.writeInt(stringIndexes.get(typeModel.getSimpleName()).intValue());
+            output.writeByte((typeModel.isPrimitive() ? ClassModelIndex.PRIMITIVE : 0) | (typeModel.isArray() ? ClassModelIndex.ARRAY : 0));
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            final IndexedClass indexedClass = entries.get(i).getValue();
+            output.writeInt(classNameIndexes[i]);
+            output.writeInt(indexedClass.classFileLength);
+            output.writeInt(indexedClass.classFileChecksum);
+            output.writeInt(recordsOffset + classRecordOffsets[i]);
+        }
+        // Offsets in the records are relative to their start
+        final ByteBuffer recordBytes = ByteBuffer.wrap(records.toByteArray());
+        for (int i = 0; i < entries.size(); i++) {
+            final int offset = classRecordOffsets[i];
+            final int methodCount = recordBytes.getInt(offset + 12) + recordBytes.getInt(offset + 16);
+            for (int j = 0; j < methodCount; j++) {
+                final int methodOffsetPosition = offset + 20 + 4 * j;
+                recordBytes.putInt(methodOffsetPosition, recordsOffset + recordBytes.getInt(methodOffsetPosition));
+            }
+        }
+        output.write(recordBytes.array());
+        output.flush();
+    }
+
+    private static void writeTypes(@NonNull final List<@NonNull TypeModel> typeModels, @NonNull final DataOutputStream output, @NonNull final Map<TypeKey, Integer> typeIndexes, @NonNull final List<TypeModel> types, @NonNull final Map<String, Integer> stringIndexes, @NonNull final List<String> strings) throws IOException {
+        output.writeInt(typeModels.size());
+        for (final TypeModel typeModel : typeModels) {
+            output.writeInt(intern(typeModel, typeIndexes, types, stringIndexes, strings));
+        }
+    }
+
+    private static int intern(@NonNull final TypeModel typeModel, @NonNull final Map<TypeKey, Integer> typeIndexes, @NonNull final List<TypeModel> types, @NonNull final Map<String, Integer> stringIndexes, @NonNull final List<String> strings) {
+        final TypeKey typeKey = new TypeKey(typeModel);
+        final Integer result = typeIndexes.get(typeKey);
+        if (result != null) {
+            return result.intValue();
+        }
+        intern(typeModel.getName(), stringIndexes, strings);
+        intern(typeModel.getSimpleName(), stringIndexes, strings);
+        types.add(typeModel);
+        typeIndexes.put(typeKey, Integer.valueOf(types.size() - 1));
+        return types.size() - 1;
+    }
+
+    private static int intern(@NonNull final String string, @NonNull final Map<String, Integer> stringIndexes, @NonNull final List<String> strings) {
+        final Integer result = stringIndexes.get(string);
+        if (result != null) {
+            return result.intValue();
+        }
+        strings.add(string);
+        stringIndexes.put(string, Integer.valueOf(strings.size() - 1));
+        return strings.size() - 1;
+    }
+
+    /**
+     * Model of a class with what identifies its class file.
+     */
+    private static final class IndexedClass {
+
+        private final int classFileLength;
+        private final int classFileChecksum;
+        @NonNull
+        private final ClassModel classModel;
+
+        IndexedClass(final int classFileLength, final int classFileChecksum, @NonNull final ClassModel classModel) {
+            this.classFileLength = classFileLength;
+            this.classFileChecksum = classFileChecksum;
+            this.classModel = classModel;
+        }
+    }
+
+    /**
+     * Identity of a {@link TypeModel}, which does not implement equality.
+     */
+    private static final class TypeKey {
+
+        @NonNull
+        private final String name;
+        @NonNull
+        private final String simpleName;
+        private final int flags;
+
+        TypeKey(@NonNull final TypeModel typeModel) {
+            this.name = typeModel.getName();
+            this.simpleName = typeModel.getSimpleName();
+            this.flags = (typeModel.isPrimitive() ? ClassModelIndex.PRIMITIVE : 0) | (typeModel.isArray() ? ClassModelIndex.ARRAY : 0);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof TypeKey)) {
+                return false;
+            }
+            final TypeKey other = (TypeKey) obj;
+            return this.name.equals(other.name) && this.simpleName.equals(other.simpleName) && this.flags == other.flags;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.name.hashCode() * 31 + this.flags;
+        }
+    }
+}
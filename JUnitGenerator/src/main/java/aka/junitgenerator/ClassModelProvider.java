@@ -0,0 +1,35 @@
+package aka.junitgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Give the model of the classes to generate, by class name.
+ * Implementations must be safe for use by several threads.
+ */
+public interface ClassModelProvider extends Closeable {
+
+    /**
+     * Get the model of the given class.
+     *
+     * @param className binary name of the class
+     * @param classFile bytes of the class file when already read, <code>null</code> otherwise
+     * @return model of the class
+     * @throws IOException if the class can not be read
+     * @throws ClassNotFoundException if the class can not be found
+     */
+    @NonNull
+    ClassModel getClassModel(@NonNull String className, @Nullable ByteBuffer classFile) throws IOException, ClassNotFoundException;
+
+    /**
+     * Release what is kept for the classes of the current chunk, such as their class loader, in bounded-memory mode.
+     * Called between chunks, when no model is being built. Does nothing by default.
+     */
+    default void endChunk() {
+        // Nothing kept by default
+    }
+}
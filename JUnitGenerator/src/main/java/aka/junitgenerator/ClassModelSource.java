@@ -0,0 +1,19 @@
+package aka.junitgenerator;
+
+/**
+ * How the constructors and methods of the classes are discovered.
+ */
+public enum ClassModelSource {
+
+    /**
+     * Read the <code>.class</code> files directly, without loading the classes.
+     * Classes with missing dependencies are generated too.
+     */
+    BYTECODE,
+
+    /**
+     * Load the classes and use reflection.
+     * Classes with missing dependencies are skipped.
+     */
+    REFLECTION
+}
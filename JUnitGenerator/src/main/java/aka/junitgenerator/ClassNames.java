@@ -0,0 +1,44 @@
+package aka.junitgenerator;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Conversions between archive entry paths and binary class names.
+ */
+final class ClassNames {
+
+    private static final String CLASS_SUFFIX = ".class";
+    // Roots of the application classes in Spring Boot fat jars and wars
+    private static final String[] CLASSES_ROOTS = { "BOOT-INF/classes/", "WEB-INF/classes/" };
+    private static final String META_INF = "META-INF/";
+
+    private ClassNames() {
+        // Utility class
+    }
+
+    /**
+     * Get the binary name of the class stored at the given path.
+     *
+     * @param path '/' separated path of an entry, relative to the root of the archive
+     * @return binary name of the class, <code>null</code> if the entry is not a class file or is a module/package descriptor
+     */
+    @Nullable
+    static String fromPath(@NonNull final String path) {
+        if (!path.endsWith(CLASS_SUFFIX) || path.startsWith(META_INF)) {
+            return null;
+        }
+        int start = 0;
+        for (final String classesRoot : CLASSES_ROOTS) {
+            if (path.startsWith(classesRoot)) {
+                start = classesRoot.length();
+                break;
+            }
+        }
+        final String className = path.substring(start, path.length() - CLASS_SUFFIX.length()).replace('/', '.');
+        if (className.endsWith("module-info") || className.endsWith("package-info")) {
+            return null;
+        }
+        return className;
+    }
+}
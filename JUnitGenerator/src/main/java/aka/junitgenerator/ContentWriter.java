@@ -0,0 +1,106 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Encode text files in UTF-8 through a reusable encoder and byte buffers, and write them only when their content changed.
+ * Not thread safe: use one instance per thread.
+ */
+final class ContentWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @NonNull
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    @NonNull
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    @NonNull
+    private ByteBuffer existingContent = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Encode the given content.
+     *
+     * @param content content to encode
+     * @return encoded content, between position and limit, valid until the next call to this writer
+     * @throws CharacterCodingException if the content can not be encoded
+     */
+    @NonNull
+    ByteBuffer encode(@NonNull final CharSequence content) throws CharacterCodingException {
+        final CharBuffer chars = CharBuffer.wrap(content);
+        this.encoder.reset();
+        this.buffer.clear();
+        CoderResult result = this.encoder.encode(chars, this.buffer, true);
+        while (result.isOverflow()) {
+            grow();
+            result = this.encoder.encode(chars, this.buffer, true);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (this.encoder.flush(this.buffer).isOverflow()) {
+            grow();
+        }
+        this.buffer.flip();
+        return this.buffer;
+    }
+
+    /**
+     * Write the given content, replacing the file if it exists and has another content.
+     *
+     * @param file file to write
+     * @param content content of the file
+     * @return <code>true</code> if the file was written, <code>false</code> if it already had this content
+     * @throws IOException if the file can not be written or the content can not be encoded
+     */
+    boolean write(@NonNull final Path file, @NonNull final CharSequence content) throws IOException {
+        final ByteBuffer encoded = encode(content);
+        if (hasContent(file, encoded)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        }
+        return true;
+    }
+
+    private boolean hasContent(@NonNull final Path file, @NonNull final ByteBuffer encoded) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != encoded.remaining()) {
+                return false;
+            }
+            if (this.existingContent.capacity() < encoded.remaining()) {
+                this.existingContent = ByteBuffer.allocate(encoded.capacity());
+            }
+            this.existingContent.clear();
+            this.existingContent.limit(encoded.remaining());
+            while (this.existingContent.hasRemaining() && channel.read(this.existingContent) >= 0) {
+                // Read the whole file
+            }
+            this.existingContent.flip();
+            return this.existingContent.equals(encoded);
+        } catch (final NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private void grow() {
+        final ByteBuffer larger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+        this.buffer.flip();
+        larger.put(this.buffer);
+        this.buffer = larger;
+    }
+}
@@ -0,0 +1,409 @@
+package aka.junitgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Classpath of the dependencies, indexed by package.
+ * A class is found with one lookup of its package, instead of searching every jar in turn as an URLClassLoader does.
+ * Entries can be jars, directories (searched recursively for jars and class files, such as a local Maven repository)
+ * or wildcards: <code>lib/*</code> for the jars of a directory, <code>lib/**</code> for the jars of a whole tree.
+ * The packages of each jar can be saved to an index file: unchanged jars are then neither read nor mapped until one of their classes is needed.
+ * Instances can be shared between threads once opened.
+ */
+public final class DependencyIndex implements ClassFileLookup, Closeable {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.DependencyIndex");
+    private static final String HEADER = "# JunitTestGenerator dependency index v1";
+    private static final char SEPARATOR = '\t';
+    private static final String ALL_JARS = "*";
+    private static final String ALL_JARS_RECURSIVE = "**";
+
+    @NonNull
+    private final List<String> entries;
+    @NonNull
+    private final List<IndexedArchive> archives = new ArrayList<>();
+    @NonNull
+    private final Map<String, IndexedArchive[]> archivesByPackage = new HashMap<>();
+    private boolean modified;
+
+    private DependencyIndex(@NonNull final List<String> entries) {
+        this.entries = new ArrayList<>(entries);
+    }
+
+    /**
+     * Open the given classpath.
+     * When a class is in several archives, the first one wins, as with a classpath.
+     *
+     * @param entries jars, directories or wildcards; a leading <code>~</code> is the home directory of the user
+     * @param indexFile file the index is read from and saved to if it changed, <code>null</code> to index every jar again
+     * @return opened classpath
+     * @throws IOException if an entry can not be read
+     */
+    @NonNull
+    public static DependencyIndex open(@NonNull final List<String> entries, @Nullable final Path indexFile) throws IOException {
+        return open(entries, indexFile, null);
+    }
+
+    /**
+     * Open the given classpath again, reusing the packages of the jars of a previous index that did not change.
+     *
+     * @param entries jars, directories or wildcards; a leading <code>~</code> is the home directory of the user
+     * @param indexFile file the index is read from and saved to if it changed, <code>null</code> for none
+     * @param previous previous index, which can then be closed; <code>null</code> if none
+     * @return opened classpath
+     * @throws IOException if an entry can not be read
+     */
+    @NonNull
+    static DependencyIndex open(@NonNull final List<String> entries, @Nullable final Path indexFile, @Nullable final DependencyIndex previous) throws IOException {
+        final Map<String, IndexedArchive> previousArchives = indexFile == null ? new HashMap<>() : load(indexFile);
+        if (previous != null) {
+            for (final IndexedArchive indexedArchive : previous.archives) {
+                if (indexedArchive.size >= 0) {
+                    // Only the packages are reused, the new index maps the jar again when needed
+                    previousArchives.put(indexedArchive.path.toString(), new IndexedArchive(indexedArchive.path, indexedArchive.size, indexedArchive.lastModified, indexedArchive.packageNames, null));
+                }
+            }
+        }
+        final DependencyIndex result = new DependencyIndex(entries);
+        try {
+            final Map<String, List<IndexedArchive>> archivesByPackage = new HashMap<>();
+            for (final Path path : expand(entries)) {
+                final IndexedArchive indexedArchive = result.index(path, previousArchives);
+                result.archives.add(indexedArchive);
+                for (final String packageName : indexedArchive.packageNames) {
+                    archivesByPackage.computeIfAbsent(packageName, k -> new ArrayList<>(1)).add(indexedArchive);
+                }
+            }
+            for (final Map.Entry<String, List<IndexedArchive>> entry : archivesByPackage.entrySet()) {
+                result.archivesByPackage.put(entry.getKey(), entry.getValue().toArray(new IndexedArchive[entry.getValue().size()]));
+            }
+            if (indexFile != null && (result.modified || previousArchives.size() != result.countJars())) {
+                result.save(indexFile);
+            }
+        } catch (final IOException e) {
+            result.close();
+            throw e;
+        }
+        return result;
+    }
+
+    @NonNull
+    private IndexedArchive index(@NonNull final Path path, @NonNull final Map<String, IndexedArchive> previousArchives) throws IOException {
+        if (Files.isDirectory(path)) {
+            // Class files change without changing the directory: never taken from the index file
+            final ClassArchive classArchive = new DirectoryClassArchive(path);
+            return new IndexedArchive(path, -1, -1, getPackageNames(classArchive), classArchive);
+        }
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        final long size = attributes.size();
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final IndexedArchive previous = previousArchives.get(path.toString());
+        if (previous != null && previous.size == size && previous.lastModified == lastModified) {
+            return previous;
+        }
+        this.modified = true;
+        final ClassArchive classArchive = ZipClassArchive.open(path);
+        return new IndexedArchive(path, size, lastModified, getPackageNames(classArchive), classArchive);
+    }
+
+    @NonNull
+    private static Set<String> getPackageNames(@NonNull final ClassArchive classArchive) {
+        final Set<String> result = new TreeSet<>();
+        for (final String className : classArchive.getClassNames()) {
+            result.add(getPackageName(className));
+        }
+        return result;
+    }
+
+    @NonNull
+    private static String getPackageName(@NonNull final String className) {
+        final int lastDot = className.lastIndexOf('.');
+        return lastDot < 0 ? "" : className.substring(0, lastDot);
+    }
+
+    private int countJars() {
+        int result = 0;
+        for (final IndexedArchive indexedArchive : this.archives) {
+            if (indexedArchive.size >= 0) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expand the classpath entries to jars and classes directories, in classpath order, without duplicates.
+     *
+     * @param entries jars, directories or wildcards
+     * @return paths to jars and classes directories
+     * @throws IOException if a directory can not be listed
+     */
+    @NonNull
+    static List<Path> expand(@NonNull final List<String> entries) throws IOException {
+        final Set<Path> result = new LinkedHashSet<>();
+        for (final String entry : entries) {
+            String pathName = entry;
+            if (pathName.equals("~") || pathName.startsWith("~/") || pathName.startsWith("~\\")) {
+                pathName = System.getProperty("user.home") + pathName.substring(1);
+            }
+            final Path path = Paths.get(pathName.endsWith(ALL_JARS) ? pathName.substring(0, pathName.length() - (pathName.endsWith(ALL_JARS_RECURSIVE) ? ALL_JARS_RECURSIVE.length() : ALL_JARS.length())) : pathName).toAbsolutePath().normalize();
+            if (pathName.endsWith(ALL_JARS_RECURSIVE)) {
+                result.addAll(findJars(path, false));
+            } else if (pathName.endsWith(ALL_JARS)) {
+                result.addAll(listJars(path));
+            } else if (Files.isDirectory(path)) {
+                result.addAll(findJars(path, true));
+            } else if (Files.isRegularFile(path)) {
+                result.add(path);
+            } else {
+                LOGGER.logp(Level.WARNING, "DependencyIndex", "expand", "Dependency not found: " + entry);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    @NonNull
+    private static List<Path> listJars(@NonNull final Path directory) throws IOException {
+        final List<Path> result = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, "*.jar")) {
+                for (final Path jar : directoryStream) {
+                    if (Files.isRegularFile(jar)) {
+                        result.add(jar);
+                    }
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @NonNull
+    private static List<Path> findJars(@NonNull final Path directory, final boolean includeClassesDirectory) throws IOException {
+        final List<Path> result = new ArrayList<>();
+        final boolean[] hasClassFiles = new boolean[1];
+        if (Files.isDirectory(directory)) {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    final String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(".jar")) {
+                        result.add(file);
+                    } else if (fileName.endsWith(".class")) {
+                        hasClassFiles[0] = true;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        Collections.sort(result);
+        if (includeClassesDirectory && hasClassFiles[0]) {
+            result.add(0, directory);
+        }
+        return result;
+    }
+
+    @NonNull
+    private static Map<String, IndexedArchive> load(@NonNull final Path indexFile) {
+        final Map<String, IndexedArchive> result = new HashMap<>();
+        if (!Files.exists(indexFile)) {
+            return result;
+        }
+        try {
+            final List<String> lines = Files.readAllLines(indexFile, Charset.forName("UTF-8"));
+            if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+                throw new IOException("Not a dependency index file: " + indexFile);
+            }
+            for (final String line : lines.subList(1, lines.size())) {
+                final String[] columns = line.split(String.valueOf(SEPARATOR), -1);
+                if (columns.length < 3) {
+                    throw new IOException("Invalid dependency index line: " + line);
+                }
+                final Set<String> packageNames = new TreeSet<>();
+                for (int i = 3; i < columns.length; i++) {
+                    packageNames.add(columns[i]);
+                }
+                result.put(columns[0], new IndexedArchive(Paths.get(columns[0]), Long.parseLong(columns[1]), Long.parseLong(columns[2]), packageNames, null));
+            }
+        } catch (final IOException | NumberFormatException e) {
+            // Index every jar again
+            LOGGER.logp(Level.SEVERE, "DependencyIndex", "load", e.getMessage(), e);
+            result.clear();
+        }
+        return result;
+    }
+
+    /**
+     * Save the packages of every jar to the given file, replacing it atomically.
+     * Classes directories are not saved, they are listed again each time.
+     *
+     * @param indexFile index file
+     * @throws IOException if the file can not be written
+     */
+    public void save(@NonNull final Path indexFile) throws IOException {
+        final List<String> lines = new ArrayList<>(this.archives.size() + 1);
+        lines.add(HEADER);
+        final StringBuilder line = new StringBuilder();
+        for (final IndexedArchive indexedArchive : this.archives) {
+            if (indexedArchive.size >= 0) {
+                line.setLength(0);
+                line.append(indexedArchive.path).append(SEPARATOR).append(indexedArchive.size).append(SEPARATOR).append(indexedArchive.lastModified);
+                for (final String packageName : indexedArchive.packageNames) {
+                    line.append(SEPARATOR).append(packageName);
+                }
+                lines.add(line.toString());
+            }
+        }
+        final Path parent = indexFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temporaryFile, lines, Charset.forName("UTF-8"));
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return classpath entries, as given when opened
+     */
+    @NonNull
+    public List<String> getEntries() {
+        return Collections.unmodifiableList(this.entries);
+    }
+
+    /**
+     * Check whether the classpath changed since this index was opened: jars added, removed or modified.
+     * Classes directories are not checked class by class, an index containing any is never up to date.
+     *
+     * @return <code>true</code> if this index can still be used
+     * @throws IOException if a directory can not be listed
+     */
+    public boolean isUpToDate() throws IOException {
+        if (!expand(this.entries).equals(getPaths())) {
+            return false;
+        }
+        for (final IndexedArchive indexedArchive : this.archives) {
+            if (indexedArchive.size < 0) {
+                return false;
+            }
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(indexedArchive.path, BasicFileAttributes.class);
+            } catch (final IOException e) {
+                return false;
+            }
+            if (attributes.size() != indexedArchive.size || attributes.lastModifiedTime().toMillis() != indexedArchive.lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return paths of the indexed jars and classes directories, in classpath order
+     */
+    @NonNull
+    public List<Path> getPaths() {
+        final List<Path> result = new ArrayList<>(this.archives.size());
+        for (final IndexedArchive indexedArchive : this.archives) {
+            result.add(indexedArchive.path);
+        }
+        return result;
+    }
+
+    @Override
+    @Nullable
+    public ByteBuffer readClassFile(@NonNull final String className) throws IOException {
+        final IndexedArchive[] candidates = this.archivesByPackage.get(getPackageName(className));
+        if (candidates != null) {
+            for (final IndexedArchive candidate : candidates) {
+                final ByteBuffer result = candidate.getClassArchive().readClassFile(className);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        for (final IndexedArchive indexedArchive : this.archives) {
+            indexedArchive.close();
+        }
+    }
+
+    /**
+     * Jar or classes directory with its packages, opened on first use.
+     */
+    private static final class IndexedArchive {
+
+        @NonNull
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+        @NonNull
+        private final Set<String> packageNames;
+        @Nullable
+        private volatile ClassArchive classArchive;
+
+        IndexedArchive(@NonNull final Path path, final long size, final long lastModified, @NonNull final Set<String> packageNames, @Nullable final ClassArchive classArchive) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.packageNames = packageNames;
+            this.classArchive = classArchive;
+        }
+
+        @NonNull
+        ClassArchive getClassArchive() throws IOException {
+            ClassArchive result = this.classArchive;
+            if (result == null) {
+                synchronized (this) {
+                    result = this.classArchive;
+                    if (result == null) {
+                        result = ZipClassArchive.open(this.path);
+                        this.classArchive = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        synchronized void close() {
+            final ClassArchive result = this.classArchive;
+            if (result != null) {
+                try {
+                    result.close();
+                } catch (final IOException e) {
+                    LOGGER.logp(Level.SEVERE, "DependencyIndex", "close", e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Classes directory, such as <code>target/classes</code>.
+ * Jars found in the directory are its nested archives.
+ */
+public final class DirectoryClassArchive implements ClassArchive {
+
+    @NonNull
+    private final Path directory;
+    @NonNull
+    private final Map<String, Path> classFiles = new LinkedHashMap<>();
+    @NonNull
+    private final List<Path> jars = new ArrayList<>();
+
+    /**
+     * Constructor, list the class files of the directory.
+     *
+     * @param directory classes directory
+     * @throws IOException if the directory can not be listed
+     */
+    public DirectoryClassArchive(@NonNull final Path directory) throws IOException {
+        this.directory = directory;
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                final String path = directory.relativize(file).toString().replace('\\', '/');
+                final String className = ClassNames.fromPath(path);
+                if (className != null) {
+                    DirectoryClassArchive.this.classFiles.put(className, file);
+                } else if (path.endsWith(".jar")) {
+                    DirectoryClassArchive.this.jars.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    @NonNull
+    public String getLocation() {
+        return this.directory.toString();
+    }
+
+    @Override
+    @NonNull
+    public List<String> getClassNames() {
+        return new ArrayList<>(this.classFiles.keySet());
+    }
+
+    @Override
+    public long getClassFileSize(@NonNull final String className) throws IOException {
+        final Path classFile = this.classFiles.get(className);
+        return classFile == null ? -1 : Files.size(classFile);
+    }
+
+    @Override
+    public long getLastModified(@NonNull final String className) throws IOException {
+        final Path classFile = this.classFiles.get(className);
+        return classFile == null ? -1 : Files.getLastModifiedTime(classFile).toMillis();
+    }
+
+    @Override
+    @Nullable
+    public ByteBuffer readClassFile(@NonNull final String className) throws IOException {
+        final Path classFile = this.classFiles.get(className);
+        if (classFile == null) {
+            return null;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(classFile)).asReadOnlyBuffer();
+    }
+
+    @Override
+    @NonNull
+    public List<ClassArchive> getNestedArchives() throws IOException {
+        if (this.jars.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<ClassArchive> result = new ArrayList<>(this.jars.size());
+        for (final Path jar : this.jars) {
+            result.add(ZipClassArchive.open(jar));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        this.classFiles.clear();
+    }
+}
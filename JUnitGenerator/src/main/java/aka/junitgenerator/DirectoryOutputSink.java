@@ -0,0 +1,65 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * {@link OutputSink} writing every file under a directory.
+ * Each directory is created once per sink, and unchanged files are not written again, so their modification time is kept.
+ */
+public final class DirectoryOutputSink implements OutputSink {
+
+    @NonNull
+    private final Path directory;
+    @NonNull
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    // One encoder and buffer per writing thread
+    @NonNull
+    private final ThreadLocal<ContentWriter> contentWriters = ThreadLocal.withInitial(ContentWriter::new);
+
+    /**
+     * Constructor.
+     *
+     * @param directory destination directory, created if needed
+     */
+    public DirectoryOutputSink(@NonNull final Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    @NonNull
+    public String getLocation() {
+        return this.directory.toString();
+    }
+
+    @Override
+    public boolean write(@NonNull final String relativePath, @NonNull final CharSequence content) throws IOException {
+        final Path file = this.directory.resolve(relativePath);
+        final Path parent = file.getParent();
+        if (parent != null && !this.createdDirectories.contains(parent)) {
+            Files.createDirectories(parent);
+            this.createdDirectories.add(parent);
+        }
+        return this.contentWriters.get().write(file, content);
+    }
+
+    @Override
+    public boolean exists(@NonNull final String relativePath) {
+        return Files.exists(this.directory.resolve(relativePath));
+    }
+
+    @Override
+    public void delete(@NonNull final String relativePath) throws IOException {
+        Files.deleteIfExists(this.directory.resolve(relativePath));
+    }
+
+    @Override
+    public void close() {
+        // Every file is already written
+    }
+}
@@ -0,0 +1,393 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Fingerprint of the class file of every generated class, with the files generated for it.
+ * Used to skip unchanged classes and to delete the files of removed classes.
+ * The header records a digest of the settings of the generator: the files generated with other settings are generated again.
+ * Instances can be updated by several threads.
+ */
+public final class FingerprintManifest {
+
+    private static final String HEADER = "# JunitTestGenerator manifest v1";
+    private static final String SETTINGS_PREFIX = "# settings ";
+    // Fingerprint of the entries kept from a manifest with other settings: never equal to the fingerprint of a class file
+    private static final String STALE_FINGERPRINT = "-";
+    // Suffix of the fingerprint of the entries not checked against the class file by the run which wrote the manifest
+    private static final String UNCHECKED_SUFFIX = "?";
+    private static final char SEPARATOR = '\t';
+    private static final char[] HEXADECIMAL = "0123456789abcdef".toCharArray();
+
+    @Nullable
+    private final String settings;
+    @NonNull
+    private final ConcurrentMap<String, ManifestEntry> entryByClassName = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of a manifest without settings, written by a previous version or by hand.
+     */
+    public FingerprintManifest() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param settings digest of the settings the files are generated with, <code>null</code> if unknown
+     */
+    public FingerprintManifest(@Nullable final String settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Load the manifest from the given file.
+     *
+     * @param manifestFile manifest file
+     * @return manifest read, empty if the file does not exist
+     * @throws IOException if the file can not be read or is not a manifest
+     */
+    @NonNull
+    public static FingerprintManifest load(@NonNull final Path manifestFile) throws IOException {
+        if (!Files.exists(manifestFile)) {
+            return new FingerprintManifest();
+        }
+        final List<String> lines = Files.readAllLines(manifestFile, Charset.forName("UTF-8"));
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+            throw new IOException("Not a manifest file: " + manifestFile);
+        }
+        final boolean hasSettings = lines.size() > 1 && lines.get(1).startsWith(SETTINGS_PREFIX);
+        final FingerprintManifest result = new FingerprintManifest(hasSettings ? lines.get(1).substring(SETTINGS_PREFIX.length()) : null);
+        for (final String line : lines.subList(hasSettings ? 2 : 1, lines.size())) {
+            final String[] columns = line.split(String.valueOf(SEPARATOR));
+            if (columns.length < 2) {
+                throw new IOException("Invalid manifest line: " + line);
+            }
+            final boolean checked = !columns[1].endsWith(UNCHECKED_SUFFIX);
+            final String fingerprint = checked ? columns[1] : columns[1].substring(0, columns[1].length() - UNCHECKED_SUFFIX.length());
+            result.entryByClassName.put(columns[0], new ManifestEntry(fingerprint, Arrays.asList(Arrays.copyOfRange(columns, 2, columns.length)), checked));
+        }
+        return result;
+    }
+
+    /**
+     * Merge the manifests written by the shards of a run into a single one, for instance to generate the next runs on a single machine.
+     *
+     * @param args merged manifest file, then the manifest files of the shards
+     * @throws IOException if a manifest can not be read or written
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: FingerprintManifest <merged manifest> <shard manifest>...");
+            System.exit(2);
+        }
+        final List<FingerprintManifest> manifests = new ArrayList<>(args.length - 1);
+        for (int i = 1; i < args.length; i++) {
+            manifests.add(load(Paths.get(args[i])));
+        }
+        merge(manifests).save(Paths.get(args[0]));
+    }
+
+    /**
+     * Merge manifests, such as the manifests of the shards of a run.
+     *
+     * @param manifests manifests to merge
+     * @return new manifest with the entries of all the given ones
+     * @throws IllegalArgumentException if a class is recorded with different fingerprints, by runs on different inputs, or if the manifests have different settings
+     */
+    @NonNull
+    public static FingerprintManifest merge(@NonNull final Collection<FingerprintManifest> manifests) {
+        final FingerprintManifest result = new FingerprintManifest(manifests.isEmpty() ? null : manifests.iterator().next().settings);
+        for (final FingerprintManifest manifest : manifests) {
+            if (!Objects.equals(result.settings, manifest.settings)) {
+                throw new IllegalArgumentException("Manifests written with different settings");
+            }
+            for (final Entry<String, ManifestEntry> entry : manifest.entryByClassName.entrySet()) {
+                final String className = entry.getKey();
+                final ManifestEntry manifestEntry = entry.getValue();
+                final ManifestEntry previous = result.entryByClassName.get(className);
+                if (previous == null) {
+                    result.entryByClassName.put(className, manifestEntry);
+                } else if (!previous.getFingerprint().equals(manifestEntry.getFingerprint())) {
+                    throw new IllegalArgumentException("Class " + className + " recorded with different fingerprints");
+                } else {
+                    final List<String> outputs = new ArrayList<>(previous.getOutputs());
+                    for (final String output : manifestEntry.getOutputs()) {
+                        if (!outputs.contains(output)) {
+                            outputs.add(output);
+                        }
+                    }
+                    Collections.sort(outputs);
+                    // Checked by one of the shards
+                    result.entryByClassName.put(className, new ManifestEntry(previous.getFingerprint(), outputs, previous.isChecked() || manifestEntry.isChecked()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Save the manifest to the given file, replacing it atomically.
+     *
+     * @param manifestFile manifest file
+     * @throws IOException if the file can not be written
+     */
+    public void save(@NonNull final Path manifestFile) throws IOException {
+        final List<String> lines = new ArrayList<>(this.entryByClassName.size() + 1);
+        lines.add(HEADER);
+        final String currentSettings = this.settings;
+        if (currentSettings != null) {
+            lines.add(SETTINGS_PREFIX + currentSettings);
+        }
+        final StringBuilder line = new StringBuilder();
+        for (final Entry<String, ManifestEntry> entry : new TreeMap<>(this.entryByClassName).entrySet()) {
+            line.setLength(0);
+            line.append(entry.getKey()).append(SEPARATOR).append(entry.getValue().getFingerprint());
+            if (!entry.getValue().isChecked()) {
+                line.append(UNCHECKED_SUFFIX);
+            }
+            for (final String output : entry.getValue().getOutputs()) {
+                line.append(SEPARATOR).append(output);
+            }
+            lines.add(line.toString());
+        }
+        final Path parent = manifestFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporaryFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        Files.write(temporaryFile, lines, Charset.forName("UTF-8"));
+        Files.move(temporaryFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Compute the fingerprint of a class file.
+     *
+     * @param classFile bytes of the class file, between position and limit; the position is not modified
+     * @return fingerprint, as an hexadecimal string
+     */
+    @NonNull
+    public static String fingerprint(@NonNull final ByteBuffer classFile) {
+        try {
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(classFile.duplicate());
+            final byte[] digest = messageDigest.digest();
+            final char[] result = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                result[2 * i] = HEXADECIMAL[(digest[i] >> 4) & 0xF];
+                result[2 * i + 1] = HEXADECIMAL[digest[i] & 0xF];
+            }
+            return new String(result);
+        } catch (final NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return digest of the settings the files are generated with, <code>null</code> if unknown
+     */
+    @Nullable
+    public String getSettings() {
+        return this.settings;
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return entry of the class, <code>null</code> if none
+     */
+    @Nullable
+    public ManifestEntry get(@NonNull final String className) {
+        return this.entryByClassName.get(className);
+    }
+
+    /**
+     * Set the entry of a class.
+     *
+     * @param className binary name of the class
+     * @param manifestEntry entry of the class
+     */
+    public void put(@NonNull final String className, @NonNull final ManifestEntry manifestEntry) {
+        this.entryByClassName.put(className, manifestEntry);
+    }
+
+    /**
+     * Record a class, with no generated file yet.
+     *
+     * @param className binary name of the class
+     * @param fingerprint fingerprint of its class file
+     */
+    public void addClass(@NonNull final String className, @NonNull final String fingerprint) {
+        this.entryByClassName.merge(className, new ManifestEntry(fingerprint, Collections.emptyList()), (previous, added) -> previous.getFingerprint().equals(fingerprint) ? previous : added);
+    }
+
+    /**
+     * Record a file generated for a class.
+     *
+     * @param className binary name of the class
+     * @param fingerprint fingerprint of its class file
+     * @param output path of the generated file, relative to the destination directory
+     */
+    public void addOutput(@NonNull final String className, @NonNull final String fingerprint, @NonNull final String output) {
+        this.entryByClassName.merge(className, new ManifestEntry(fingerprint, Collections.singletonList(output)), (previous, added) -> {
+            if (!previous.getFingerprint().equals(fingerprint)) {
+                return added;
+            }
+            final List<String> outputs = new ArrayList<>(previous.getOutputs());
+            if (!outputs.contains(output)) {
+                outputs.add(output);
+                Collections.sort(outputs);
+            }
+            return new ManifestEntry(fingerprint, outputs);
+        });
+    }
+
+    /**
+     * Complete this manifest, built by the current run, with the previous one and find the files which are no longer generated.
+     * Classes still present but which failed this time keep their previous entry, see {@link #mergePrevious(FingerprintManifest, Predicate)}.
+     *
+     * @param previous manifest of the previous run
+     * @param discoveredClassNames binary names of all the classes discovered by the current run
+     * @return paths of the files generated by the previous run and no longer generated, relative to the destination directory
+     */
+    @NonNull
+    public List<String> mergePrevious(@NonNull final FingerprintManifest previous, @NonNull final Collection<String> discoveredClassNames) {
+        final Set<String> discovered = discoveredClassNames instanceof Set ? (Set<String>) discoveredClassNames : new HashSet<>(discoveredClassNames);
+        return mergePrevious(previous, discovered::contains);
+    }
+
+    /**
+     * Complete this manifest, built by the current run, with the previous one and find the files which are no longer generated.
+     * Classes still present but which failed or were not selected this time keep their previous entry, marked as not checked:
+     * their class file may have changed since. If the previous manifest has other settings,
+     * the entry keeps its files but not its fingerprint, so that the class is generated again by the next run.
+     *
+     * @param previous manifest of the previous run
+     * @param discovered filter of the classes discovered by the current run, so that they do not need to be listed
+     * @return paths of the files generated by the previous run and no longer generated, relative to the destination directory
+     */
+    @NonNull
+    public List<String> mergePrevious(@NonNull final FingerprintManifest previous, @NonNull final Predicate<String> discovered) {
+        final boolean sameSettings = Objects.equals(this.settings, previous.settings);
+        for (final Entry<String, ManifestEntry> entry : previous.entryByClassName.entrySet()) {
+            if (discovered.test(entry.getKey())) {
+                this.entryByClassName.putIfAbsent(entry.getKey(), new ManifestEntry(sameSettings ? entry.getValue().getFingerprint() : STALE_FINGERPRINT, entry.getValue().getOutputs(), false));
+            }
+        }
+
+        final Set<String> currentOutputs = new HashSet<>();
+        for (final ManifestEntry manifestEntry : this.entryByClassName.values()) {
+            currentOutputs.addAll(manifestEntry.getOutputs());
+        }
+        final Set<String> result = new HashSet<>();
+        for (final ManifestEntry manifestEntry : previous.entryByClassName.values()) {
+            for (final String output : manifestEntry.getOutputs()) {
+                if (!currentOutputs.contains(output)) {
+                    result.add(output);
+                }
+            }
+        }
+        final List<String> sortedResult = new ArrayList<>(result);
+        Collections.sort(sortedResult);
+        return sortedResult;
+    }
+
+    /**
+     * @return number of recorded classes
+     */
+    public int size() {
+        return this.entryByClassName.size();
+    }
+
+    /**
+     * @return entries by binary class name, sorted by class name
+     */
+    @NonNull
+    public Map<String, ManifestEntry> getEntries() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.entryByClassName));
+    }
+
+    /**
+     * Fingerprint of a class and files generated for it.
+     */
+    public static final class ManifestEntry {
+
+        @NonNull
+        private final String fingerprint;
+        @NonNull
+        private final List<String> outputs;
+        private final boolean checked;
+
+        /**
+         * Constructor of an entry checked against the class file.
+         *
+         * @param fingerprint fingerprint of the class file
+         * @param outputs paths of the generated files, relative to the destination directory
+         */
+        public ManifestEntry(@NonNull final String fingerprint, @NonNull final List<String> outputs) {
+            this(fingerprint, outputs, true);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param fingerprint fingerprint of the class file
+         * @param outputs paths of the generated files, relative to the destination directory
+         * @param checked <code>true</code> if the fingerprint was checked against the class file by the current run
+         */
+        public ManifestEntry(@NonNull final String fingerprint, @NonNull final List<String> outputs, final boolean checked) {
+            this.fingerprint = fingerprint;
+            this.outputs = Collections.unmodifiableList(outputs);
+            this.checked = checked;
+        }
+
+        /**
+         * @return fingerprint of the class file
+         */
+        @NonNull
+        public String getFingerprint() {
+            return this.fingerprint;
+        }
+
+        /**
+         * @return paths of the generated files, relative to the destination directory
+         */
+        @NonNull
+        public List<String> getOutputs() {
+            return this.outputs;
+        }
+
+        /**
+         * @return <code>true</code> if the run which recorded the entry checked the fingerprint against the class file,
+         *         <code>false</code> if the entry was kept from an earlier run and the class file may have changed since
+         */
+        public boolean isChecked() {
+            return this.checked;
+        }
+    }
+}
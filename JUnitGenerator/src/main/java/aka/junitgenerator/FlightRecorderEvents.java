@@ -0,0 +1,61 @@
+package aka.junitgenerator;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Emit the flight recorder events of the generator.
+ * This version, for Java 8, emits nothing: <code>jdk.jfr</code> does not exist there.
+ * Java 11 and later load the version of <code>src/main/java11</code> from <code>META-INF/versions/11</code> of the multi-release jar,
+ * which emits the events when the JVM has a flight recorder.
+ */
+final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+        // Utility class
+    }
+
+    /**
+     * Start the event of a generation run.
+     *
+     * @return event to give to {@link #endGeneration(Object, String, String, GenerationMetrics)}, <code>null</code> if there is no flight recorder
+     */
+    @Nullable
+    static Object beginGeneration() {
+        return null;
+    }
+
+    /**
+     * End and commit the event of a generation run.
+     *
+     * @param event event returned by {@link #beginGeneration()}
+     * @param inputs inputs of the run
+     * @param destination destination directory
+     * @param generationMetrics measures of the run
+     */
+    static void endGeneration(@Nullable final Object event, @NonNull final String inputs, @NonNull final String destination, @NonNull final GenerationMetrics generationMetrics) {
+        // No flight recorder
+    }
+
+    /**
+     * Start the event of the writing of a test file.
+     *
+     * @return event to give to {@link #endCreateFile(Object, String, String, long)}, <code>null</code> if there is no flight recorder or the event is disabled
+     */
+    @Nullable
+    static Object beginCreateFile() {
+        return null;
+    }
+
+    /**
+     * End and commit the event of the writing of a test file.
+     *
+     * @param event event returned by {@link #beginCreateFile()}
+     * @param className binary name of the tested class
+     * @param path path of the file, relative to the destination directory
+     * @param length length of the content, in chars
+     */
+    static void endCreateFile(@Nullable final Object event, @NonNull final String className, @NonNull final String path, final long length) {
+        // No flight recorder
+    }
+}
@@ -0,0 +1,244 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jdt.annotation.NonNull;
+
+import aka.junitgenerator.PerformanceBaselines.Baseline;
+
+/**
+ * Measure the performance baselines of classes in a separate JVM, so that the code of the inputs can neither exit nor
+ * change the state of the JVM of the generator, and is killed when it takes too long.
+ * The child JVM runs {@link BaselineMeasurer} on the classes of a request file and saves the baselines after each class.
+ * When it dies or is killed after measuring some classes, the class it was measuring gets no baseline and the next ones
+ * are measured by a new child JVM. When it measures none, the failure is not blamed on a class: the measure fails.
+ */
+final class ForkedBaselineMeasurer {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.ForkedBaselineMeasurer");
+
+    // Time to start the child JVM and open the archives, on top of the timeout of every class
+    private static final long START_MILLIS = 60000;
+
+    @NonNull
+    private final List<String> inputs;
+    @NonNull
+    private final List<String> dependencies;
+    private final boolean includeNestedArchives;
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param inputs absolute paths to the jars, wars or classes directories of the measured classes
+     * @param dependencies jars, directories or wildcards needed to load them
+     * @param includeNestedArchives <code>true</code> if the classes of nested archives are measured too
+     * @param warmupIterations maximum number of calls before measuring a member
+     * @param measuredIterations maximum number of measured calls of a member
+     * @param timeoutMillis time after which the measure of a class is abandoned, in milliseconds
+     */
+    ForkedBaselineMeasurer(@NonNull final List<String> inputs, @NonNull final List<String> dependencies, final boolean includeNestedArchives, final int warmupIterations, final int measuredIterations, final long timeoutMillis) {
+        this.inputs = inputs;
+        this.dependencies = dependencies;
+        this.includeNestedArchives = includeNestedArchives;
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Measure the given classes and put their baselines, empty for the classes which stopped their JVM.
+     * Nothing is put if the measure fails.
+     *
+     * @param classNames binary names of the classes
+     * @param performanceBaselines baselines to update
+     * @throws IOException if the child JVM can not be started, or stops before measuring any class
+     * @throws InterruptedException if interrupted while waiting for the child JVM, which is then killed
+     */
+    void measure(@NonNull final List<String> classNames, @NonNull final PerformanceBaselines performanceBaselines) throws IOException, InterruptedException {
+        final Map<String, Map<String, Baseline>> measured = new LinkedHashMap<>();
+        List<String> remainingClassNames = classNames;
+        while (!remainingClassNames.isEmpty()) {
+            final PerformanceBaselines forkBaselines = fork(remainingClassNames);
+            final List<String> unmeasuredClassNames = new ArrayList<>();
+            for (final String className : remainingClassNames) {
+                final Map<String, Baseline> baselines = forkBaselines.get(className);
+                if (baselines == null) {
+                    unmeasuredClassNames.add(className);
+                } else {
+                    measured.put(className, baselines);
+                }
+            }
+            if (unmeasuredClassNames.size() == remainingClassNames.size()) {
+                // Nothing measured, the JVM or the archives are at fault rather than the first class
+                throw new IOException("Measuring JVM stopped before measuring any class");
+            }
+            if (!unmeasuredClassNames.isEmpty()) {
+                // Classes are measured in order and an earlier one was measured: the first one without baseline killed the child JVM or made it time out
+                final String className = unmeasuredClassNames.remove(0);
+                LOGGER.logp(Level.WARNING, "ForkedBaselineMeasurer", "measure", "Measure of " + className + " stopped its JVM");
+                measured.put(className, Collections.emptyMap());
+            }
+            remainingClassNames = unmeasuredClassNames;
+        }
+        for (final Entry<String, Map<String, Baseline>> entry : measured.entrySet()) {
+            performanceBaselines.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Measure the given classes in a child JVM.
+     *
+     * @return baselines of the classes measured before the child JVM ended or was killed
+     * @throws IOException if the child JVM can not be started, or stops before writing the baseline file
+     */
+    @NonNull
+    private PerformanceBaselines fork(@NonNull final List<String> classNames) throws IOException, InterruptedException {
+        final Path directory = Files.createTempDirectory("junitgenerator-baselines");
+        try {
+            final Path requestFile = directory.resolve("request.txt");
+            final Path baselineFile = directory.resolve("baselines.txt");
+            final List<String> lines = new ArrayList<>();
+            lines.add("warmup " + this.warmupIterations);
+            lines.add("iterations " + this.measuredIterations);
+            lines.add("timeout " + this.timeoutMillis);
+            lines.add("nested " + this.includeNestedArchives);
+            for (final String input : this.inputs) {
+                lines.add("input " + input);
+            }
+            for (final String dependency : this.dependencies) {
+                lines.add("dependency " + dependency);
+            }
+            for (final String className : classNames) {
+                lines.add("class " + className);
+            }
+            Files.write(requestFile, lines, Charset.forName("UTF-8"));
+
+            // Whatever the measured code prints goes to a file, not to the console of the build
+            final ProcessBuilder processBuilder = new ProcessBuilder(getJavaExecutable(), "-cp", getGeneratorClasspath(), ForkedBaselineMeasurer.class.getName(), requestFile.toString(), baselineFile.toString());
+            processBuilder.redirectErrorStream(true).redirectOutput(directory.resolve("output.log").toFile());
+            final Process process = processBuilder.start();
+            try {
+                if (!process.waitFor(START_MILLIS + this.timeoutMillis * classNames.size(), TimeUnit.MILLISECONDS)) {
+                    LOGGER.logp(Level.WARNING, "ForkedBaselineMeasurer", "fork", "Measuring JVM killed after its timeout");
+                } else if (process.exitValue() != 0) {
+                    LOGGER.logp(Level.WARNING, "ForkedBaselineMeasurer", "fork", "Measuring JVM exited with " + process.exitValue());
+                }
+            } finally {
+                process.destroyForcibly();
+                process.waitFor();
+            }
+            // Written empty once the request is read: missing, the child JVM could not start or read the request
+            if (!Files.exists(baselineFile)) {
+                throw new IOException("Measuring JVM stopped before reading its request");
+            }
+            return PerformanceBaselines.load(baselineFile);
+        } finally {
+            FileUtils.deleteQuietly(directory.toFile());
+        }
+    }
+
+    @NonNull
+    private static String getJavaExecutable() {
+        final File bin = new File(System.getProperty("java.home"), "bin");
+        final File windowsExecutable = new File(bin, "java.exe");
+        return (windowsExecutable.isFile() ? windowsExecutable : new File(bin, "java")).getAbsolutePath();
+    }
+
+    @NonNull
+    private static String getGeneratorClasspath() throws IOException {
+        try {
+            return new File(ForkedBaselineMeasurer.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (final URISyntaxException | SecurityException | NullPointerException e) {
+            throw new IOException("Can not locate the classes of the generator", e);
+        }
+    }
+
+    /**
+     * Entry point of the child JVM: measure the classes of a request file.
+     *
+     * @param args request file, then baseline file, saved after each class
+     * @throws IOException if the request can not be read, the archives opened or the baselines saved
+     * @throws InterruptedException if interrupted while measuring
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        int warmupIterations = 0;
+        int measuredIterations = 0;
+        long timeoutMillis = 0;
+        boolean includeNestedArchives = false;
+        final List<String> inputs = new ArrayList<>();
+        final List<String> dependencies = new ArrayList<>();
+        final List<String> classNames = new ArrayList<>();
+        for (final String line : Files.readAllLines(Paths.get(args[0]), Charset.forName("UTF-8"))) {
+            final int space = line.indexOf(' ');
+            final String value = line.substring(space + 1);
+            switch (line.substring(0, space)) {
+                case "warmup":
+                    warmupIterations = Integer.parseInt(value);
+                    break;
+                case "iterations":
+                    measuredIterations = Integer.parseInt(value);
+                    break;
+                case "timeout":
+                    timeoutMillis = Long.parseLong(value);
+                    break;
+                case "nested":
+                    includeNestedArchives = Boolean.parseBoolean(value);
+                    break;
+                case "input":
+                    inputs.add(value);
+                    break;
+                case "dependency":
+                    dependencies.add(value);
+                    break;
+                case "class":
+                    classNames.add(value);
+                    break;
+                default:
+                    throw new IOException("Invalid request line: " + line);
+            }
+        }
+        final Path baselineFile = Paths.get(args[1]);
+        final PerformanceBaselines performanceBaselines = new PerformanceBaselines();
+        performanceBaselines.save(baselineFile);
+        final ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        if (systemClassLoader == null) {
+            throw new IllegalStateException("No system class loader");
+        }
+        // Platform classes only: the generator is not visible to the measured classes
+        final ClassLoader platformClassLoader = systemClassLoader.getParent() == null ? systemClassLoader : systemClassLoader.getParent();
+        try (InputArchives inputArchives = InputArchives.open(inputs, includeNestedArchives); DependencyIndex dependencyIndex = dependencies.isEmpty() ? null : DependencyIndex.open(dependencies, null)) {
+            final ClassLoader dependencyClassLoader = dependencyIndex == null ? platformClassLoader : new ArchiveClassLoader(dependencyIndex, platformClassLoader);
+            final BaselineMeasurer baselineMeasurer = new BaselineMeasurer(new ArchiveClassLoader(inputArchives, dependencyClassLoader), warmupIterations, measuredIterations, timeoutMillis);
+            final Set<String> measuredClassNames = new HashSet<>();
+            for (final String className : classNames) {
+                if (measuredClassNames.add(className)) {
+                    performanceBaselines.put(className, baselineMeasurer.measure(className));
+                    performanceBaselines.save(baselineFile);
+                }
+            }
+        }
+        // Threads of abandoned measures may still be running
+        System.exit(0);
+    }
+}
@@ -0,0 +1,41 @@
+package aka.junitgenerator;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Generated source file, not yet written.
+ */
+public final class GeneratedFile {
+
+    @NonNull
+    private final String relativePath;
+    @NonNull
+    private final String content;
+
+    /**
+     * Constructor.
+     *
+     * @param relativePath path of the file, relative to the destination directory, '/' separated
+     * @param content content of the file
+     */
+    public GeneratedFile(@NonNull final String relativePath, @NonNull final String content) {
+        this.relativePath = relativePath;
+        this.content = content;
+    }
+
+    /**
+     * @return path of the file, relative to the destination directory
+     */
+    @NonNull
+    public String getRelativePath() {
+        return this.relativePath;
+    }
+
+    /**
+     * @return content of the file
+     */
+    @NonNull
+    public String getContent() {
+        return this.content;
+    }
+}
@@ -0,0 +1,281 @@
+package aka.junitgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * State kept warm between generation runs of the same JVM.
+ * <ul>
+ * <li>Class models, each valid as long as its class file has the same length and checksum,
+ * evicted least recently used first when their estimated size goes over the memory budget.</li>
+ * <li>The dependency index, opened again only when a dependency is added, removed or modified.</li>
+ * <li>The input archive files, each opened again only when its modification time or its size changed.
+ * Classes directories are scanned by every run: any of their files may have changed.</li>
+ * </ul>
+ * Instances can be shared between threads.
+ */
+public final class GenerationCache implements Closeable {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.GenerationCache");
+
+    // Rough sizes of the objects of a class model, with their strings
+    private static final int CLASS_MODEL_SIZE = 256;
+    private static final int METHOD_MODEL_SIZE = 128;
+    private static final int TYPE_MODEL_SIZE = 96;
+
+    private final long memoryBudget;
+    @NonNull
+    private final LinkedHashMap<String, CachedClassModel> classModels = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedMemory;
+    private long hits;
+    private long misses;
+    @Nullable
+    private DependencyIndex dependencyIndex;
+    @Nullable
+    private Path dependencyIndexFile;
+    @NonNull
+    private final Map<Path, CachedClassArchive> classArchives = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param memoryBudget maximum estimated size of the cached class models, in bytes
+     */
+    public GenerationCache(final long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Get the cached model of a class.
+     *
+     * @param className binary name of the class
+     * @param classModelSource how the model was built
+     * @param classFile current class file of the class, between position and limit; the position is not modified
+     * @return cached model, <code>null</code> if none or if it was built from another class file
+     */
+    @Nullable
+    public ClassModel getClassModel(@NonNull final String className, @NonNull final ClassModelSource classModelSource, @NonNull final ByteBuffer classFile) {
+        final long checksum = checksum(classFile);
+        synchronized (this.classModels) {
+            final CachedClassModel cachedClassModel = this.classModels.get(className);
+            if (cachedClassModel != null && cachedClassModel.classModelSource == classModelSource && cachedClassModel.length == classFile.remaining() && cachedClassModel.checksum == checksum) {
+                this.hits++;
+                return cachedClassModel.classModel;
+            }
+            this.misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Cache the model of a class.
+     *
+     * @param className binary name of the class
+     * @param classModelSource how the model was built
+     * @param classFile class file the model was built from, between position and limit; the position is not modified
+     * @param classModel model of the class
+     */
+    public void putClassModel(@NonNull final String className, @NonNull final ClassModelSource classModelSource, @NonNull final ByteBuffer classFile, @NonNull final ClassModel classModel) {
+        final CachedClassModel cachedClassModel = new CachedClassModel(classModelSource, classFile.remaining(), checksum(classFile), classModel);
+        synchronized (this.classModels) {
+            final CachedClassModel previous = this.classModels.put(className, cachedClassModel);
+            if (previous != null) {
+                this.usedMemory -= previous.estimatedSize;
+            }
+            this.usedMemory += cachedClassModel.estimatedSize;
+            final Iterator<CachedClassModel> iterator = this.classModels.values().iterator();
+            while (this.usedMemory > this.memoryBudget && iterator.hasNext()) {
+                this.usedMemory -= iterator.next().estimatedSize;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Get the dependency index of the given classpath, opening it again if the classpath changed.
+     *
+     * @param entries jars, directories or wildcards
+     * @param indexFile file the index is saved to, <code>null</code> for none
+     * @return opened index, closed by this cache
+     * @throws IOException if an entry can not be read
+     */
+    @NonNull
+    public synchronized DependencyIndex getDependencyIndex(@NonNull final List<String> entries, @Nullable final Path indexFile) throws IOException {
+        final DependencyIndex previous = this.dependencyIndex;
+        if (previous != null && previous.getEntries().equals(entries) && (indexFile == null ? this.dependencyIndexFile == null : indexFile.equals(this.dependencyIndexFile)) && previous.isUpToDate()) {
+            return previous;
+        }
+        final DependencyIndex result = DependencyIndex.open(entries, indexFile, previous);
+        if (previous != null) {
+            previous.close();
+        }
+        this.dependencyIndex = result;
+        this.dependencyIndexFile = indexFile;
+        return result;
+    }
+
+    /**
+     * Get the opened archive file of the given path, opening it again if it was modified.
+     *
+     * @param path path to a jar or a war
+     * @return opened archive, closed by this cache; <code>null</code> if the path is not a regular file, such as a classes directory
+     * @throws IOException if the archive can not be opened
+     */
+    @Nullable
+    public synchronized ClassArchive getClassArchive(@NonNull final Path path) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final CachedClassArchive previous = this.classArchives.get(path);
+        if (previous != null && previous.lastModified == lastModified && previous.size == attributes.size()) {
+            return previous.classArchive;
+        }
+        final ClassArchive result = ZipClassArchive.open(path);
+        if (previous != null) {
+            closeClassArchive(previous.classArchive);
+        }
+        this.classArchives.put(path, new CachedClassArchive(result, lastModified, attributes.size()));
+        return result;
+    }
+
+    /**
+     * @return number of cached class models
+     */
+    public int size() {
+        synchronized (this.classModels) {
+            return this.classModels.size();
+        }
+    }
+
+    /**
+     * @return estimated size of the cached class models, in bytes
+     */
+    public long getUsedMemory() {
+        synchronized (this.classModels) {
+            return this.usedMemory;
+        }
+    }
+
+    /**
+     * @return number of class models found in the cache
+     */
+    public long getHits() {
+        synchronized (this.classModels) {
+            return this.hits;
+        }
+    }
+
+    /**
+     * @return number of class models not found in the cache
+     */
+    public long getMisses() {
+        synchronized (this.classModels) {
+            return this.misses;
+        }
+    }
+
+    /**
+     * Drop every cached class model and close the dependency index and the archives.
+     */
+    @Override
+    public synchronized void close() {
+        synchronized (this.classModels) {
+            this.classModels.clear();
+            this.usedMemory = 0;
+        }
+        final DependencyIndex previous = this.dependencyIndex;
+        if (previous != null) {
+            previous.close();
+            this.dependencyIndex = null;
+        }
+        for (final CachedClassArchive cachedClassArchive : this.classArchives.values()) {
+            closeClassArchive(cachedClassArchive.classArchive);
+        }
+        this.classArchives.clear();
+    }
+
+    private static void closeClassArchive(@NonNull final ClassArchive classArchive) {
+        try {
+            classArchive.close();
+        } catch (final IOException e) {
+            LOGGER.logp(Level.SEVERE, "GenerationCache", "closeClassArchive", e.getMessage(), e);
+        }
+    }
+
+    private static long checksum(@NonNull final ByteBuffer classFile) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(classFile.duplicate());
+        return crc32.getValue();
+    }
+
+    private static long estimateSize(@NonNull final ClassModel classModel) {
+        long result = CLASS_MODEL_SIZE;
+        for (final MethodModel methodModel : classModel.getConstructors()) {
+            result += estimateSize(methodModel);
+        }
+        for (final MethodModel methodModel : classModel.getMethods()) {
+            result += estimateSize(methodModel);
+        }
+        return result;
+    }
+
+    private static long estimateSize(@NonNull final MethodModel methodModel) {
+        return METHOD_MODEL_SIZE + (long) TYPE_MODEL_SIZE * (1 + methodModel.getParameterTypes().size() + methodModel.getExceptionTypes().size());
+    }
+
+    /**
+     * Opened archive with what identifies the file it was opened from.
+     */
+    private static final class CachedClassArchive {
+
+        @NonNull
+        private final ClassArchive classArchive;
+        private final long lastModified;
+        private final long size;
+
+        CachedClassArchive(@NonNull final ClassArchive classArchive, final long lastModified, final long size) {
+            this.classArchive = classArchive;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Class model with what identifies the class file it was built from.
+     */
+    private static final class CachedClassModel {
+
+        @NonNull
+        private final ClassModelSource classModelSource;
+        private final int length;
+        private final long checksum;
+        @NonNull
+        private final ClassModel classModel;
+        private final long estimatedSize;
+
+        CachedClassModel(@NonNull final ClassModelSource classModelSource, final int length, final long checksum, @NonNull final ClassModel classModel) {
+            this.classModelSource = classModelSource;
+            this.length = length;
+            this.checksum = checksum;
+            this.classModel = classModel;
+            this.estimatedSize = estimateSize(classModel);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Measures of a generation run: latency of each phase, slowest classes, skipped and failed classes.
+ * Instances can be updated by several threads.
+ */
+public final class GenerationMetrics {
+
+    /**
+     * Phases of the generation of a class.
+     */
+    public enum Phase {
+        /** Opening of the inputs and discovery of the classes, once per run. */
+        SCAN,
+        /** Reading of a class file. */
+        READ,
+        /** Loading of a class, with {@link ClassModelSource#REFLECTION} only; the classes it references are loaded while building its model. */
+        LOAD,
+        /** Building of a class model, from the class file or by reflection. */
+        MODEL,
+        /** Rendering of a test source. */
+        RENDER,
+        /** Writing of a test file. */
+        WRITE,
+        /** Measure of the performance baselines of the classes of a chunk in a separate JVM, with a baseline file only. */
+        BASELINE
+    }
+
+    /**
+     * Why no test is generated for a class.
+     */
+    public enum SkipReason {
+        /** Class file unchanged since the previous run. */
+        UNCHANGED,
+        /** Abstract class. */
+        ABSTRACT,
+        /** Interface or annotation. */
+        INTERFACE,
+        /** Module descriptor. */
+        MODULE,
+        /** Anonymous class. */
+        ANONYMOUS
+    }
+
+    @NonNull
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    @NonNull
+    private final Map<SkipReason, LongAdder> skipped = new EnumMap<>(SkipReason.class);
+    @NonNull
+    private final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+    @NonNull
+    private final LongAdder generatedFiles = new LongAdder();
+    @NonNull
+    private final LongAdder generatedBenchmarks = new LongAdder();
+    private final int slowestClassCount;
+    @NonNull
+    private final PriorityQueue<ClassTiming> slowestClasses;
+    private final long startNanos = System.nanoTime();
+    private volatile long durationNanos = -1;
+    private volatile int discoveredClasses;
+
+    /**
+     * Constructor.
+     *
+     * @param slowestClassCount number of slowest classes kept, 0 to keep none
+     */
+    public GenerationMetrics(final int slowestClassCount) {
+        this.slowestClassCount = slowestClassCount;
+        this.slowestClasses = new PriorityQueue<>(Math.max(1, slowestClassCount + 1), Comparator.comparingLong(ClassTiming::getNanos));
+        for (final Phase phase : Phase.values()) {
+            this.histograms.put(phase, new LatencyHistogram());
+        }
+        for (final SkipReason skipReason : SkipReason.values()) {
+            this.skipped.put(skipReason, new LongAdder());
+        }
+    }
+
+    /**
+     * Record the duration of a phase.
+     *
+     * @param phase phase
+     * @param nanos duration, in nanoseconds
+     */
+    public void record(@NonNull final Phase phase, final long nanos) {
+        getHistogram(phase).record(nanos);
+    }
+
+    /**
+     * Record the time spent on a class, all phases included.
+     *
+     * @param className binary name of the class
+     * @param nanos duration, in nanoseconds
+     */
+    public void recordClass(@NonNull final String className, final long nanos) {
+        if (this.slowestClassCount == 0) {
+            return;
+        }
+        synchronized (this.slowestClasses) {
+            final ClassTiming fastest = this.slowestClasses.peek();
+            if (this.slowestClasses.size() < this.slowestClassCount || fastest == null || fastest.getNanos() < nanos) {
+                this.slowestClasses.add(new ClassTiming(className, nanos));
+                if (this.slowestClasses.size() > this.slowestClassCount) {
+                    this.slowestClasses.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a class for which no test is generated.
+     *
+     * @param skipReason why
+     */
+    public void skipped(@NonNull final SkipReason skipReason) {
+        this.skipped.get(skipReason).increment();
+    }
+
+    /**
+     * Record a class whose test could not be generated.
+     *
+     * @param cause exception or error thrown
+     */
+    public void failed(@NonNull final Throwable cause) {
+        this.failures.computeIfAbsent(cause.getClass().getName(), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Record a written test file, not counting the files rewritten with the same content.
+     */
+    public void generated() {
+        this.generatedFiles.increment();
+    }
+
+    /**
+     * Record a written benchmark file, not counting the files rewritten with the same content.
+     */
+    public void generatedBenchmark() {
+        this.generatedBenchmarks.increment();
+    }
+
+    /**
+     * @param discoveredClasses number of classes discovered in the inputs
+     */
+    public void setDiscoveredClasses(final int discoveredClasses) {
+        this.discoveredClasses = discoveredClasses;
+    }
+
+    /**
+     * Mark the end of the run.
+     */
+    public void end() {
+        this.durationNanos = System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * @param phase phase
+     * @return histogram of the durations of the phase
+     */
+    @NonNull
+    public LatencyHistogram getHistogram(@NonNull final Phase phase) {
+        final LatencyHistogram result = this.histograms.get(phase);
+        if (result == null) {
+            throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of skipped classes by reason
+     */
+    @NonNull
+    public Map<SkipReason, Long> getSkipped() {
+        final Map<SkipReason, Long> result = new EnumMap<>(SkipReason.class);
+        for (final Entry<SkipReason, LongAdder> entry : this.skipped.entrySet()) {
+            result.put(entry.getKey(), Long.valueOf(entry.getValue().sum()));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of failed classes by name of the exception or error class, sorted by name
+     */
+    @NonNull
+    public Map<String, Long> getFailures() {
+        final Map<String, Long> result = new TreeMap<>();
+        for (final Entry<String, LongAdder> entry : this.failures.entrySet()) {
+            result.put(entry.getKey(), Long.valueOf(entry.getValue().sum()));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of failed classes
+     */
+    public long getFailureCount() {
+        long result = 0;
+        for (final LongAdder count : this.failures.values()) {
+            result += count.sum();
+        }
+        return result;
+    }
+
+    /**
+     * @return slowest classes, slowest first
+     */
+    @NonNull
+    public List<ClassTiming> getSlowestClasses() {
+        final List<ClassTiming> result;
+        synchronized (this.slowestClasses) {
+            result = new ArrayList<>(this.slowestClasses);
+        }
+        Collections.sort(result, Comparator.comparingLong(ClassTiming::getNanos).reversed());
+        return result;
+    }
+
+    /**
+     * @return number of written test files, whose content changed
+     */
+    public long getGeneratedFiles() {
+        return this.generatedFiles.sum();
+    }
+
+    /**
+     * @return number of written benchmark files, whose content changed
+     */
+    public long getGeneratedBenchmarks() {
+        return this.generatedBenchmarks.sum();
+    }
+
+    /**
+     * @return number of classes discovered in the inputs
+     */
+    public int getDiscoveredClasses() {
+        return this.discoveredClasses;
+    }
+
+    /**
+     * @return duration of the run in nanoseconds, until now if it did not end yet
+     */
+    public long getDurationNanos() {
+        final long result = this.durationNanos;
+        return result < 0 ? System.nanoTime() - this.startNanos : result;
+    }
+
+    /**
+     * @return summary of the run, as a JSON object
+     */
+    @NonNull
+    public String toJson() {
+        final StringBuilder out = new StringBuilder(2048);
+        out.append("{\n");
+        out.append("  \"durationMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(getDurationNanos())).append(",\n");
+        out.append("  \"discoveredClasses\": ").append(getDiscoveredClasses()).append(",\n");
+        out.append("  \"generatedFiles\": ").append(getGeneratedFiles()).append(",\n");
+        out.append("  \"generatedBenchmarks\": ").append(getGeneratedBenchmarks()).append(",\n");
+        out.append("  \"phases\": {");
+        String separator = "\n";
+        for (final Phase phase : Phase.values()) {
+            final LatencyHistogram histogram = getHistogram(phase);
+            out.append(separator).append("    \"").append(phase).append("\": { \"count\": ").append(histogram.getCount());
+            out.append(", \"totalMicros\": ").append(toMicros(histogram.getTotalNanos()));
+            out.append(", \"p50Micros\": ").append(toMicros(histogram.getPercentileNanos(50)));
+            out.append(", \"p90Micros\": ").append(toMicros(histogram.getPercentileNanos(90)));
+            out.append(", \"p99Micros\": ").append(toMicros(histogram.getPercentileNanos(99)));
+            out.append(", \"maxMicros\": ").append(toMicros(histogram.getMaxNanos())).append(" }");
+            separator = ",\n";
+        }
+        out.append("\n  },\n");
+        out.append("  \"skipped\": {");
+        separator = "\n";
+        for (final Entry<SkipReason, Long> entry : getSkipped().entrySet()) {
+            out.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+            separator = ",\n";
+        }
+        out.append("\n  },\n");
+        out.append("  \"failed\": {");
+        separator = "\n";
+        for (final Entry<String, Long> entry : getFailures().entrySet()) {
+            out.append(separator).append("    ");
+            appendJsonString(entry.getKey(), out);
+            out.append(": ").append(entry.getValue());
+            separator = ",\n";
+        }
+        out.append(separator.equals("\n") ? "" : "\n  ").append("},\n");
+        out.append("  \"slowestClasses\": [");
+        separator = "\n";
+        for (final ClassTiming classTiming : getSlowestClasses()) {
+            out.append(separator).append("    { \"className\": ");
+            appendJsonString(classTiming.getClassName(), out);
+            out.append(", \"micros\": ").append(toMicros(classTiming.getNanos())).append(" }");
+            separator = ",\n";
+        }
+        out.append(separator.equals("\n") ? "" : "\n  ").append("]\n");
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Write the summary of the run, replacing the file atomically.
+     *
+     * @param summaryFile file to write
+     * @throws IOException if the file can not be written
+     */
+    public void writeSummary(@NonNull final Path summaryFile) throws IOException {
+        final Path parent = summaryFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporaryFile = summaryFile.resolveSibling(summaryFile.getFileName() + ".tmp");
+        Files.write(temporaryFile, toJson().getBytes(Charset.forName("UTF-8")));
+        Files.move(temporaryFile, summaryFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long toMicros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static void appendJsonString(@NonNull final String value, @NonNull final StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", Integer.valueOf(c)));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Time spent on a class.
+     */
+    public static final class ClassTiming {
+
+        @NonNull
+        private final String className;
+        private final long nanos;
+
+        /**
+         * Constructor.
+         *
+         * @param className binary name of the class
+         * @param nanos duration, in nanoseconds
+         */
+        public ClassTiming(@NonNull final String className, final long nanos) {
+            this.className = className;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return binary name of the class
+         */
+        @NonNull
+        public String getClassName() {
+            return this.className;
+        }
+
+        /**
+         * @return duration, in nanoseconds
+         */
+        public long getNanos() {
+            return this.nanos;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import aka.junitgenerator.FingerprintManifest.ManifestEntry;
+import aka.junitgenerator.GenerationMetrics.Phase;
+import aka.junitgenerator.GenerationMetrics.SkipReason;
+
+/**
+ * Staged generation: discovery (calling thread) -&gt; class model -&gt; render -&gt; write.
+ * Stages are connected by bounded queues, so a fast stage blocks instead of filling the memory.
+ * The result does not depend on the number of workers: every class gets a sequence number in discovery order
+ * and, when two classes produce the same file, the one discovered last wins, as it would in a serial run.
+ */
+final class GenerationPipeline {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.GenerationPipeline");
+
+    /**
+     * Prefix of the benchmark outputs recorded in the manifest, whose paths are relative to the benchmark sink.
+     */
+    @NonNull
+    static final String BENCHMARK_OUTPUT_PREFIX = "benchmark:";
+    private static final int BUFFER_CAPACITY = 16 * 1024;
+    // Larger buffers, rendered for huge classes, are not kept
+    private static final int MAX_POOLED_BUFFER_CAPACITY = 256 * 1024;
+
+    @NonNull
+    private final ClassModelProvider classModelProvider;
+    @NonNull
+    private final JunitTestRenderer junitTestRenderer;
+    @NonNull
+    private final OutputSink outputSink;
+    private final int modelWorkers;
+    private final int renderWorkers;
+    private final int writeWorkers;
+    private final int queueCapacity;
+    @NonNull
+    private final GenerationMetrics generationMetrics;
+    @NonNull
+    private final ConcurrentMap<String, AtomicLong> writtenSequenceByPath = new ConcurrentHashMap<>();
+    // Buffers rendered into, given back once written: at most one per file in the queues or in a worker
+    @NonNull
+    private final ConcurrentLinkedQueue<StringBuilder> buffers = new ConcurrentLinkedQueue<>();
+    // Sequence number of the next class, continued by every run so that chunks keep the discovery order
+    private long nextSequence;
+    @Nullable
+    private InputArchives inputArchives;
+    @Nullable
+    private FingerprintManifest previousManifest;
+    @Nullable
+    private FingerprintManifest currentManifest;
+    // Time the previous manifest was written, -1 to fingerprint every class file
+    private long previousManifestTime = -1;
+    @NonNull
+    private Set<String> regeneratedClassNames = Collections.emptySet();
+    @Nullable
+    private SourceRenderer benchmarkRenderer;
+    @Nullable
+    private OutputSink benchmarkSink;
+
+    /**
+     * Constructor.
+     *
+     * @param classModelProvider provider of the class models
+     * @param junitTestRenderer renderer of the test files
+     * @param outputSink destination of the generated files, not closed by this pipeline
+     * @param modelWorkers number of threads building class models
+     * @param renderWorkers number of threads rendering test files
+     * @param writeWorkers number of threads writing test files
+     * @param queueCapacity capacity of the queue in front of each stage
+     * @param generationMetrics measures of the run, updated by the workers
+     */
+    GenerationPipeline(@NonNull final ClassModelProvider classModelProvider, @NonNull final JunitTestRenderer junitTestRenderer, @NonNull final OutputSink outputSink, final int modelWorkers, final int renderWorkers, final int writeWorkers, final int queueCapacity, @NonNull final GenerationMetrics generationMetrics) {
+        this.classModelProvider = classModelProvider;
+        this.junitTestRenderer = junitTestRenderer;
+        this.outputSink = outputSink;
+        this.modelWorkers = modelWorkers;
+        this.renderWorkers = renderWorkers;
+        this.writeWorkers = writeWorkers;
+        this.queueCapacity = queueCapacity;
+        this.generationMetrics = generationMetrics;
+    }
+
+    /**
+     * Skip the classes whose class file did not change since the previous run and record the fingerprints of this run.
+     *
+     * @param fingerprintSource archives containing the class files to fingerprint
+     * @param previous manifest of the previous run
+     * @param current manifest of this run, filled by {@link #run(Iterable)}
+     * @param previousTime time the previous manifest was written, in milliseconds since the epoch: class files modified before are not read again;
+     *            -1 to read and fingerprint every class file
+     */
+    void setManifests(@NonNull final InputArchives fingerprintSource, @NonNull final FingerprintManifest previous, @NonNull final FingerprintManifest current, final long previousTime) {
+        this.inputArchives = fingerprintSource;
+        this.previousManifest = previous;
+        this.currentManifest = current;
+        this.previousManifestTime = previousTime;
+    }
+
+    /**
+     * Generate the given classes even if their class file did not change, for instance because their baselines changed.
+     *
+     * @param classNames binary names of the classes
+     */
+    void setRegeneratedClassNames(@NonNull final Set<String> classNames) {
+        this.regeneratedClassNames = classNames;
+    }
+
+    /**
+     * Also generate a benchmark of every class.
+     *
+     * @param renderer renderer of the benchmark files
+     * @param sink destination of the benchmark files, not closed by this pipeline
+     */
+    void setBenchmarks(@NonNull final SourceRenderer renderer, @NonNull final OutputSink sink) {
+        this.benchmarkRenderer = renderer;
+        this.benchmarkSink = sink;
+    }
+
+    /**
+     * Delete an output recorded in a manifest.
+     *
+     * @param output output of a manifest entry
+     * @throws IOException if the output can not be deleted
+     */
+    void deleteOutput(@NonNull final String output) throws IOException {
+        if (!output.startsWith(BENCHMARK_OUTPUT_PREFIX)) {
+            this.outputSink.delete(output);
+            return;
+        }
+        final OutputSink currentBenchmarkSink = this.benchmarkSink;
+        if (currentBenchmarkSink != null) {
+            currentBenchmarkSink.delete(output.substring(BENCHMARK_OUTPUT_PREFIX.length()));
+        }
+    }
+
+    /**
+     * Generate the tests of the given classes and wait for all of them to be written.
+     * Can be called once per chunk of classes, in discovery order.
+     *
+     * @param classNames binary names of the classes, in discovery order
+     * @throws InterruptedException if interrupted while waiting, all workers are then interrupted
+     */
+    void run(@NonNull final Iterable<String> classNames) throws InterruptedException {
+        final BlockingQueue<Work<String>> classQueue = new ArrayBlockingQueue<>(this.queueCapacity);
+        final BlockingQueue<Work<ClassModel>> modelQueue = new ArrayBlockingQueue<>(this.queueCapacity);
+        final BlockingQueue<Work<List<RenderedFile>>> fileQueue = new ArrayBlockingQueue<>(this.queueCapacity);
+
+        final List<Thread> threads = new ArrayList<>();
+        startStage("model", null, this.modelWorkers, classQueue, modelQueue, this.renderWorkers, () -> this::readClassModel, threads);
+        startStage("render", Phase.RENDER, this.renderWorkers, modelQueue, fileQueue, this.writeWorkers, () -> work -> {
+            final ClassModel classModel = work.getValue();
+            // The test first, then the benchmark if any
+            final List<RenderedFile> renderedFiles = new ArrayList<>(2);
+            renderedFiles.add(render(this.junitTestRenderer, classModel));
+            final SourceRenderer currentBenchmarkRenderer = this.benchmarkRenderer;
+            if (currentBenchmarkRenderer != null && currentBenchmarkRenderer.accepts(classModel)) {
+                renderedFiles.add(render(currentBenchmarkRenderer, classModel));
+            }
+            return renderedFiles;
+        }, threads);
+        startStage("write", Phase.WRITE, this.writeWorkers, fileQueue, null, 0, () -> work -> {
+            write(work);
+            return null;
+        }, threads);
+
+        try {
+            for (final String className : classNames) {
+                classQueue.put(new Work<>(this.nextSequence, className, null, 0, className));
+                this.nextSequence++;
+            }
+            for (int i = 0; i < this.modelWorkers; i++) {
+                classQueue.put(new Work<String>(-1, "", null, 0, null));
+            }
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+            // Files are named after the package of their class and chunks hold whole packages: later runs write other files
+            this.writtenSequenceByPath.clear();
+        } catch (final InterruptedException e) {
+            for (final Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+    }
+
+    private <I, O> void startStage(@NonNull final String stageName, @Nullable final Phase phase, final int workers, @NonNull final BlockingQueue<Work<I>> input, @Nullable final BlockingQueue<Work<O>> output, final int nextStageWorkers, @NonNull final Supplier<Step<I, O>> stepFactory, @NonNull final List<Thread> threads) {
+        final AtomicInteger runningWorkers = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            final Step<I, O> step = stepFactory.get();
+            final Thread thread = new Thread(() -> {
+                boolean interrupted = false;
+                try {
+                    for (Work<I> work = input.take(); work.value != null; work = input.take()) {
+                        final long start = System.nanoTime();
+                        try {
+                            final O result = step.apply(work);
+                            final long elapsed = System.nanoTime() - start;
+                            if (phase != null) {
+                                this.generationMetrics.record(phase, elapsed);
+                            }
+                            if (result != null && output != null) {
+                                output.put(new Work<>(work.sequence, work.className, work.fingerprint, work.nanos + elapsed, result));
+                            } else {
+                                // Last stage for this class
+                                this.generationMetrics.recordClass(work.className, work.nanos + elapsed);
+                            }
+                        } catch (final InterruptedException e) {
+                            throw e;
+                        } catch (final Throwable e) {
+                            // Whatever the class does, the worker goes on: a dead worker would leave its queue full and the run waiting forever
+                            this.generationMetrics.failed(e);
+                            this.generationMetrics.recordClass(work.className, work.nanos + System.nanoTime() - start);
+                            LOGGER.logp(Level.SEVERE, "GenerationPipeline", stageName, e.getMessage(), e);
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (runningWorkers.decrementAndGet() == 0 && output != null && !interrupted) {
+                        // Last worker of this stage: tell the next stage that nothing else will come
+                        try {
+                            for (int j = 0; j < nextStageWorkers; j++) {
+                                output.put(new Work<O>(-1, "", null, 0, null));
+                            }
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            }, "junitgenerator-" + stageName + "-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    @Nullable
+    private ClassModel readClassModel(@NonNull final Work<String> work) throws IOException, ClassNotFoundException {
+        final String className = work.getValue();
+        ByteBuffer classFile = null;
+        final InputArchives currentInputArchives = this.inputArchives;
+        final FingerprintManifest previous = this.previousManifest;
+        final FingerprintManifest current = this.currentManifest;
+        if (currentInputArchives != null && previous != null && current != null) {
+            final ManifestEntry previousEntry = previous.get(className);
+            final boolean regenerated = this.regeneratedClassNames.contains(className);
+            if (previousEntry != null && previousEntry.isChecked() && !regenerated && this.previousManifestTime >= 0) {
+                // Cheap check first: a class file older than the manifest was fingerprinted by the previous run
+                final long lastModified = currentInputArchives.getLastModified(className);
+                if (lastModified >= 0 && lastModified < this.previousManifestTime && outputsExist(previousEntry)) {
+                    current.put(className, previousEntry);
+                    this.generationMetrics.skipped(SkipReason.UNCHANGED);
+                    return null;
+                }
+            }
+            final long start = System.nanoTime();
+            classFile = currentInputArchives.readClassFile(className);
+            if (classFile == null) {
+                throw new ClassNotFoundException(className);
+            }
+            final String fingerprint = FingerprintManifest.fingerprint(classFile);
+            this.generationMetrics.record(Phase.READ, System.nanoTime() - start);
+            work.fingerprint = fingerprint;
+            if (previousEntry != null && previousEntry.getFingerprint().equals(fingerprint) && !regenerated && outputsExist(previousEntry)) {
+                current.put(className, previousEntry.isChecked() ? previousEntry : new ManifestEntry(fingerprint, previousEntry.getOutputs()));
+                this.generationMetrics.skipped(SkipReason.UNCHANGED);
+                return null;
+            }
+        }
+        final ClassModel classModel = this.classModelProvider.getClassModel(className, classFile);
+        final SkipReason skipReason = getSkipReason(classModel);
+        if (skipReason != null) {
+            this.generationMetrics.skipped(skipReason);
+            final String fingerprint = work.fingerprint;
+            if (current != null && fingerprint != null) {
+                // Nothing to generate, remember it to skip the class next time
+                current.addClass(className, fingerprint);
+            }
+            return null;
+        }
+        return classModel;
+    }
+
+    @Nullable
+    private static SkipReason getSkipReason(@NonNull final ClassModel classModel) {
+        if (classModel.isModule()) {
+            return SkipReason.MODULE;
+        }
+        if (classModel.isInterface()) {
+            return SkipReason.INTERFACE;
+        }
+        if (classModel.isAbstract()) {
+            return SkipReason.ABSTRACT;
+        }
+        if (classModel.getSimpleName().isEmpty()) {
+            // Anonymous classes have no simple name and can not be tested by name
+            return SkipReason.ANONYMOUS;
+        }
+        return null;
+    }
+
+    private boolean outputsExist(@NonNull final ManifestEntry manifestEntry) throws IOException {
+        final OutputSink currentBenchmarkSink = this.benchmarkSink;
+        boolean hasBenchmark = false;
+        for (final String output : manifestEntry.getOutputs()) {
+            if (output.startsWith(BENCHMARK_OUTPUT_PREFIX)) {
+                hasBenchmark = true;
+                if (currentBenchmarkSink != null && !currentBenchmarkSink.exists(output.substring(BENCHMARK_OUTPUT_PREFIX.length()))) {
+                    return false;
+                }
+            } else if (!this.outputSink.exists(output)) {
+                return false;
+            }
+        }
+        // A class generated before the benchmarks were enabled still needs its benchmark
+        return hasBenchmark || currentBenchmarkSink == null || manifestEntry.getOutputs().isEmpty();
+    }
+
+    @NonNull
+    private RenderedFile render(@NonNull final SourceRenderer renderer, @NonNull final ClassModel classModel) {
+        StringBuilder buffer = this.buffers.poll();
+        if (buffer == null) {
+            buffer = new StringBuilder(BUFFER_CAPACITY);
+        }
+        buffer.setLength(0);
+        renderer.render(classModel, buffer);
+        return new RenderedFile(renderer.getRelativePath(classModel), buffer);
+    }
+
+    private void write(@NonNull final Work<List<RenderedFile>> work) throws IOException {
+        final List<RenderedFile> renderedFiles = work.getValue();
+        try {
+            write(work, renderedFiles.get(0), "", this.outputSink);
+            final OutputSink currentBenchmarkSink = this.benchmarkSink;
+            if (renderedFiles.size() > 1 && currentBenchmarkSink != null) {
+                write(work, renderedFiles.get(1), BENCHMARK_OUTPUT_PREFIX, currentBenchmarkSink);
+            }
+        } finally {
+            // The sinks do not keep the content: the buffers can be rendered into again
+            for (final RenderedFile renderedFile : renderedFiles) {
+                if (renderedFile.content.capacity() <= MAX_POOLED_BUFFER_CAPACITY) {
+                    this.buffers.offer(renderedFile.content);
+                }
+            }
+        }
+    }
+
+    private void write(@NonNull final Work<List<RenderedFile>> work, @NonNull final RenderedFile renderedFile, @NonNull final String outputPrefix, @NonNull final OutputSink sink) throws IOException {
+        final long sequence = work.sequence;
+        final String output = outputPrefix + renderedFile.relativePath;
+        final AtomicLong writtenSequence = this.writtenSequenceByPath.computeIfAbsent(output, k -> new AtomicLong(-1));
+        final boolean written;
+        synchronized (writtenSequence) {
+            if (writtenSequence.get() > sequence) {
+                return;
+            }
+            final Object event = FlightRecorderEvents.beginCreateFile();
+            written = sink.write(renderedFile.relativePath, renderedFile.content);
+            writtenSequence.set(sequence);
+            FlightRecorderEvents.endCreateFile(event, work.className, renderedFile.relativePath, renderedFile.content.length());
+        }
+        // Files kept with the same content are still outputs of the class, but were not generated by this run
+        if (written && outputPrefix.isEmpty()) {
+            this.generationMetrics.generated();
+        } else if (written) {
+            this.generationMetrics.generatedBenchmark();
+        }
+        final FingerprintManifest current = this.currentManifest;
+        final String fingerprint = work.fingerprint;
+        if (current != null && fingerprint != null) {
+            current.addOutput(work.className, fingerprint, output);
+        }
+    }
+
+    /**
+     * File rendered into a pooled buffer, given back to the pool once written.
+     */
+    private static final class RenderedFile {
+
+        @NonNull
+        private final String relativePath;
+        @NonNull
+        private final StringBuilder content;
+
+        RenderedFile(@NonNull final String relativePath, @NonNull final StringBuilder content) {
+            this.relativePath = relativePath;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Work done by a stage for one item.
+     *
+     * @param <I> type of the input
+     * @param <O> type of the output
+     */
+    @FunctionalInterface
+    private interface Step<I, O> {
+
+        @Nullable
+        O apply(@NonNull Work<I> work) throws Exception;
+    }
+
+    /**
+     * Item travelling through the queues; a <code>null</code> value marks the end of the input.
+     *
+     * @param <T> type of the item
+     */
+    private static final class Work<T> {
+
+        private final long sequence;
+        @NonNull
+        private final String className;
+        @Nullable
+        private String fingerprint;
+        // Time spent on the class by the previous stages
+        private final long nanos;
+        @Nullable
+        private final T value;
+
+        Work(final long sequence, @NonNull final String className, @Nullable final String fingerprint, final long nanos, @Nullable final T value) {
+            this.sequence = sequence;
+            this.className = className;
+            this.fingerprint = fingerprint;
+            this.nanos = nanos;
+            this.value = value;
+        }
+
+        @NonNull
+        T getValue() {
+            final T result = this.value;
+            if (result == null) {
+                throw new IllegalStateException("End of input marker has no value");
+            }
+            return result;
+        }
+    }
+}
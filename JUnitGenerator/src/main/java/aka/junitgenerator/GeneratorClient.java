@@ -0,0 +1,100 @@
+package aka.junitgenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Thin client of a {@link GeneratorDaemon}.
+ */
+public final class GeneratorClient {
+
+    private GeneratorClient() {
+        // Utility class
+    }
+
+    /**
+     * Send a request from the command line and print the answer.
+     * Relative paths are resolved against the current directory, not the one of the daemon.
+     * Exits with 0 if the answer is <code>ok</code>, 1 otherwise.
+     *
+     * @param args daemon file, then <code>key=value</code> pairs and the command,
+     *            for instance <code>destination=src/test/java input=target/classes class=a.B generate</code>
+     * @throws IOException if the daemon can not be reached
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GeneratorClient <daemon file> [key=value]... generate|status|stop");
+            System.exit(2);
+        }
+        final List<String> lines = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            lines.add(toLine(args[i]));
+        }
+        final String answer = send(Paths.get(args[0]), lines);
+        System.out.println(answer);
+        System.exit(answer.startsWith(GeneratorDaemon.OK) ? 0 : 1);
+    }
+
+    /**
+     * @param argument <code>key=value</code> pair or command
+     * @return line of the request, with an absolute path for the keys whose values are paths
+     */
+    @NonNull
+    static String toLine(@NonNull final String argument) {
+        final int equals = argument.indexOf('=');
+        if (equals < 0) {
+            return argument;
+        }
+        final String key = argument.substring(0, equals);
+        final String value = argument.substring(equals + 1);
+        // File accepts wildcards such as lib/*, which Path does not on every platform
+        return key + " " + (GeneratorDaemon.PATH_KEYS.contains(key) ? new File(value).getAbsolutePath() : value);
+    }
+
+    /**
+     * Send a request to a running daemon.
+     *
+     * @param daemonFile daemon file written by the daemon
+     * @param lines lines of the request, <code>key value</code>, the last one being the command; the token is added
+     * @return answer of the daemon
+     * @throws IOException if the daemon can not be reached
+     */
+    @NonNull
+    public static String send(@NonNull final Path daemonFile, @NonNull final List<String> lines) throws IOException {
+        final List<String> daemonFileLines = Files.readAllLines(daemonFile, Charset.forName("UTF-8"));
+        final String[] portAndToken = daemonFileLines.isEmpty() ? new String[0] : daemonFileLines.get(0).split(" ");
+        if (portAndToken.length != 2) {
+            throw new IOException("Invalid daemon file: " + daemonFile);
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(portAndToken[0]))) {
+            final Writer writer = new OutputStreamWriter(socket.getOutputStream(), Charset.forName("UTF-8"));
+            writer.write(GeneratorDaemon.TOKEN + " " + portAndToken[1] + "\n");
+            for (final String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+            final String answer = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charset.forName("UTF-8"))).readLine();
+            if (answer == null) {
+                throw new IOException("No answer from the daemon");
+            }
+            return answer;
+        } catch (final NumberFormatException e) {
+            throw new IOException("Invalid daemon file: " + daemonFile, e);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package aka.junitgenerator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Resident generator: the JIT-compiled code, the class models and the dependency index stay warm between requests.
+ * It listens on a loopback port written, with a secret token, to a daemon file readable by its owner only;
+ * {@link GeneratorClient} sends requests through it.
+ * <p>
+ * A request is a list of UTF-8 lines <code>key value</code>, the first one being <code>token</code>
+ * and the last one the command: <code>generate</code>, <code>status</code> or <code>stop</code>.
+ * Keys of <code>generate</code> are <code>destination</code>, <code>input</code>, <code>dependency</code>, <code>class</code>, <code>include</code> and <code>exclude</code> (repeatable),
+ * <code>source</code>, <code>manifest</code>, <code>timestamps</code>, <code>dependencyIndex</code>, <code>summary</code>, <code>nested</code>, <code>shard</code>, <code>benchmark</code>, <code>baseline</code>, <code>baselineTolerance</code> and <code>memoryBudget</code>.
+ * Paths must be absolute: the daemon does not run in the directory of its clients.
+ * <code>baseline</code> runs code of the inputs in a separate JVM with the permissions of the daemon: it is refused when the daemon is started
+ * with <code>-Djunitgenerator.baselines=false</code>.
+ * The answer is a single line, <code>ok</code> followed by the results or <code>error</code> followed by a message.
+ * Requests are run one at a time.
+ */
+public final class GeneratorDaemon implements Closeable {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.GeneratorDaemon");
+
+    static final String TOKEN = "token";
+    static final String GENERATE = "generate";
+    static final String STATUS = "status";
+    static final String STOP = "stop";
+    static final String OK = "ok";
+    static final String ERROR = "error";
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+    private static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    /**
+     * Keys of <code>generate</code> whose values are paths.
+     */
+    static final Set<String> PATH_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("destination", "input", "dependency", "manifest", "dependencyIndex", "summary", "benchmark", "baseline")));
+
+    @NonNull
+    private final Path daemonFile;
+    @NonNull
+    private final GenerationCache generationCache;
+    @NonNull
+    private final String token;
+    @Nullable
+    private ServerSocket serverSocket;
+    @Nullable
+    private Thread acceptThread;
+    private volatile boolean stopped;
+    private volatile boolean baselinesAllowed = true;
+
+    /**
+     * Constructor.
+     *
+     * @param daemonFile file where the port and the token are written, deleted when the daemon stops
+     * @param memoryBudget maximum estimated size of the cached class models, in bytes
+     */
+    public GeneratorDaemon(@NonNull final Path daemonFile, final long memoryBudget) {
+        this.daemonFile = daemonFile;
+        this.generationCache = new GenerationCache(memoryBudget);
+        final byte[] secret = new byte[16];
+        new SecureRandom().nextBytes(secret);
+        final StringBuilder result = new StringBuilder(32);
+        for (final byte b : secret) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        this.token = result.toString();
+    }
+
+    /**
+     * Set whether requests may measure performance baselines, which calls code of their inputs.
+     * Default is <code>true</code>.
+     *
+     * @param baselinesAllowed <code>false</code> to refuse requests with a <code>baseline</code> key
+     */
+    public void setBaselinesAllowed(final boolean baselinesAllowed) {
+        this.baselinesAllowed = baselinesAllowed;
+    }
+
+    /**
+     * Run a daemon until it is stopped by a client.
+     * The system property <code>junitgenerator.baselines</code> set to <code>false</code> refuses the performance baselines.
+     *
+     * @param args daemon file, then optionally the memory budget of the cache in megabytes (default 256)
+     * @throws IOException if the daemon can not listen
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: GeneratorDaemon <daemon file> [<cache budget in MB>]");
+            System.exit(2);
+        }
+        final long memoryBudget = args.length > 1 ? Long.parseLong(args[1]) * 1024 * 1024 : DEFAULT_MEMORY_BUDGET;
+        final GeneratorDaemon generatorDaemon = new GeneratorDaemon(Paths.get(args[0]), memoryBudget);
+        generatorDaemon.setBaselinesAllowed(Boolean.parseBoolean(System.getProperty("junitgenerator.baselines", "true")));
+        Runtime.getRuntime().addShutdownHook(new Thread(generatorDaemon::close, "junitgenerator-daemon-shutdown"));
+        generatorDaemon.start();
+        generatorDaemon.awaitStop();
+    }
+
+    /**
+     * Start listening and write the daemon file.
+     *
+     * @throws IOException if the daemon can not listen or the daemon file can not be written
+     */
+    public synchronized void start() throws IOException {
+        final ServerSocket currentServerSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.serverSocket = currentServerSocket;
+        try {
+            writeDaemonFile(currentServerSocket.getLocalPort());
+        } catch (final IOException e) {
+            currentServerSocket.close();
+            throw e;
+        }
+        final Thread thread = new Thread(() -> accept(currentServerSocket), "junitgenerator-daemon");
+        this.acceptThread = thread;
+        thread.start();
+    }
+
+    private void writeDaemonFile(final int port) throws IOException {
+        final Path parent = this.daemonFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporaryFile = this.daemonFile.resolveSibling(this.daemonFile.getFileName() + ".tmp");
+        Files.deleteIfExists(temporaryFile);
+        try {
+            // The token must not be readable by other users
+            Files.createFile(temporaryFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (final UnsupportedOperationException e) {
+            Files.createFile(temporaryFile);
+        }
+        Files.write(temporaryFile, Collections.singletonList(port + " " + this.token), Charset.forName("UTF-8"));
+        Files.move(temporaryFile, this.daemonFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return port the daemon listens to, -1 if not started
+     */
+    public synchronized int getPort() {
+        final ServerSocket currentServerSocket = this.serverSocket;
+        return currentServerSocket == null ? -1 : currentServerSocket.getLocalPort();
+    }
+
+    /**
+     * @return cache kept between requests
+     */
+    @NonNull
+    public GenerationCache getGenerationCache() {
+        return this.generationCache;
+    }
+
+    /**
+     * Wait until the daemon is stopped.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitStop() throws InterruptedException {
+        final Thread thread;
+        synchronized (this) {
+            thread = this.acceptThread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Stop listening, delete the daemon file and drop the cache.
+     */
+    @Override
+    public void close() {
+        final ServerSocket currentServerSocket;
+        synchronized (this) {
+            if (this.stopped) {
+                return;
+            }
+            this.stopped = true;
+            currentServerSocket = this.serverSocket;
+        }
+        try {
+            if (currentServerSocket != null) {
+                currentServerSocket.close();
+            }
+            Files.deleteIfExists(this.daemonFile);
+        } catch (final IOException e) {
+            LOGGER.logp(Level.SEVERE, "GeneratorDaemon", "close", e.getMessage(), e);
+        }
+        this.generationCache.close();
+    }
+
+    private void accept(@NonNull final ServerSocket currentServerSocket) {
+        while (!this.stopped) {
+            try (Socket socket = currentServerSocket.accept()) {
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                handle(socket);
+            } catch (final SocketException e) {
+                if (!this.stopped) {
+                    LOGGER.logp(Level.SEVERE, "GeneratorDaemon", "accept", e.getMessage(), e);
+                }
+            } catch (final IOException | RuntimeException e) {
+                LOGGER.logp(Level.SEVERE, "GeneratorDaemon", "accept", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void handle(@NonNull final Socket socket) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charset.forName("UTF-8")));
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), Charset.forName("UTF-8")));
+        final List<String[]> lines = new ArrayList<>();
+        String command = null;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            final int space = line.indexOf(' ');
+            final String key = space < 0 ? line : line.substring(0, space);
+            if (lines.isEmpty() && !TOKEN.equals(key)) {
+                break;
+            }
+            if (GENERATE.equals(key) || STATUS.equals(key) || STOP.equals(key)) {
+                command = key;
+                break;
+            }
+            lines.add(new String[] { key, space < 0 ? "" : line.substring(space + 1) });
+        }
+        String answer;
+        if (lines.isEmpty() || !this.token.equals(lines.get(0)[1])) {
+            answer = ERROR + " Invalid token";
+        } else if (command == null) {
+            answer = ERROR + " Missing command";
+        } else if (STOP.equals(command)) {
+            answer = OK;
+        } else if (STATUS.equals(command)) {
+            answer = OK + " " + this.generationCache.size() + " " + this.generationCache.getUsedMemory() + " " + this.generationCache.getHits() + " " + this.generationCache.getMisses();
+        } else {
+            try {
+                answer = generate(lines.subList(1, lines.size()));
+            } catch (final IllegalArgumentException e) {
+                answer = ERROR + " " + e.getMessage();
+            } catch (final RuntimeException e) {
+                // The client must not wait for an answer which never comes
+                LOGGER.logp(Level.SEVERE, "GeneratorDaemon", "handle", e.getMessage(), e);
+                answer = ERROR + " " + e;
+            }
+        }
+        writer.write(answer);
+        writer.write('\n');
+        writer.flush();
+        if (STOP.equals(command) && answer.equals(OK)) {
+            close();
+        }
+    }
+
+    @NonNull
+    private String generate(@NonNull final List<String[]> lines) {
+        final JunitTestGenerator junitTestGenerator = new JunitTestGenerator();
+        junitTestGenerator.setGenerationCache(this.generationCache);
+        String destination = null;
+        final List<String> inputs = new ArrayList<>();
+        final List<String> dependencies = new ArrayList<>();
+        final List<String> classNames = new ArrayList<>();
+        final List<String> includes = new ArrayList<>();
+        final List<String> excludes = new ArrayList<>();
+        String shard = null;
+        for (final String[] line : lines) {
+            final String value = line[1];
+            if (PATH_KEYS.contains(line[0]) && !new File(value).isAbsolute()) {
+                throw new IllegalArgumentException("Relative path for " + line[0] + ": " + value);
+            }
+            switch (line[0]) {
+                case "destination":
+                    destination = value;
+                    break;
+                case "input":
+                    inputs.add(value);
+                    break;
+                case "dependency":
+                    dependencies.add(value);
+                    break;
+                case "class":
+                    classNames.add(value);
+                    break;
+                case "include":
+                    includes.add(value);
+                    break;
+                case "exclude":
+                    excludes.add(value);
+                    break;
+                case "shard":
+                    shard = value;
+                    break;
+                case "source":
+                    junitTestGenerator.setClassModelSource(ClassModelSource.valueOf(value));
+                    break;
+                case "manifest":
+                    junitTestGenerator.setManifestFile(value);
+                    break;
+                case "timestamps":
+                    junitTestGenerator.setUseTimestamps(Boolean.parseBoolean(value));
+                    break;
+                case "dependencyIndex":
+                    junitTestGenerator.setDependencyIndexFile(value);
+                    break;
+                case "summary":
+                    junitTestGenerator.setRunSummaryFile(value);
+                    break;
+                case "nested":
+                    junitTestGenerator.setIncludeNestedArchives(Boolean.parseBoolean(value));
+                    break;
+                case "benchmark":
+                    junitTestGenerator.setBenchmarkDirectory(value);
+                    break;
+                case "baseline":
+                    if (!this.baselinesAllowed) {
+                        throw new IllegalArgumentException("Performance baselines are disabled in this daemon");
+                    }
+                    junitTestGenerator.setBaselineFile(value);
+                    break;
+                case "baselineTolerance":
+                    junitTestGenerator.setBaselineTolerance(Double.parseDouble(value));
+                    break;
+                case "memoryBudget":
+                    junitTestGenerator.setMemoryBudget(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown key " + line[0]);
+            }
+        }
+        if (destination == null || inputs.isEmpty()) {
+            throw new IllegalArgumentException("A destination and at least one input are required");
+        }
+        final ClassFilter classFilter = new ClassFilter(includes, excludes);
+        junitTestGenerator.setClassFilter(shard == null ? classFilter : classFilter.withShard(shard));
+        if (!classNames.isEmpty()) {
+            junitTestGenerator.setClassNames(classNames);
+        }
+        junitTestGenerator.generateJunitTestClasses(destination, inputs, dependencies);
+        final GenerationMetrics generationMetrics = junitTestGenerator.getLastRunMetrics();
+        if (generationMetrics == null) {
+            return ERROR + " No run";
+        }
+        return OK + " " + generationMetrics.getGeneratedFiles() + " " + generationMetrics.getFailureCount() + " " + generationMetrics.getDurationNanos() / 1_000_000;
+    }
+}
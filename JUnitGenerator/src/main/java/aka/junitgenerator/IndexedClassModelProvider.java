@@ -0,0 +1,64 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@link ClassModelProvider} reusing the models of the previous {@link ClassModelIndex} while their class file does not change,
+ * and collecting every model given for the next index.
+ */
+final class IndexedClassModelProvider implements ClassModelProvider {
+
+    @NonNull
+    private final ClassModelProvider classModelProvider;
+    @NonNull
+    private final InputArchives inputArchives;
+    @Nullable
+    private final ClassModelIndex previousIndex;
+    @NonNull
+    private final ClassModelIndexWriter classModelIndexWriter;
+
+    /**
+     * Constructor.
+     *
+     * @param classModelProvider provider of the models missing from the previous index, closed by this provider
+     * @param inputArchives archives containing the class files, not closed by this provider
+     * @param previousIndex index of the previous run, built the same way, <code>null</code> if none
+     * @param classModelIndexWriter writer of the next index
+     */
+    IndexedClassModelProvider(@NonNull final ClassModelProvider classModelProvider, @NonNull final InputArchives inputArchives, @Nullable final ClassModelIndex previousIndex, @NonNull final ClassModelIndexWriter classModelIndexWriter) {
+        this.classModelProvider = classModelProvider;
+        this.inputArchives = inputArchives;
+        this.previousIndex = previousIndex;
+        this.classModelIndexWriter = classModelIndexWriter;
+    }
+
+    @Override
+    @NonNull
+    public ClassModel getClassModel(@NonNull final String className, @Nullable final ByteBuffer classFile) throws IOException, ClassNotFoundException {
+        final ByteBuffer currentClassFile = classFile == null ? this.inputArchives.readClassFile(className) : classFile;
+        if (currentClassFile == null) {
+            throw new ClassNotFoundException(className);
+        }
+        final ClassModelIndex currentPreviousIndex = this.previousIndex;
+        ClassModel result = currentPreviousIndex == null ? null : currentPreviousIndex.getClassModel(className, currentClassFile);
+        if (result == null) {
+            result = this.classModelProvider.getClassModel(className, currentClassFile);
+        }
+        this.classModelIndexWriter.add(currentClassFile, result);
+        return result;
+    }
+
+    @Override
+    public void endChunk() {
+        this.classModelProvider.endChunk();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.classModelProvider.close();
+    }
+}
@@ -0,0 +1,291 @@
+package aka.junitgenerator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * All the jars, wars and classes directories given as input of a run, with their nested archives.
+ * Every archive is read once and every class file is then found with a lookup of its package then of its name.
+ * This index, whose keys are the names read from the archives, is the only structure kept per class:
+ * the classes to generate are listed from it, all at once or package by package.
+ * Nested archives not generated are only opened, and deflated ones inflated, when a class is missing from the main archives.
+ * Instances can be shared between threads once opened.
+ */
+public final class InputArchives implements ClassFileLookup, Closeable {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.InputArchives");
+
+    @NonNull
+    private final List<ClassArchive> archives = new ArrayList<>();
+    @NonNull
+    private final Map<String, Map<String, ClassArchive>> archiveByClassNameByPackage = new HashMap<>();
+    // Archives of a GenerationCache, closed by the cache
+    @NonNull
+    private final Set<ClassArchive> sharedArchives = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Archives whose classes are generated, the others only resolve them
+    @NonNull
+    private final Set<ClassArchive> generatedArchives = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Main archives whose nested archives are opened on the first class missing from them
+    @NonNull
+    private final List<ClassArchive> lazyNestedArchiveParents = new ArrayList<>();
+    @Nullable
+    private volatile InputArchives nestedArchives;
+
+    private InputArchives() {
+        // Use open
+    }
+
+    /**
+     * Open the given archives.
+     * When a class is in several archives, the first one wins; without <code>includeNestedArchives</code>, the main archives win over the nested ones.
+     *
+     * @param absolutePaths absolute paths to jars, wars or classes directories
+     * @param includeNestedArchives <code>true</code> to generate the classes of nested archives too;
+     *            otherwise they are opened on the first class missing from the main archives, to resolve their classes
+     * @return opened archives
+     * @throws IOException if an archive can not be opened
+     */
+    @NonNull
+    public static InputArchives open(@NonNull final List<String> absolutePaths, final boolean includeNestedArchives) throws IOException {
+        return open(absolutePaths, includeNestedArchives, null);
+    }
+
+    /**
+     * Open the given archives, reusing the archive files opened by a cache while they are not modified.
+     *
+     * @param absolutePaths absolute paths to jars, wars or classes directories
+     * @param includeNestedArchives <code>true</code> to generate the classes of nested archives too
+     * @param generationCache cache of the archive files, <code>null</code> to open them all
+     * @return opened archives
+     * @throws IOException if an archive can not be opened
+     * @see #open(List, boolean)
+     */
+    @NonNull
+    public static InputArchives open(@NonNull final List<String> absolutePaths, final boolean includeNestedArchives, @Nullable final GenerationCache generationCache) throws IOException {
+        final InputArchives result = new InputArchives();
+        try {
+            for (final String absolutePath : absolutePaths) {
+                final Path path = Paths.get(absolutePath);
+                ClassArchive classArchive = generationCache == null ? null : generationCache.getClassArchive(path);
+                if (classArchive != null) {
+                    result.sharedArchives.add(classArchive);
+                } else {
+                    classArchive = new File(absolutePath).isDirectory() ? new DirectoryClassArchive(path) : ZipClassArchive.open(path);
+                }
+                result.add(classArchive, true, includeNestedArchives);
+            }
+        } catch (final IOException e) {
+            result.close();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * @param generated <code>true</code> to generate the classes of the archive
+     * @param includeNestedArchives <code>true</code> to add the nested archives now, generated like their parent
+     */
+    private void add(@NonNull final ClassArchive classArchive, final boolean generated, final boolean includeNestedArchives) throws IOException {
+        this.archives.add(classArchive);
+        if (generated) {
+            this.generatedArchives.add(classArchive);
+        }
+        for (final String className : classArchive.getClassNames()) {
+            this.archiveByClassNameByPackage.computeIfAbsent(getPackageName(className), k -> new HashMap<>()).putIfAbsent(className, classArchive);
+        }
+        if (!includeNestedArchives) {
+            this.lazyNestedArchiveParents.add(classArchive);
+            return;
+        }
+        for (final ClassArchive nestedArchive : classArchive.getNestedArchives()) {
+            add(nestedArchive, generated, true);
+        }
+    }
+
+    /**
+     * @return <code>true</code> once the nested archives not opened with the main archives are opened
+     */
+    boolean isNestedArchivesOpen() {
+        return this.nestedArchives != null;
+    }
+
+    /**
+     * @return nested archives of the main archives not opened with them, opened by the first call; <code>null</code> if none
+     * @throws IOException if a nested archive can not be read
+     */
+    @Nullable
+    private InputArchives getNestedArchives() throws IOException {
+        InputArchives result = this.nestedArchives;
+        if (result == null && !this.lazyNestedArchiveParents.isEmpty()) {
+            synchronized (this.lazyNestedArchiveParents) {
+                result = this.nestedArchives;
+                if (result == null) {
+                    result = new InputArchives();
+                    try {
+                        for (final ClassArchive classArchive : this.lazyNestedArchiveParents) {
+                            for (final ClassArchive nestedArchive : classArchive.getNestedArchives()) {
+                                result.add(nestedArchive, false, true);
+                            }
+                        }
+                    } catch (final IOException e) {
+                        result.close();
+                        throw e;
+                    }
+                    this.nestedArchives = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return binary names of the classes to generate, sorted
+     */
+    @NonNull
+    public List<String> getClassNames() {
+        final List<String> result = new ArrayList<>();
+        for (final Map<String, ClassArchive> archiveByClassName : this.archiveByClassNameByPackage.values()) {
+            addGeneratedClassNames(archiveByClassName, result);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * @return names of the packages of the archives, sorted, the unnamed package being empty
+     */
+    @NonNull
+    public List<String> getPackageNames() {
+        final List<String> result = new ArrayList<>(this.archiveByClassNameByPackage.keySet());
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * @param packageName name of a package, empty for the unnamed package
+     * @return binary names of the classes of the package to generate, sorted
+     */
+    @NonNull
+    public List<String> getClassNames(@NonNull final String packageName) {
+        final List<String> result = new ArrayList<>();
+        final Map<String, ClassArchive> archiveByClassName = this.archiveByClassNameByPackage.get(packageName);
+        if (archiveByClassName != null) {
+            addGeneratedClassNames(archiveByClassName, result);
+            Collections.sort(result);
+        }
+        return result;
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return <code>true</code> if the class is in the archives and is generated
+     */
+    public boolean isGenerated(@NonNull final String className) {
+        final ClassArchive classArchive = getClassArchive(className);
+        return classArchive != null && this.generatedArchives.contains(classArchive);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return name of its package, empty for the unnamed package
+     */
+    @NonNull
+    static String getPackageName(@NonNull final String className) {
+        final int lastDot = className.lastIndexOf('.');
+        return lastDot < 0 ? "" : className.substring(0, lastDot);
+    }
+
+    private void addGeneratedClassNames(@NonNull final Map<String, ClassArchive> archiveByClassName, @NonNull final List<String> result) {
+        for (final Entry<String, ClassArchive> entry : archiveByClassName.entrySet()) {
+            if (this.generatedArchives.contains(entry.getValue())) {
+                result.add(entry.getKey());
+            }
+        }
+    }
+
+    @Nullable
+    private ClassArchive getClassArchive(@NonNull final String className) {
+        final Map<String, ClassArchive> archiveByClassName = this.archiveByClassNameByPackage.get(getPackageName(className));
+        return archiveByClassName == null ? null : archiveByClassName.get(className);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return size of its class file in bytes, -1 if the class is not in the archives
+     * @throws IOException if the size can not be read
+     */
+    public long getClassFileSize(@NonNull final String className) throws IOException {
+        final ClassArchive classArchive = getClassArchive(className);
+        if (classArchive == null) {
+            final InputArchives currentNestedArchives = getNestedArchives();
+            return currentNestedArchives == null ? -1 : currentNestedArchives.getClassFileSize(className);
+        }
+        return classArchive.getClassFileSize(className);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return time its class file was last modified at the latest, in milliseconds since the epoch, -1 if unknown or if the class is not in the archives
+     * @throws IOException if the time can not be read
+     */
+    public long getLastModified(@NonNull final String className) throws IOException {
+        final ClassArchive classArchive = getClassArchive(className);
+        if (classArchive == null) {
+            final InputArchives currentNestedArchives = getNestedArchives();
+            return currentNestedArchives == null ? -1 : currentNestedArchives.getLastModified(className);
+        }
+        return classArchive.getLastModified(className);
+    }
+
+    @Override
+    @Nullable
+    public ByteBuffer readClassFile(@NonNull final String className) throws IOException {
+        final ClassArchive classArchive = getClassArchive(className);
+        if (classArchive == null) {
+            final InputArchives currentNestedArchives = getNestedArchives();
+            return currentNestedArchives == null ? null : currentNestedArchives.readClassFile(className);
+        }
+        return classArchive.readClassFile(className);
+    }
+
+    @Override
+    public void close() {
+        for (final ClassArchive classArchive : this.archives) {
+            if (this.sharedArchives.contains(classArchive)) {
+                continue;
+            }
+            try {
+                classArchive.close();
+            } catch (final IOException e) {
+                LOGGER.logp(Level.SEVERE, "InputArchives", "close", e.getMessage(), e);
+            }
+        }
+        final InputArchives currentNestedArchives = this.nestedArchives;
+        if (currentNestedArchives != null) {
+            currentNestedArchives.close();
+            this.nestedArchives = null;
+        }
+        this.archives.clear();
+        this.sharedArchives.clear();
+        this.lazyNestedArchiveParents.clear();
+        this.archiveByClassNameByPackage.clear();
+        this.generatedArchives.clear();
+    }
+}
@@ -0,0 +1,382 @@
+package aka.junitgenerator;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Render the JMH benchmark skeleton of a class: a state holding an instance and the parameters of every public method,
+ * and one benchmark per public method returning its result, so that the call is not eliminated as dead code.
+ * Benchmarks are written under <code>src/main/java</code>, next to the <code>pom.xml</code> of their module given by {@link #renderModuleDescriptor()}.
+ * Instances are stateless and can be shared between threads.
+ */
+public final class JmhBenchmarkRenderer implements SourceRenderer {
+
+    /**
+     * Path of the module descriptor, relative to the destination directory.
+     */
+    @NonNull
+    public static final String MODULE_DESCRIPTOR = "pom.xml";
+
+    private static final String JMH_VERSION = "1.37";
+    private static final String SOURCE_DIRECTORY = "src/main/java/";
+    private static final String NEW_LINE = System.lineSeparator();
+    private static final String INDENT = "        ";
+    private static final String JMH = "org.openjdk.jmh.annotations.";
+
+    // Fixed parts of the generated source, joined once
+    private static final String CLASS_JAVADOC = NEW_LINE + "/**" + NEW_LINE + " * JMH benchmarks for the class ";
+    private static final String CLASS_DECLARATION = "." + NEW_LINE + " *" + NEW_LINE + " * @author JunitTestGenerator" + NEW_LINE + " */" + NEW_LINE
+            + "@" + JMH + "State(" + JMH + "Scope.Thread)" + NEW_LINE
+            + "@" + JMH + "BenchmarkMode(" + JMH + "Mode.AverageTime)" + NEW_LINE
+            + "@" + JMH + "OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)" + NEW_LINE
+            + "public class ";
+    private static final String AFTER_CLASS_DECLARATION = "_Benchmark {" + NEW_LINE + NEW_LINE;
+    private static final String PARAMETERS_COMMENT = "    // Parameters of the benchmarked methods, set them in setUp()" + NEW_LINE;
+    private static final String SET_UP = NEW_LINE + "    /**" + NEW_LINE + "     * Create the benchmarked instance and set the parameters." + NEW_LINE + "     */" + NEW_LINE
+            + "    @" + JMH + "Setup" + NEW_LINE + "    public void setUp()";
+    private static final String NO_CONSTRUCTOR = INDENT + "// No usable public constructor: set the benchmarked instance" + NEW_LINE;
+    private static final String END_OF_METHOD = "    }" + NEW_LINE;
+    private static final String BENCHMARK_DECLARATION = NEW_LINE + "    @" + JMH + "Benchmark" + NEW_LINE + "    public ";
+    private static final String THROWS = " throws Exception";
+    private static final String END_OF_CLASS = "}" + NEW_LINE;
+
+    /**
+     * Only the classes that can be named from their package are benchmarked: not private, local or anonymous classes.
+     *
+     * @param classModel class to benchmark
+     * @return <code>true</code> if the class is benchmarked
+     */
+    @Override
+    public boolean accepts(@NonNull final ClassModel classModel) {
+        if (Modifier.isPrivate(classModel.getModifiers())) {
+            return false;
+        }
+        final String name = classModel.getName();
+        // Local and anonymous classes have a binary name part starting with a digit
+        for (int dollar = name.indexOf('$', name.lastIndexOf('.') + 1); dollar >= 0; dollar = name.indexOf('$', dollar + 1)) {
+            if (dollar + 1 == name.length() || Character.isDigit(name.charAt(dollar + 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Path of the JMH benchmark of the given class.
+     *
+     * @param classModel class to benchmark
+     * @return path of the benchmark file, relative to the destination directory, '/' separated
+     */
+    @Override
+    @NonNull
+    public String getRelativePath(@NonNull final ClassModel classModel) {
+        final String fileName = classModel.getSimpleName() + "_Benchmark.java";
+        final String packageName = classModel.getPackageName();
+        return SOURCE_DIRECTORY + (packageName.isEmpty() ? fileName : packageName.replace('.', '/') + "/" + fileName);
+    }
+
+    /**
+     * Append the JMH benchmark skeleton of the given class.
+     *
+     * @param classModel class to benchmark
+     * @param out buffer to append to
+     */
+    @Override
+    public void render(@NonNull final ClassModel classModel, @NonNull final StringBuilder out) {
+        final String simpleName = classModel.getSimpleName();
+        final String className = getSourceName(classModel.getName());
+        final List<MethodModel> methods = new ArrayList<>();
+        boolean hasInstanceMethods = false;
+        for (final MethodModel methodModel : classModel.getMethods()) {
+            if (methodModel.isPublic()) {
+                methods.add(methodModel);
+                hasInstanceMethods |= !methodModel.isStatic();
+            }
+        }
+        // Constructors of inner classes take the enclosing instance
+        final boolean inner = classModel.getName().indexOf('$', classModel.getName().lastIndexOf('.') + 1) >= 0 && !Modifier.isStatic(classModel.getModifiers());
+        final MethodModel constructor = hasInstanceMethods && !inner ? getSimplestConstructor(classModel) : null;
+
+        // Type owning each simple name, written with its simple name; the other types are written with their full name
+        final Map<String, String> typeBySimpleName = new HashMap<>();
+        typeBySimpleName.put(simpleName + "_Benchmark", "");
+        final Set<String> imports = new TreeSet<>();
+        if (constructor != null) {
+            addImports(constructor.getParameterTypes(), classModel.getPackageName(), typeBySimpleName, imports);
+        }
+        for (final MethodModel methodModel : methods) {
+            addImports(methodModel.getParameterTypes(), classModel.getPackageName(), typeBySimpleName, imports);
+            addImport(methodModel.getReturnType(), classModel.getPackageName(), typeBySimpleName, imports);
+        }
+
+        if (!classModel.getPackageName().isEmpty()) {
+            out.append("package ").append(classModel.getPackageName()).append(';').append(NEW_LINE).append(NEW_LINE);
+        }
+        for (final String imported : imports) {
+            out.append("import ").append(imported).append(';').append(NEW_LINE);
+        }
+        out.append(CLASS_JAVADOC).append(simpleName).append(CLASS_DECLARATION).append(simpleName).append(AFTER_CLASS_DECLARATION);
+
+        if (hasInstanceMethods) {
+            out.append("    private ").append(className).append(" instance;").append(NEW_LINE);
+        }
+        final List<String> benchmarkNames = new ArrayList<>(methods.size());
+        final Set<String> usedBenchmarkNames = new HashSet<>();
+        boolean hasParameters = false;
+        for (final MethodModel methodModel : methods) {
+            final String benchmarkName = getBenchmarkName(methodModel, usedBenchmarkNames);
+            benchmarkNames.add(benchmarkName);
+            int j = 0;
+            for (final TypeModel parameterType : methodModel.getParameterTypes()) {
+                if (!hasParameters) {
+                    out.append(PARAMETERS_COMMENT);
+                    hasParameters = true;
+                }
+                out.append("    private ").append(getTypeName(parameterType, typeBySimpleName)).append(' ').append(benchmarkName).append("Param").append(j).append(';').append(NEW_LINE);
+                j++;
+            }
+        }
+
+        out.append(SET_UP);
+        if (constructor != null && !constructor.getExceptionTypes().isEmpty()) {
+            out.append(THROWS);
+        }
+        out.append(" {").append(NEW_LINE);
+        if (hasInstanceMethods) {
+            if (constructor == null) {
+                out.append(NO_CONSTRUCTOR).append(INDENT).append("this.instance = null;").append(NEW_LINE);
+            } else {
+                out.append(INDENT).append("this.instance = new ").append(className).append('(');
+                appendDefaultValues(constructor.getParameterTypes(), typeBySimpleName, out);
+                out.append(");").append(NEW_LINE);
+            }
+        }
+        out.append(END_OF_METHOD);
+
+        for (int i = 0; i < methods.size(); i++) {
+            final MethodModel methodModel = methods.get(i);
+            final String benchmarkName = benchmarkNames.get(i);
+            final TypeModel returnType = methodModel.getReturnType();
+            final boolean returnsVoid = "void".equals(returnType.getName());
+            out.append(BENCHMARK_DECLARATION).append(getTypeName(returnType, typeBySimpleName)).append(" benchmark");
+            out.append(capitalize(benchmarkName)).append("()");
+            if (!methodModel.getExceptionTypes().isEmpty()) {
+                out.append(THROWS);
+            }
+            out.append(" {").append(NEW_LINE).append(INDENT);
+            if (!returnsVoid) {
+                // Returned to JMH, which consumes it
+                out.append("return ");
+            }
+            out.append(methodModel.isStatic() ? className : "this.instance").append('.').append(methodModel.getName()).append('(');
+            for (int j = 0; j < methodModel.getParameterTypes().size(); j++) {
+                if (j > 0) {
+                    out.append(", ");
+                }
+                out.append("this.").append(benchmarkName).append("Param").append(j);
+            }
+            out.append(");").append(NEW_LINE).append(END_OF_METHOD);
+        }
+        out.append(END_OF_CLASS);
+    }
+
+    /**
+     * Render the <code>pom.xml</code> of the module of the benchmarks, building an executable <code>benchmarks.jar</code>.
+     *
+     * @return module descriptor, at {@link #MODULE_DESCRIPTOR}
+     */
+    @NonNull
+    public GeneratedFile renderModuleDescriptor() {
+        final StringBuilder out = new StringBuilder(2048);
+        out.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"").append(NEW_LINE);
+        out.append("\txsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">").append(NEW_LINE);
+        out.append("\t<modelVersion>4.0.0</modelVersion>").append(NEW_LINE).append(NEW_LINE);
+        out.append("\t<groupId>benchmarks</groupId>").append(NEW_LINE);
+        out.append("\t<artifactId>benchmarks</artifactId>").append(NEW_LINE);
+        out.append("\t<version>1.0-SNAPSHOT</version>").append(NEW_LINE);
+        out.append("\t<packaging>jar</packaging>").append(NEW_LINE).append(NEW_LINE);
+        out.append("\t<properties>").append(NEW_LINE);
+        out.append("\t\t<project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>").append(NEW_LINE);
+        out.append("\t\t<maven.compiler.source>1.8</maven.compiler.source>").append(NEW_LINE);
+        out.append("\t\t<maven.compiler.target>1.8</maven.compiler.target>").append(NEW_LINE);
+        out.append("\t\t<jmh.version>").append(JMH_VERSION).append("</jmh.version>").append(NEW_LINE);
+        out.append("\t</properties>").append(NEW_LINE).append(NEW_LINE);
+        out.append("\t<dependencies>").append(NEW_LINE);
+        out.append("\t\t<!-- Add the dependency on the benchmarked library here -->").append(NEW_LINE);
+        appendDependency("jmh-core", null, out);
+        appendDependency("jmh-generator-annprocess", "provided", out);
+        out.append("\t</dependencies>").append(NEW_LINE).append(NEW_LINE);
+        out.append("\t<build>").append(NEW_LINE);
+        out.append("\t\t<plugins>").append(NEW_LINE);
+        out.append("\t\t\t<plugin>").append(NEW_LINE);
+        out.append("\t\t\t\t<groupId>org.apache.maven.plugins</groupId>").append(NEW_LINE);
+        out.append("\t\t\t\t<artifactId>maven-shade-plugin</artifactId>").append(NEW_LINE);
+        out.append("\t\t\t\t<version>3.2.4</version>").append(NEW_LINE);
+        out.append("\t\t\t\t<executions>").append(NEW_LINE);
+        out.append("\t\t\t\t\t<execution>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t<phase>package</phase>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t<goals>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t<goal>shade</goal>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t</goals>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t<configuration>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t<finalName>benchmarks</finalName>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t<transformers>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t\t<transformer implementation=\"org.apache.maven.plugins.shade.resource.ManifestResourceTransformer\">").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t\t\t<mainClass>org.openjdk.jmh.Main</mainClass>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t\t</transformer>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t\t<transformer implementation=\"org.apache.maven.plugins.shade.resource.ServicesResourceTransformer\" />").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t\t</transformers>").append(NEW_LINE);
+        out.append("\t\t\t\t\t\t</configuration>").append(NEW_LINE);
+        out.append("\t\t\t\t\t</execution>").append(NEW_LINE);
+        out.append("\t\t\t\t</executions>").append(NEW_LINE);
+        out.append("\t\t\t</plugin>").append(NEW_LINE);
+        out.append("\t\t</plugins>").append(NEW_LINE);
+        out.append("\t</build>").append(NEW_LINE);
+        out.append("</project>").append(NEW_LINE);
+        return new GeneratedFile(MODULE_DESCRIPTOR, out.toString());
+    }
+
+    private static void appendDependency(@NonNull final String artifactId, @Nullable final String scope, @NonNull final StringBuilder out) {
+        out.append("\t\t<dependency>").append(NEW_LINE);
+        out.append("\t\t\t<groupId>org.openjdk.jmh</groupId>").append(NEW_LINE);
+        out.append("\t\t\t<artifactId>").append(artifactId).append("</artifactId>").append(NEW_LINE);
+        out.append("\t\t\t<version>${jmh.version}</version>").append(NEW_LINE);
+        if (scope != null) {
+            out.append("\t\t\t<scope>").append(scope).append("</scope>").append(NEW_LINE);
+        }
+        out.append("\t\t</dependency>").append(NEW_LINE);
+    }
+
+    /**
+     * @param classModel class to benchmark
+     * @return its public constructor with the fewest parameters, <code>null</code> if none
+     */
+    @Nullable
+    private static MethodModel getSimplestConstructor(@NonNull final ClassModel classModel) {
+        MethodModel result = null;
+        for (final MethodModel constructor : classModel.getConstructors()) {
+            if (constructor.isPublic() && (result == null || constructor.getParameterTypes().size() < result.getParameterTypes().size())) {
+                result = constructor;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param methodModel benchmarked method
+     * @param usedBenchmarkNames capitalized names given to the previous methods of the class, updated
+     * @return name of the benchmark, distinct from the previous ones, prefix of its parameter fields
+     */
+    @NonNull
+    private static String getBenchmarkName(@NonNull final MethodModel methodModel, @NonNull final Set<String> usedBenchmarkNames) {
+        final StringBuilder name = new StringBuilder(methodModel.getName());
+        if (!methodModel.getParameterTypes().isEmpty()) {
+            name.append("With");
+            for (final TypeModel parameterType : methodModel.getParameterTypes()) {
+                // Element type then a suffix per dimension: int[][] gives intArrayArray
+                name.append(parameterType.getSimpleName().replace("[]", "Array"));
+            }
+        }
+        // Overloads taking types of the same simple name from different packages are numbered
+        String result = name.toString();
+        for (int i = 2; !usedBenchmarkNames.add(capitalize(result)); i++) {
+            result = name.toString() + i;
+        }
+        return result;
+    }
+
+    @NonNull
+    private static String capitalize(@NonNull final String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static void appendDefaultValues(@NonNull final List<@NonNull TypeModel> parameterTypes, @NonNull final Map<String, String> typeBySimpleName, @NonNull final StringBuilder out) {
+        for (int j = 0; j < parameterTypes.size(); j++) {
+            if (j > 0) {
+                out.append(", ");
+            }
+            final TypeModel parameterType = parameterTypes.get(j);
+            // Casts select the constructor when several have the same number of parameters
+            if ("boolean".equals(parameterType.getName())) {
+                out.append("false");
+            } else {
+                out.append('(').append(getTypeName(parameterType, typeBySimpleName)).append(") ").append(parameterType.isPrimitive() ? "0" : "null");
+            }
+        }
+    }
+
+    private static void addImports(@NonNull final List<@NonNull TypeModel> typeModels, @NonNull final String packageName, @NonNull final Map<String, String> typeBySimpleName, @NonNull final Set<String> imports) {
+        for (final TypeModel typeModel : typeModels) {
+            addImport(typeModel, packageName, typeBySimpleName, imports);
+        }
+    }
+
+    private static void addImport(@NonNull final TypeModel typeModel, @NonNull final String packageName, @NonNull final Map<String, String> typeBySimpleName, @NonNull final Set<String> imports) {
+        final String elementName = getElementName(typeModel);
+        if (elementName == null) {
+            return;
+        }
+        final String sourceName = getSourceName(elementName);
+        final String simpleName = sourceName.substring(sourceName.lastIndexOf('.') + 1);
+        if (typeBySimpleName.putIfAbsent(simpleName, sourceName) == null) {
+            // Top-level types of java.lang and of the package are visible without import
+            final int lastDot = elementName.lastIndexOf('.');
+            final String typePackageName = lastDot < 0 ? "" : elementName.substring(0, lastDot);
+            if (elementName.indexOf('$') >= 0 || !typePackageName.equals("java.lang") && !typePackageName.equals(packageName)) {
+                imports.add(sourceName);
+            }
+        }
+    }
+
+    @NonNull
+    private static String getTypeName(@NonNull final TypeModel typeModel, @NonNull final Map<String, String> typeBySimpleName) {
+        final String elementName = getElementName(typeModel);
+        if (elementName == null) {
+            return typeModel.getSimpleName();
+        }
+        final String sourceName = getSourceName(elementName);
+        if (sourceName.equals(typeBySimpleName.get(sourceName.substring(sourceName.lastIndexOf('.') + 1)))) {
+            return typeModel.getSimpleName();
+        }
+        final StringBuilder result = new StringBuilder(sourceName);
+        for (int i = 0; typeModel.getName().charAt(i) == '['; i++) {
+            result.append("[]");
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param typeModel type
+     * @return binary name of the class of the type or of its elements, <code>null</code> for primitive types
+     */
+    @Nullable
+    private static String getElementName(@NonNull final TypeModel typeModel) {
+        if (typeModel.isPrimitive()) {
+            return null;
+        }
+        if (!typeModel.isArray()) {
+            return typeModel.getName();
+        }
+        final String name = typeModel.getName();
+        final int dimensions = name.lastIndexOf('[') + 1;
+        return name.charAt(dimensions) == 'L' ? name.substring(dimensions + 1, name.length() - 1) : null;
+    }
+
+    /**
+     * @param binaryName binary name of a class
+     * @return name of the class in a source file
+     */
+    @NonNull
+    private static String getSourceName(@NonNull final String binaryName) {
+        return binaryName.replace('$', '.');
+    }
+}
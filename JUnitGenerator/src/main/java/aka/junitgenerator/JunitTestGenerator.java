@@ -0,0 +1,683 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import aka.junitgenerator.GenerationMetrics.Phase;
+
+/**
+ * Generate Junit test.
+ * Quick & dirty ;)
+ */
+public final class JunitTestGenerator {
+
+    private static @NonNull final Logger LOGGER = Logger.getLogger("aka.junitgenerator.JUnitGenerator.MediaInfoJavaGenerator");
+
+    // Time after which the measure of a class is abandoned, for instance when a method blocks
+    private static final long BASELINE_TIMEOUT_MILLIS = 30000;
+
+    @NonNull
+    private ClassModelSource classModelSource = ClassModelSource.BYTECODE;
+    private int modelWorkers = Runtime.getRuntime().availableProcessors();
+    private int renderWorkers = Runtime.getRuntime().availableProcessors();
+    private int writeWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 256;
+    @Nullable
+    private String manifestFile;
+    private boolean useTimestamps = true;
+    @Nullable
+    private String dependencyIndexFile;
+    private boolean includeNestedArchives;
+    private int slowestClassCount = 10;
+    @Nullable
+    private String runSummaryFile;
+    @Nullable
+    private GenerationMetrics lastRunMetrics;
+    @Nullable
+    private GenerationCache generationCache;
+    @Nullable
+    private Set<String> selectedClassNames;
+    @Nullable
+    private String classModelIndexFile;
+    @NonNull
+    private ClassFilter classFilter = ClassFilter.ALL;
+    @Nullable
+    private String benchmarkDirectory;
+    @Nullable
+    private String baselineFile;
+    private double baselineTolerance = 3;
+    private int baselineWarmupIterations = 1000;
+    private int baselineIterations = 10000;
+    private boolean remeasureBaselines;
+    private int memoryBudget;
+
+    /**
+     * Set how the constructors and methods of the classes are discovered.
+     * Default is {@link ClassModelSource#BYTECODE}.
+     *
+     * @param classModelSource source of the class models
+     */
+    public void setClassModelSource(@NonNull final ClassModelSource classModelSource) {
+        this.classModelSource = classModelSource;
+    }
+
+    /**
+     * Set the number of threads reading or loading classes.
+     * Default is the number of available processors.
+     *
+     * @param modelWorkers number of threads, at least 1
+     */
+    public void setModelWorkers(final int modelWorkers) {
+        this.modelWorkers = checkPositive(modelWorkers);
+    }
+
+    /**
+     * Set the number of threads rendering test files.
+     * Default is the number of available processors.
+     *
+     * @param renderWorkers number of threads, at least 1
+     */
+    public void setRenderWorkers(final int renderWorkers) {
+        this.renderWorkers = checkPositive(renderWorkers);
+    }
+
+    /**
+     * Set the number of threads writing test files.
+     * Default is half the number of available processors.
+     *
+     * @param writeWorkers number of threads, at least 1
+     */
+    public void setWriteWorkers(final int writeWorkers) {
+        this.writeWorkers = checkPositive(writeWorkers);
+    }
+
+    /**
+     * Set the maximum number of items waiting in front of each stage.
+     * A full queue blocks the previous stage. Default is 256.
+     *
+     * @param queueCapacity capacity of each queue, at least 1
+     */
+    public void setQueueCapacity(final int queueCapacity) {
+        this.queueCapacity = checkPositive(queueCapacity);
+    }
+
+    /**
+     * Set the manifest file used for incremental generation.
+     * It records a fingerprint of every class file and the files generated from it:
+     * unchanged classes are skipped and files generated for removed classes are deleted.
+     * Default is <code>null</code>: every class is generated each time.
+     *
+     * @param manifestFile absolute path to the manifest file, <code>null</code> to disable incremental generation
+     */
+    public void setManifestFile(@Nullable final String manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Skip the class files modified before the run which wrote the manifest file without reading them: only the newer ones are read and fingerprinted.
+     * Disable it if the class files can be replaced with their modification time kept, for instance when they are restored from an archive.
+     * Default is <code>true</code>.
+     *
+     * @param useTimestamps <code>true</code> to compare the modification times first
+     */
+    public void setUseTimestamps(final boolean useTimestamps) {
+        this.useTimestamps = useTimestamps;
+    }
+
+    /**
+     * Set the file where the packages of every dependent jar are saved.
+     * Unchanged jars are then not read again by the next runs, only those whose classes are needed.
+     * Default is <code>null</code>: every dependent jar is read each time.
+     *
+     * @param dependencyIndexFile absolute path to the index file, <code>null</code> to disable it
+     */
+    public void setDependencyIndexFile(@Nullable final String dependencyIndexFile) {
+        this.dependencyIndexFile = dependencyIndexFile;
+    }
+
+    /**
+     * Set whether the classes of archives nested in the inputs (libraries of a fat jar or a war, jars in a classes directory) are generated too.
+     * Nested archives are always read to resolve the classes of the inputs. Default is <code>false</code>.
+     *
+     * @param includeNestedArchives <code>true</code> to generate the classes of nested archives
+     */
+    public void setIncludeNestedArchives(final boolean includeNestedArchives) {
+        this.includeNestedArchives = includeNestedArchives;
+    }
+
+    /**
+     * Set the number of slowest classes reported by the metrics of a run.
+     * Default is 10.
+     *
+     * @param slowestClassCount number of classes, 0 for none
+     */
+    public void setSlowestClassCount(final int slowestClassCount) {
+        if (slowestClassCount < 0) {
+            throw new IllegalArgumentException("Value must be at least 0: " + slowestClassCount);
+        }
+        this.slowestClassCount = slowestClassCount;
+    }
+
+    /**
+     * Set the file where a summary of each run is written when it ends, as JSON:
+     * latency of each phase, slowest classes, skipped classes by reason and failed classes by exception.
+     * Default is <code>null</code>: no summary is written.
+     *
+     * @param runSummaryFile absolute path to the summary file, <code>null</code> to disable it
+     */
+    public void setRunSummaryFile(@Nullable final String runSummaryFile) {
+        this.runSummaryFile = runSummaryFile;
+    }
+
+    /**
+     * Set the cache kept between runs, such as the runs of a {@link GeneratorDaemon}: class models of unchanged class files are reused
+     * and so are the dependency index while no dependency changes and the input jars while they are not modified.
+     * Default is <code>null</code>: nothing is kept.
+     *
+     * @param generationCache cache, not closed by this generator, <code>null</code> to disable it
+     */
+    public void setGenerationCache(@Nullable final GenerationCache generationCache) {
+        this.generationCache = generationCache;
+    }
+
+    /**
+     * Restrict the runs to the given classes, for instance the ones just compiled.
+     * The files generated for the other classes are kept, and so are their manifest entries.
+     * Default is <code>null</code>: every class of the inputs is generated.
+     *
+     * @param classNames binary names of the classes to generate, <code>null</code> for all
+     */
+    public void setClassNames(@Nullable final Collection<String> classNames) {
+        this.selectedClassNames = classNames == null ? null : new HashSet<>(classNames);
+    }
+
+    /**
+     * Set which classes of the inputs are generated, by package, by class name or by shard.
+     * The other classes are never read, and the files generated for them by previous runs are deleted,
+     * so each shard of a run must have its own destination directory and manifest.
+     * Default is {@link ClassFilter#ALL}.
+     *
+     * @param classFilter filter of the classes
+     */
+    public void setClassFilter(@NonNull final ClassFilter classFilter) {
+        this.classFilter = classFilter;
+    }
+
+    /**
+     * Set the file where the model of every class is saved, as a {@link ClassModelIndex}.
+     * The next runs reuse the models of unchanged class files instead of building them again,
+     * and other tools can query the index without reading any class.
+     * Default is <code>null</code>: no index is written.
+     *
+     * @param classModelIndexFile absolute path to the index file, <code>null</code> to disable it
+     */
+    public void setClassModelIndexFile(@Nullable final String classModelIndexFile) {
+        this.classModelIndexFile = classModelIndexFile;
+    }
+
+    /**
+     * Set the directory of a Maven module where a JMH benchmark skeleton of every class is generated, next to its test.
+     * The <code>pom.xml</code> of the module is written if absent; add the dependency on the benchmarked library to it.
+     * Default is <code>null</code>: no benchmark is generated.
+     *
+     * @param benchmarkDirectory absolute path to the directory of the module, or to a <code>.srcjar</code> or <code>.zip</code> archive, <code>null</code> to disable the benchmarks
+     */
+    public void setBenchmarkDirectory(@Nullable final String benchmarkDirectory) {
+        this.benchmarkDirectory = benchmarkDirectory;
+    }
+
+    /**
+     * Enable the performance baselines: the public constructors and methods with only primitive parameters are called with zero values,
+     * in a class loader seeing only the inputs, the dependencies and the platform classes, and their durations and allocations are saved to the given file.
+     * Their tests then check that a call stays within {@link #setBaselineTolerance(double)} times its baseline.
+     * Only the classes without baseline are measured, unless {@link #setRemeasureBaselines(boolean)} is set.
+     * <p>
+     * This runs the code of the inputs with the permissions of the current user: the calls are made in a separate JVM, started from the
+     * <code>java</code> of the current one, so that exiting, static state or a class stuck past its timeout do not reach the generator;
+     * but files, network and processes are reachable. Use a {@link ClassFilter} to select the classes safe to call.
+     * Default is <code>null</code>: nothing is called.
+     *
+     * @param baselineFile absolute path to the baseline file, <code>null</code> to disable the baselines
+     */
+    public void setBaselineFile(@Nullable final String baselineFile) {
+        this.baselineFile = baselineFile;
+    }
+
+    /**
+     * Set how many times its baseline a call may take in the generated performance tests, duration and allocations.
+     * Default is 3.
+     *
+     * @param baselineTolerance multiple of the baseline, at least 1
+     */
+    public void setBaselineTolerance(final double baselineTolerance) {
+        if (!(baselineTolerance >= 1)) {
+            throw new IllegalArgumentException("Tolerance must be at least 1: " + baselineTolerance);
+        }
+        this.baselineTolerance = baselineTolerance;
+    }
+
+    /**
+     * Set the number of calls of a member before measuring it.
+     * Default is 1000.
+     *
+     * @param baselineWarmupIterations maximum number of warmup calls, stopped earlier for slow members
+     */
+    public void setBaselineWarmupIterations(final int baselineWarmupIterations) {
+        this.baselineWarmupIterations = checkPositive(baselineWarmupIterations);
+    }
+
+    /**
+     * Set the number of measured calls of a member.
+     * Default is 10000.
+     *
+     * @param baselineIterations maximum number of measured calls, stopped earlier for slow members
+     */
+    public void setBaselineIterations(final int baselineIterations) {
+        this.baselineIterations = checkPositive(baselineIterations);
+    }
+
+    /**
+     * Set whether the classes which already have a baseline are measured again, and their tests generated again.
+     * Default is <code>false</code>.
+     *
+     * @param remeasureBaselines <code>true</code> to measure every selected class
+     */
+    public void setRemeasureBaselines(final boolean remeasureBaselines) {
+        this.remeasureBaselines = remeasureBaselines;
+    }
+
+    /**
+     * Set the bounded-memory mode: the classes are generated chunk by chunk, each chunk made of whole packages whose class files fit in the budget.
+     * With {@link ClassModelSource#REFLECTION}, the classes of a chunk are loaded by class loaders dropped at the end of the chunk,
+     * so that the loaded classes do not pile up for the whole run; the classes to generate are never listed all at once.
+     * The manifest and the class model index, which hold an entry per class in the heap, are neither read nor written in this mode:
+     * every selected class is generated. The index of the input archives, one entry per class, is still kept for the whole run.
+     * Default is 0: a single chunk.
+     *
+     * @param memoryBudget maximum size of the class files of a chunk in megabytes, unless a single package is larger; 0 to disable
+     */
+    public void setMemoryBudget(final int memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Value must be at least 0: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return measures of the last run, <code>null</code> if none ran yet
+     */
+    @Nullable
+    public GenerationMetrics getLastRunMetrics() {
+        return this.lastRunMetrics;
+    }
+
+    private static int checkPositive(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Value must be at least 1: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Generate JUnit tests from classes presents in the given jar or classes directory.
+     *
+     * @param destinationDirectory destination directory for generated classes.
+     * @param absolutePath absolute path to the jar/directory classes.
+     * @param dependentJarsListAbsolutePath list of mandatory additional jars, directories or wildcards such as <code>lib/*</code> (not needed with {@link ClassModelSource#BYTECODE}).
+     */
+    public void generateJunitTestClasses(@NonNull final String destinationDirectory, @NonNull final String absolutePath, @NonNull final List<String> dependentJarsListAbsolutePath) {
+        generateJunitTestClasses(destinationDirectory, Collections.singletonList(absolutePath), dependentJarsListAbsolutePath);
+    }
+
+    /**
+     * Generate JUnit tests from classes presents in the given jars, wars or classes directories.
+     *
+     * @param destinationDirectory destination directory for generated classes, or a <code>.srcjar</code> or <code>.zip</code> archive to write them to.
+     * @param absolutePaths absolute paths to the jars/wars/directories classes; a class present in several inputs is taken from the first one.
+     * @param dependentJarsListAbsolutePath list of mandatory additional jars, directories or wildcards such as <code>lib/*</code> (not needed with {@link ClassModelSource#BYTECODE}).
+     */
+    public void generateJunitTestClasses(@NonNull final String destinationDirectory, @NonNull final List<String> absolutePaths, @NonNull final List<String> dependentJarsListAbsolutePath) {
+        try (OutputSink outputSink = openOutputSink(destinationDirectory)) {
+            generateJunitTestClasses(outputSink, absolutePaths, dependentJarsListAbsolutePath);
+        } catch (final IOException e) {
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "generateJunitTestClasses", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generate JUnit tests from classes presents in the given jars, wars or classes directories.
+     *
+     * @param outputSink destination of the generated files, not closed by this generator.
+     * @param absolutePaths absolute paths to the jars/wars/directories classes; a class present in several inputs is taken from the first one.
+     * @param dependentJarsListAbsolutePath list of mandatory additional jars, directories or wildcards such as <code>lib/*</code> (not needed with {@link ClassModelSource#BYTECODE}).
+     */
+    public void generateJunitTestClasses(@NonNull final OutputSink outputSink, @NonNull final List<String> absolutePaths, @NonNull final List<String> dependentJarsListAbsolutePath) {
+        final GenerationMetrics generationMetrics = new GenerationMetrics(this.slowestClassCount);
+        this.lastRunMetrics = generationMetrics;
+        final Object generationEvent = FlightRecorderEvents.beginGeneration();
+        final long scanStart = System.nanoTime();
+        final GenerationCache currentGenerationCache = this.generationCache;
+        final String currentBenchmarkDirectory = this.benchmarkDirectory;
+        try (OutputSink benchmarkSink = currentBenchmarkDirectory == null ? null : openOutputSink(currentBenchmarkDirectory); InputArchives inputArchives = InputArchives.open(absolutePaths, this.includeNestedArchives, currentGenerationCache); DependencyIndex ownedDependencyIndex = currentGenerationCache == null ? openDependencyIndex(dependentJarsListAbsolutePath) : null) {
+            final DependencyIndex dependencyIndex = currentGenerationCache == null ? ownedDependencyIndex : getCachedDependencyIndex(currentGenerationCache, dependentJarsListAbsolutePath);
+            if (this.memoryBudget > 0 && (this.manifestFile != null || this.classModelIndexFile != null)) {
+                LOGGER.logp(Level.INFO, "JunitTestGenerator", "generateJunitTestClasses", "Manifest and class model index not used with a memory budget");
+            }
+            final ClassModelIndexWriter classModelIndexWriter = this.classModelIndexFile == null || this.memoryBudget > 0 ? null : new ClassModelIndexWriter(this.classModelSource);
+            try (ClassModelIndex previousClassModelIndex = openClassModelIndex(); ClassModelProvider classModelProvider = createClassModelProvider(inputArchives, dependencyIndex, currentGenerationCache, previousClassModelIndex, classModelIndexWriter, generationMetrics)) {
+                // In bounded-memory mode, the classes are listed package by package while generating them
+                final List<String> classNames = this.memoryBudget == 0 ? this.classFilter.filter(inputArchives.getClassNames()) : null;
+                final Predicate<String> discovered = classNames == null ? className -> inputArchives.isGenerated(className) && this.classFilter.accept(className) : new HashSet<>(classNames)::contains;
+                generationMetrics.record(Phase.SCAN, System.nanoTime() - scanStart);
+                if (classNames != null) {
+                    generationMetrics.setDiscoveredClasses(classNames.size());
+                }
+                final PerformanceBaselines performanceBaselines = loadBaselines();
+                final JunitTestRenderer junitTestRenderer = performanceBaselines == null ? new JunitTestRenderer() : new JunitTestRenderer(performanceBaselines, this.baselineTolerance);
+                final ForkedBaselineMeasurer baselineMeasurer = performanceBaselines == null ? null : new ForkedBaselineMeasurer(absolutePaths, dependentJarsListAbsolutePath, this.includeNestedArchives, this.baselineWarmupIterations, this.baselineIterations, BASELINE_TIMEOUT_MILLIS);
+                final GenerationPipeline generationPipeline = new GenerationPipeline(classModelProvider, junitTestRenderer, outputSink, this.modelWorkers, this.renderWorkers, this.writeWorkers, this.queueCapacity, generationMetrics);
+                if (benchmarkSink != null) {
+                    final JmhBenchmarkRenderer jmhBenchmarkRenderer = new JmhBenchmarkRenderer();
+                    if (!benchmarkSink.exists(JmhBenchmarkRenderer.MODULE_DESCRIPTOR)) {
+                        final GeneratedFile moduleDescriptor = jmhBenchmarkRenderer.renderModuleDescriptor();
+                        benchmarkSink.write(moduleDescriptor.getRelativePath(), moduleDescriptor.getContent());
+                    }
+                    generationPipeline.setBenchmarks(jmhBenchmarkRenderer, benchmarkSink);
+                }
+                run(generationPipeline, classModelProvider, inputArchives, baselineMeasurer, performanceBaselines, benchmarkSink != null, classNames, discovered, generationMetrics);
+                if (classModelIndexWriter != null) {
+                    saveClassModelIndex(classModelIndexWriter, previousClassModelIndex, discovered);
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "generateJunitTestClasses", e.getMessage(), e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "generateJunitTestClasses", e.getMessage(), e);
+        } finally {
+            generationMetrics.end();
+            FlightRecorderEvents.endGeneration(generationEvent, String.join(File.pathSeparator, absolutePaths), outputSink.getLocation(), generationMetrics);
+            writeRunSummary(generationMetrics);
+        }
+    }
+
+    /**
+     * @param benchmarks <code>true</code> if benchmarks are generated too
+     * @param classNames binary names of the discovered classes, <code>null</code> in bounded-memory mode
+     * @param discovered filter of the discovered classes
+     */
+    private void run(@NonNull final GenerationPipeline generationPipeline, @NonNull final ClassModelProvider classModelProvider, @NonNull final InputArchives inputArchives, @Nullable final ForkedBaselineMeasurer baselineMeasurer, @Nullable final PerformanceBaselines performanceBaselines, final boolean benchmarks, @Nullable final List<String> classNames, @NonNull final Predicate<String> discovered, @NonNull final GenerationMetrics generationMetrics) throws IOException, InterruptedException {
+        final String currentManifestFile = this.manifestFile;
+        if (currentManifestFile == null || this.memoryBudget > 0) {
+            // The manifests would grow with every chunk
+            runChunks(generationPipeline, classModelProvider, inputArchives, baselineMeasurer, performanceBaselines, classNames, discovered, generationMetrics);
+        } else {
+            final Path manifestPath = Paths.get(currentManifestFile);
+            // Time the previous run started, see below
+            final long previousManifestTime = this.useTimestamps && Files.isRegularFile(manifestPath) ? Files.getLastModifiedTime(manifestPath).toMillis() : -1;
+            final FingerprintManifest previousManifest = loadManifest(manifestPath);
+            final String settings = getSettings(performanceBaselines != null, benchmarks);
+            final FingerprintManifest currentManifest = new FingerprintManifest(settings);
+            // Files generated with other settings are all generated again; the previous manifest still gives the files to delete
+            generationPipeline.setManifests(inputArchives, settings.equals(previousManifest.getSettings()) ? previousManifest : new FingerprintManifest(settings), currentManifest, previousManifestTime);
+            final FileTime start = FileTime.fromMillis(System.currentTimeMillis());
+            runChunks(generationPipeline, classModelProvider, inputArchives, baselineMeasurer, performanceBaselines, classNames, discovered, generationMetrics);
+            // Classes not selected keep their previous entry
+            for (final String obsoleteOutput : currentManifest.mergePrevious(previousManifest, discovered)) {
+                try {
+                    generationPipeline.deleteOutput(obsoleteOutput);
+                } catch (final IOException e) {
+                    LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "run", e.getMessage(), e);
+                }
+            }
+            currentManifest.save(manifestPath);
+            // Dated when the run started, not ended: a class file compiled during the run was maybe not fingerprinted
+            Files.setLastModifiedTime(manifestPath, start);
+        }
+    }
+
+    /**
+     * Run the pipeline on the selected classes, in a single chunk or in chunks of packages streamed from the archives in the bounded-memory mode.
+     */
+    private void runChunks(@NonNull final GenerationPipeline generationPipeline, @NonNull final ClassModelProvider classModelProvider, @NonNull final InputArchives inputArchives, @Nullable final ForkedBaselineMeasurer baselineMeasurer, @Nullable final PerformanceBaselines performanceBaselines, @Nullable final List<String> classNames, @NonNull final Predicate<String> discovered, @NonNull final GenerationMetrics generationMetrics) throws IOException, InterruptedException {
+        final Set<String> currentSelectedClassNames = this.selectedClassNames;
+        final Predicate<String> selected = currentSelectedClassNames == null ? className -> true : currentSelectedClassNames::contains;
+        final PackageChunks packageChunks;
+        List<String> chunk;
+        if (classNames == null) {
+            packageChunks = new PackageChunks(inputArchives, discovered, selected, this.memoryBudget * 1024L * 1024L);
+            chunk = packageChunks.next();
+        } else {
+            packageChunks = null;
+            chunk = classNames;
+            if (currentSelectedClassNames != null) {
+                chunk = new ArrayList<>();
+                for (final String className : classNames) {
+                    if (currentSelectedClassNames.contains(className)) {
+                        chunk.add(className);
+                    }
+                }
+            }
+        }
+        while (chunk != null) {
+            if (performanceBaselines != null) {
+                // Measured before the tests are rendered, which read the baselines
+                generationPipeline.setRegeneratedClassNames(measureBaselines(performanceBaselines, baselineMeasurer, chunk, generationMetrics));
+            }
+            generationPipeline.run(chunk);
+            // The models are rendered: classes loaded for the chunk can be unloaded
+            classModelProvider.endChunk();
+            chunk = packageChunks == null ? null : packageChunks.next();
+        }
+        if (packageChunks != null) {
+            generationMetrics.setDiscoveredClasses(packageChunks.getDiscoveredClassCount());
+        }
+    }
+
+    /**
+     * Digest of what the generated files depend on besides the class files: the version of the generator,
+     * the class files of the renderers, the source of the class models, the baseline tolerance and whether benchmarks are generated.
+     *
+     * @param baselines <code>true</code> if the tests check performance baselines
+     * @param benchmarks <code>true</code> if benchmarks are generated too
+     * @return digest, as an hexadecimal string
+     * @throws IOException if the class file of a renderer can not be read
+     */
+    @NonNull
+    private String getSettings(final boolean baselines, final boolean benchmarks) throws IOException {
+        final Package generatorPackage = JunitTestGenerator.class.getPackage();
+        final StringBuilder settings = new StringBuilder("version ").append(generatorPackage == null ? null : generatorPackage.getImplementationVersion());
+        // Development builds keep their version: the templates are in the constant pools of the renderers
+        for (final Class<?> rendererClass : Arrays.asList(JunitTestRenderer.class, JmhBenchmarkRenderer.class)) {
+            final String classFileName = rendererClass.getSimpleName() + ".class";
+            try (InputStream inputStream = rendererClass.getResourceAsStream(classFileName)) {
+                if (inputStream == null) {
+                    throw new IOException("Class file not found: " + classFileName);
+                }
+                settings.append("\nrenderer ").append(rendererClass.getName()).append(' ').append(FingerprintManifest.fingerprint(ByteBuffer.wrap(IOUtils.toByteArray(inputStream))));
+            }
+        }
+        settings.append("\nsource ").append(this.classModelSource);
+        settings.append("\ntolerance ").append(baselines ? String.valueOf(this.baselineTolerance) : "none");
+        settings.append("\nbenchmarks ").append(benchmarks);
+        return FingerprintManifest.fingerprint(ByteBuffer.wrap(settings.toString().getBytes(Charset.forName("UTF-8"))));
+    }
+
+    @Nullable
+    private PerformanceBaselines loadBaselines() {
+        final String currentBaselineFile = this.baselineFile;
+        if (currentBaselineFile == null) {
+            return null;
+        }
+        try {
+            return PerformanceBaselines.load(Paths.get(currentBaselineFile));
+        } catch (final IOException e) {
+            // Start again from scratch: every class will be measured
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "loadBaselines", e.getMessage(), e);
+            return new PerformanceBaselines();
+        }
+    }
+
+    /**
+     * Measure the classes without baseline, or all of them when remeasuring, in a separate JVM, and save the baselines.
+     *
+     * @return binary names of the measured classes, whose tests must be generated again
+     */
+    @NonNull
+    private Set<String> measureBaselines(@NonNull final PerformanceBaselines performanceBaselines, @NonNull final ForkedBaselineMeasurer baselineMeasurer, @NonNull final List<String> classNames, @NonNull final GenerationMetrics generationMetrics) throws InterruptedException {
+        final List<String> measuredClassNames = new ArrayList<>();
+        for (final String className : classNames) {
+            if (this.remeasureBaselines || !performanceBaselines.contains(className)) {
+                measuredClassNames.add(className);
+            }
+        }
+        if (measuredClassNames.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final long start = System.nanoTime();
+        try {
+            baselineMeasurer.measure(measuredClassNames, performanceBaselines);
+        } catch (final IOException e) {
+            // Generated without performance tests, measured again by the next run
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "measureBaselines", e.getMessage(), e);
+            return Collections.emptySet();
+        } finally {
+            generationMetrics.record(Phase.BASELINE, System.nanoTime() - start);
+        }
+        final String currentBaselineFile = this.baselineFile;
+        if (currentBaselineFile != null) {
+            try {
+                performanceBaselines.save(Paths.get(currentBaselineFile));
+            } catch (final IOException e) {
+                LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "measureBaselines", e.getMessage(), e);
+            }
+        }
+        return new HashSet<>(measuredClassNames);
+    }
+
+    @NonNull
+    private static OutputSink openOutputSink(@NonNull final String destination) throws IOException {
+        final Path destinationPath = Paths.get(destination);
+        final String fileName = destinationPath.getFileName() == null ? "" : destinationPath.getFileName().toString();
+        return fileName.endsWith(".srcjar") || fileName.endsWith(".zip") ? new ZipOutputSink(destinationPath) : new DirectoryOutputSink(destinationPath);
+    }
+
+    private void writeRunSummary(@NonNull final GenerationMetrics generationMetrics) {
+        final String currentRunSummaryFile = this.runSummaryFile;
+        if (currentRunSummaryFile != null) {
+            try {
+                generationMetrics.writeSummary(Paths.get(currentRunSummaryFile));
+            } catch (final IOException e) {
+                LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "writeRunSummary", e.getMessage(), e);
+            }
+        }
+    }
+
+    @NonNull
+    private FingerprintManifest loadManifest(@NonNull final Path manifestPath) {
+        try {
+            return FingerprintManifest.load(manifestPath);
+        } catch (final IOException e) {
+            // Start again from scratch: every class will be generated
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "loadManifest", e.getMessage(), e);
+            return new FingerprintManifest();
+        }
+    }
+
+    @Nullable
+    private ClassModelIndex openClassModelIndex() {
+        final String currentClassModelIndexFile = this.classModelIndexFile;
+        if (currentClassModelIndexFile == null || this.memoryBudget > 0 || !Files.exists(Paths.get(currentClassModelIndexFile))) {
+            return null;
+        }
+        try {
+            // Read rather than mapped: the file is replaced at the end of the run while the index is still open
+            final ClassModelIndex result = ClassModelIndex.read(Paths.get(currentClassModelIndexFile));
+            if (result.getClassModelSource() == this.classModelSource) {
+                return result;
+            }
+            // Models built another way can not be reused
+            result.close();
+            return null;
+        } catch (final IOException e) {
+            // Start again from scratch: every model will be built
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "openClassModelIndex", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private void saveClassModelIndex(@NonNull final ClassModelIndexWriter classModelIndexWriter, @Nullable final ClassModelIndex previousClassModelIndex, @NonNull final Predicate<String> discovered) {
+        final String currentClassModelIndexFile = this.classModelIndexFile;
+        if (currentClassModelIndexFile == null) {
+            return;
+        }
+        try {
+            // Classes skipped by this run keep their previous model
+            if (previousClassModelIndex != null) {
+                classModelIndexWriter.addPrevious(previousClassModelIndex, () -> previousClassModelIndex.getClassNames().stream().filter(discovered).iterator());
+            }
+            classModelIndexWriter.save(Paths.get(currentClassModelIndexFile));
+        } catch (final IOException e) {
+            LOGGER.logp(Level.SEVERE, "JunitTestGenerator", "saveClassModelIndex", e.getMessage(), e);
+        }
+    }
+
+    @Nullable
+    private DependencyIndex openDependencyIndex(@NonNull final List<String> dependentJarsListAbsolutePath) throws IOException {
+        if (this.classModelSource == ClassModelSource.BYTECODE) {
+            // Class files are read without resolving any other class, and no class is loaded
+            return null;
+        }
+        final String currentDependencyIndexFile = this.dependencyIndexFile;
+        return DependencyIndex.open(dependentJarsListAbsolutePath, currentDependencyIndexFile == null ? null : Paths.get(currentDependencyIndexFile));
+    }
+
+    @Nullable
+    private DependencyIndex getCachedDependencyIndex(@NonNull final GenerationCache currentGenerationCache, @NonNull final List<String> dependentJarsListAbsolutePath) throws IOException {
+        if (this.classModelSource == ClassModelSource.BYTECODE) {
+            // Class files are read without resolving any other class, and no class is loaded
+            return null;
+        }
+        final String currentDependencyIndexFile = this.dependencyIndexFile;
+        return currentGenerationCache.getDependencyIndex(dependentJarsListAbsolutePath, currentDependencyIndexFile == null ? null : Paths.get(currentDependencyIndexFile));
+    }
+
+    @NonNull
+    private ClassModelProvider createClassModelProvider(@NonNull final InputArchives inputArchives, @Nullable final DependencyIndex dependencyIndex, @Nullable final GenerationCache currentGenerationCache, @Nullable final ClassModelIndex previousClassModelIndex, @Nullable final ClassModelIndexWriter classModelIndexWriter, @NonNull final GenerationMetrics generationMetrics) {
+        ClassModelProvider result;
+        if (dependencyIndex == null || this.classModelSource == ClassModelSource.BYTECODE) {
+            result = new ClassFileModelProvider(inputArchives, generationMetrics);
+        } else {
+            result = new ReflectionModelProvider(inputArchives, dependencyIndex, generationMetrics);
+        }
+        if (currentGenerationCache != null) {
+            result = new CachingClassModelProvider(result, inputArchives, currentGenerationCache, this.classModelSource);
+        }
+        if (classModelIndexWriter != null) {
+            result = new IndexedClassModelProvider(result, inputArchives, previousClassModelIndex, classModelIndexWriter);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,444 @@
+package aka.junitgenerator;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import aka.junitgenerator.PerformanceBaselines.Baseline;
+
+/**
+ * Render the JUnit test skeleton of a class.
+ * The source is appended to a caller supplied buffer, so a worker can reuse the same buffer for every class.
+ * With {@link PerformanceBaselines}, every member with a baseline also gets a test checking that its calls stay within a multiple of the baseline.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class JunitTestRenderer implements SourceRenderer {
+
+    private static final String NEW_LINE = System.lineSeparator();
+    private static final String INDENT = "        ";
+    private static final String TRY_INDENT = INDENT + "    ";
+
+    // Fixed parts of the generated source, joined once
+    private static final String PACKAGE = "package ";
+    private static final String AFTER_PACKAGE = "import org.junit.Test;" + NEW_LINE + NEW_LINE;
+    private static final String IMPORT = "import ";
+    private static final String END_OF_STATEMENT = ";" + NEW_LINE;
+    private static final String CLASS_JAVADOC = NEW_LINE + "/**" + NEW_LINE + " * JUnit tests for the class ";
+    private static final String CLASS_DECLARATION = "." + NEW_LINE + " *" + NEW_LINE + " * @author JunitTestGenerator" + NEW_LINE + " */" + NEW_LINE + "public class ";
+    private static final String AFTER_CLASS_DECLARATION = "_TEST {" + NEW_LINE + NEW_LINE;
+    private static final String METHOD_JAVADOC = "   /**" + NEW_LINE + "    * ";
+    private static final String AFTER_METHOD_JAVADOC_NAME = "." + NEW_LINE;
+    private static final String PARAMS_START = "    * With params: " + NEW_LINE + "    * <ul>" + NEW_LINE;
+    private static final String PARAM_ITEM = "    *     <li>";
+    private static final String AFTER_PARAM_ITEM = "</li>" + NEW_LINE;
+    private static final String PARAMS_END = "    * </ul>" + NEW_LINE;
+    private static final String TEST_METHOD_DECLARATION = "    */" + NEW_LINE + "    @org.junit.Test" + NEW_LINE + "    public void test";
+    private static final String AFTER_TEST_METHOD_DECLARATION = "() {" + NEW_LINE;
+    private static final String PARAM = " param";
+    private static final String PRIMITIVE_PARAM_END = " = 0;" + NEW_LINE;
+    private static final String BOOLEAN_PARAM_END = " = false;" + NEW_LINE;
+    private static final String OBJECT_PARAM_END = " = null;" + NEW_LINE;
+    private static final String NEW_INSTANCE = " = new ";
+    private static final String NULL_INSTANCE = " = null;" + NEW_LINE;
+    private static final String RESULT = "Result = ";
+    private static final String CALL_END = ");" + NEW_LINE;
+    private static final String ADD_ASSERTIONS = "// Add assertions" + NEW_LINE;
+    private static final String TRY = INDENT + "try {" + NEW_LINE;
+    private static final String CATCH = INDENT + "} catch (";
+    private static final String AFTER_CATCH = " e) {" + NEW_LINE;
+    private static final String HANDLE_EXCEPTION = " // Handle exception" + NEW_LINE;
+    private static final String END_OF_TRY = INDENT + "}" + NEW_LINE;
+    private static final String END_OF_TEST_METHOD = "    }" + NEW_LINE + NEW_LINE;
+    private static final String END_OF_CLASS = NEW_LINE + "}" + NEW_LINE;
+    private static final String PERFORMANCE_JAVADOC = "   /**" + NEW_LINE + "    * Performance of ";
+    private static final String PERFORMANCE_TEST_METHOD_DECLARATION = "    */" + NEW_LINE + "    @org.junit.Test" + NEW_LINE + "    public void test";
+    private static final String AFTER_PERFORMANCE_TEST_METHOD_DECLARATION = "Performance() throws Exception {" + NEW_LINE;
+    private static final String ASSERT_PERFORMANCE = INDENT + "assertPerformance(() -> ";
+    private static final String ASSERT_PERFORMANCE_HELPER = "   /**" + NEW_LINE
+            + "    * Call a member as many times as its baseline, to warm it up, then again to check the mean duration and allocations of a call." + NEW_LINE
+            + "    */" + NEW_LINE
+            + "    private static void assertPerformance(final java.util.concurrent.Callable<?> call, final int iterations, final long maxNanosPerCall, final long maxBytesPerCall) throws Exception {" + NEW_LINE
+            + INDENT + "for (int i = 0; i < iterations; i++) {" + NEW_LINE
+            + TRY_INDENT + "call.call();" + NEW_LINE
+            + INDENT + "}" + NEW_LINE
+            + INDENT + "final java.lang.management.ThreadMXBean threadMXBean = java.lang.management.ManagementFactory.getThreadMXBean();" + NEW_LINE
+            + INDENT + "final boolean measureBytes = maxBytesPerCall >= 0 && threadMXBean instanceof com.sun.management.ThreadMXBean;" + NEW_LINE
+            + INDENT + "final long startBytes = measureBytes ? ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;" + NEW_LINE
+            + INDENT + "final long start = System.nanoTime();" + NEW_LINE
+            + INDENT + "for (int i = 0; i < iterations; i++) {" + NEW_LINE
+            + TRY_INDENT + "call.call();" + NEW_LINE
+            + INDENT + "}" + NEW_LINE
+            + INDENT + "final long nanosPerCall = (System.nanoTime() - start) / iterations;" + NEW_LINE
+            + INDENT + "org.junit.Assert.assertTrue(nanosPerCall + \" ns per call, limit \" + maxNanosPerCall, nanosPerCall <= maxNanosPerCall);" + NEW_LINE
+            + INDENT + "if (measureBytes) {" + NEW_LINE
+            + TRY_INDENT + "final long bytesPerCall = (((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes) / iterations;" + NEW_LINE
+            + TRY_INDENT + "org.junit.Assert.assertTrue(bytesPerCall + \" bytes per call, limit \" + maxBytesPerCall, bytesPerCall <= maxBytesPerCall);" + NEW_LINE
+            + INDENT + "}" + NEW_LINE
+            + "    }" + NEW_LINE;
+
+    // Allowance over the baseline limits for the timer and the boxing of the results
+    private static final long NANOS_SLACK = 100;
+    private static final long BYTES_SLACK = 64;
+
+    @Nullable
+    private final PerformanceBaselines performanceBaselines;
+    private final double baselineTolerance;
+
+    /**
+     * Constructor, rendering no performance test.
+     */
+    public JunitTestRenderer() {
+        this.performanceBaselines = null;
+        this.baselineTolerance = 0;
+    }
+
+    /**
+     * Constructor, also rendering a performance test for every member with a baseline.
+     * A call may take <code>baselineTolerance</code> times its mean duration and allocations, plus 100 ns and 64 bytes.
+     *
+     * @param performanceBaselines baselines, read while rendering
+     * @param baselineTolerance multiple of the baseline allowed
+     */
+    public JunitTestRenderer(@NonNull final PerformanceBaselines performanceBaselines, final double baselineTolerance) {
+        this.performanceBaselines = performanceBaselines;
+        this.baselineTolerance = baselineTolerance;
+    }
+
+    /**
+     * Render the JUnit test skeleton of the given class.
+     *
+     * @param classModel class to test
+     * @return generated test file
+     */
+    @NonNull
+    public GeneratedFile render(@NonNull final ClassModel classModel) {
+        final StringBuilder out = new StringBuilder(4096);
+        render(classModel, out);
+        return new GeneratedFile(getRelativePath(classModel), out.toString());
+    }
+
+    /**
+     * Path of the JUnit test of the given class.
+     *
+     * @param classModel class to test
+     * @return path of the test file, relative to the destination directory, '/' separated
+     */
+    @Override
+    @NonNull
+    public String getRelativePath(@NonNull final ClassModel classModel) {
+        final String fileName = classModel.getSimpleName() + "_TEST.java";
+        final String packageName = classModel.getPackageName();
+        return packageName.isEmpty() ? fileName : packageName.replace('.', '/') + "/" + fileName;
+    }
+
+    /**
+     * Append the JUnit test skeleton of the given class.
+     *
+     * @param classModel class to test
+     * @param out buffer to append to
+     */
+    @Override
+    public void render(@NonNull final ClassModel classModel, @NonNull final StringBuilder out) {
+        final String simpleName = classModel.getSimpleName();
+        final PerformanceBaselines currentPerformanceBaselines = this.performanceBaselines;
+        final MethodModel instanceConstructor = currentPerformanceBaselines == null ? null : getInstanceConstructor(classModel);
+        boolean hasPerformanceTests = false;
+
+        if (!classModel.getPackageName().isEmpty()) {
+            out.append(PACKAGE).append(classModel.getPackageName()).append(';').append(NEW_LINE).append(NEW_LINE);
+        }
+        out.append(AFTER_PACKAGE);
+        for (final String imports : getAllImports(classModel)) {
+            out.append(IMPORT).append(imports).append(END_OF_STATEMENT);
+        }
+        out.append(CLASS_JAVADOC).append(simpleName).append(CLASS_DECLARATION).append(simpleName).append(AFTER_CLASS_DECLARATION);
+
+        int i = 0;
+        for (final MethodModel declaredConstructor : classModel.getConstructors()) {
+            if (declaredConstructor.isPublic()) {
+                final List<@NonNull TypeModel> params = declaredConstructor.getParameterTypes();
+                out.append(METHOD_JAVADOC).append(simpleName).append(AFTER_METHOD_JAVADOC_NAME);
+                appendParamsJavadoc(params, out);
+                out.append(TEST_METHOD_DECLARATION);
+                appendUpperCaseFirst(simpleName, out);
+                out.append(i).append(AFTER_TEST_METHOD_DECLARATION);
+                appendParamsDeclaration(params, out);
+                out.append(INDENT).append(simpleName).append(' ');
+                appendLowerCaseFirst(simpleName, out);
+                out.append(NEW_INSTANCE).append(classModel.getName()).append('(');
+                appendParamsList(params.size(), out);
+                out.append(CALL_END);
+                out.append(INDENT).append(NEW_LINE).append(INDENT).append(ADD_ASSERTIONS).append(INDENT).append(NEW_LINE);
+                out.append(END_OF_TEST_METHOD);
+                final Baseline baseline = currentPerformanceBaselines == null ? null : currentPerformanceBaselines.get(classModel.getName(), PerformanceBaselines.getMemberKey(declaredConstructor, true));
+                if (baseline != null) {
+                    appendPerformanceJavadoc(simpleName, params, baseline, out);
+                    appendUpperCaseFirst(simpleName, out);
+                    out.append(i).append(AFTER_PERFORMANCE_TEST_METHOD_DECLARATION);
+                    out.append(ASSERT_PERFORMANCE).append("new ").append(simpleName).append('(');
+                    appendZeroArguments(params, out);
+                    out.append(')');
+                    appendLimits(baseline, out);
+                    hasPerformanceTests = true;
+                }
+                i++;
+            }
+        }
+
+        for (final MethodModel declaredMethod : classModel.getMethods()) {
+            if (declaredMethod.isPublic()) {
+                final List<@NonNull TypeModel> params = declaredMethod.getParameterTypes();
+                out.append(METHOD_JAVADOC).append(declaredMethod.getName()).append(AFTER_METHOD_JAVADOC_NAME);
+                appendParamsJavadoc(params, out);
+                out.append(TEST_METHOD_DECLARATION);
+                appendUpperCaseFirst(declaredMethod.getName(), out);
+                if (!params.isEmpty()) {
+                    out.append("With");
+                    for (final TypeModel class1 : params) {
+                        out.append(class1.isArray() ? "Array" : class1.getSimpleName());
+                    }
+                }
+                out.append(AFTER_TEST_METHOD_DECLARATION);
+                appendParamsDeclaration(params, out);
+
+                final boolean isStatic = declaredMethod.isStatic();
+                if (!isStatic) {
+                    out.append(INDENT).append(simpleName).append(' ');
+                    appendLowerCaseFirst(simpleName, out);
+                    out.append(NULL_INSTANCE);
+                }
+
+                final List<@NonNull TypeModel> declaredExceptionList = declaredMethod.getExceptionTypes();
+                final boolean hasExceptions = !declaredExceptionList.isEmpty();
+                final String prefix = hasExceptions ? TRY_INDENT : INDENT;
+                if (hasExceptions) {
+                    out.append(TRY);
+                }
+
+                final String returnName = declaredMethod.getReturnType().getSimpleName();
+                out.append(prefix);
+                // Nothing to assign the result of a void method to
+                if (!"void".equals(declaredMethod.getReturnType().getName())) {
+                    out.append(returnName).append(' ');
+                    appendLowerCaseFirst(returnName, out);
+                    out.append(RESULT);
+                }
+                if (isStatic) {
+                    out.append(simpleName);
+                } else {
+                    appendLowerCaseFirst(simpleName, out);
+                }
+                out.append('.').append(declaredMethod.getName()).append('(');
+                appendParamsList(params.size(), out);
+                out.append(CALL_END);
+
+                out.append(prefix).append(NEW_LINE).append(prefix).append(ADD_ASSERTIONS).append(prefix).append(NEW_LINE);
+                if (hasExceptions) {
+                    for (final TypeModel class1 : declaredExceptionList) {
+                        out.append(CATCH).append(class1.getSimpleName()).append(AFTER_CATCH);
+                        out.append(prefix).append(HANDLE_EXCEPTION);
+                    }
+                    out.append(END_OF_TRY);
+                }
+                out.append(END_OF_TEST_METHOD);
+
+                final Baseline baseline = currentPerformanceBaselines == null ? null : currentPerformanceBaselines.get(classModel.getName(), PerformanceBaselines.getMemberKey(declaredMethod, false));
+                if (baseline != null && (isStatic || instanceConstructor != null)) {
+                    appendPerformanceJavadoc(declaredMethod.getName(), params, baseline, out);
+                    appendUpperCaseFirst(declaredMethod.getName(), out);
+                    if (!params.isEmpty()) {
+                        out.append("With");
+                        for (final TypeModel class1 : params) {
+                            out.append(class1.getSimpleName());
+                        }
+                    }
+                    out.append(AFTER_PERFORMANCE_TEST_METHOD_DECLARATION);
+                    if (!isStatic && instanceConstructor != null) {
+                        // Instance built the same way as for the baseline
+                        out.append(INDENT).append("final ").append(simpleName).append(' ');
+                        appendLowerCaseFirst(simpleName, out);
+                        out.append(NEW_INSTANCE).append(simpleName).append('(');
+                        appendZeroArguments(instanceConstructor.getParameterTypes(), out);
+                        out.append(CALL_END);
+                    }
+                    final boolean returnsVoid = "void".equals(declaredMethod.getReturnType().getName());
+                    out.append(ASSERT_PERFORMANCE);
+                    if (returnsVoid) {
+                        out.append("{ ");
+                    }
+                    if (isStatic) {
+                        out.append(simpleName);
+                    } else {
+                        appendLowerCaseFirst(simpleName, out);
+                    }
+                    out.append('.').append(declaredMethod.getName()).append('(');
+                    appendZeroArguments(params, out);
+                    out.append(')');
+                    if (returnsVoid) {
+                        out.append("; return null; }");
+                    }
+                    appendLimits(baseline, out);
+                    hasPerformanceTests = true;
+                }
+            }
+        }
+
+        if (hasPerformanceTests) {
+            out.append(ASSERT_PERFORMANCE_HELPER);
+        }
+        out.append(END_OF_CLASS);
+    }
+
+    private void appendPerformanceJavadoc(@NonNull final String name, @NonNull final List<@NonNull TypeModel> params, @NonNull final Baseline baseline, @NonNull final StringBuilder out) {
+        out.append(PERFORMANCE_JAVADOC).append(name).append('(');
+        for (int j = 0; j < params.size(); j++) {
+            if (j > 0) {
+                out.append(", ");
+            }
+            out.append(params.get(j).getSimpleName());
+        }
+        out.append("), baseline: mean ").append(baseline.getMeanNanos()).append(" ns, median ").append(baseline.getMedianNanos()).append(" ns, p99 ").append(baseline.getP99Nanos()).append(" ns");
+        if (baseline.getBytesPerCall() >= 0) {
+            out.append(", ").append(baseline.getBytesPerCall()).append(" bytes per call");
+        }
+        out.append('.').append(NEW_LINE).append(PERFORMANCE_TEST_METHOD_DECLARATION);
+    }
+
+    private void appendLimits(@NonNull final Baseline baseline, @NonNull final StringBuilder out) {
+        final long maxNanos = (long) Math.ceil(baseline.getMeanNanos() * this.baselineTolerance) + NANOS_SLACK;
+        final long maxBytes = baseline.getBytesPerCall() < 0 ? -1 : (long) Math.ceil(baseline.getBytesPerCall() * this.baselineTolerance) + BYTES_SLACK;
+        out.append(", ").append(Math.min(Integer.MAX_VALUE, baseline.getIterations())).append(", ").append(maxNanos).append("L, ").append(maxBytes).append("L").append(CALL_END);
+        out.append(END_OF_TEST_METHOD);
+    }
+
+    private void appendZeroArguments(@NonNull final List<@NonNull TypeModel> params, @NonNull final StringBuilder out) {
+        for (int j = 0; j < params.size(); j++) {
+            if (j > 0) {
+                out.append(", ");
+            }
+            final String typeName = params.get(j).getName();
+            if ("boolean".equals(typeName)) {
+                out.append("false");
+            } else {
+                out.append('(').append(typeName).append(") 0");
+            }
+        }
+    }
+
+    /**
+     * @param classModel class to test
+     * @return public constructor with only primitive parameters building the instance used by the baselines, <code>null</code> if none
+     */
+    @Nullable
+    private static MethodModel getInstanceConstructor(@NonNull final ClassModel classModel) {
+        MethodModel result = null;
+        String resultKey = null;
+        for (final MethodModel declaredConstructor : classModel.getConstructors()) {
+            if (declaredConstructor.isPublic() && hasOnlyPrimitiveParameters(declaredConstructor)) {
+                // Same choice as BaselineMeasurer: fewest parameters, then smallest key
+                final String key = PerformanceBaselines.getMemberKey(declaredConstructor, true);
+                if (result == null || declaredConstructor.getParameterTypes().size() < result.getParameterTypes().size() || declaredConstructor.getParameterTypes().size() == result.getParameterTypes().size() && key.compareTo(resultKey) < 0) {
+                    result = declaredConstructor;
+                    resultKey = key;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasOnlyPrimitiveParameters(@NonNull final MethodModel methodModel) {
+        for (final TypeModel parameterType : methodModel.getParameterTypes()) {
+            if (!parameterType.isPrimitive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendParamsJavadoc(@NonNull final List<@NonNull TypeModel> params, @NonNull final StringBuilder out) {
+        if (!params.isEmpty()) {
+            out.append(PARAMS_START);
+            for (final TypeModel class1 : params) {
+                out.append(PARAM_ITEM).append(class1.getSimpleName()).append(AFTER_PARAM_ITEM);
+            }
+            out.append(PARAMS_END);
+        }
+    }
+
+    private void appendParamsDeclaration(@NonNull final List<@NonNull TypeModel> params, @NonNull final StringBuilder out) {
+        int j = 0;
+        for (final TypeModel class1 : params) {
+            final String paramEnd;
+            if (!class1.isPrimitive()) {
+                paramEnd = OBJECT_PARAM_END;
+            } else if ("boolean".equals(class1.getName())) {
+                paramEnd = BOOLEAN_PARAM_END;
+            } else {
+                paramEnd = PRIMITIVE_PARAM_END;
+            }
+            out.append(INDENT).append(class1.getSimpleName()).append(PARAM).append(j).append(paramEnd);
+            j++;
+        }
+    }
+
+    private void appendParamsList(final int count, @NonNull final StringBuilder out) {
+        for (int j = 0; j < count; j++) {
+            if (j > 0) {
+                out.append(", ");
+            }
+            out.append("param").append(j);
+        }
+    }
+
+    /**
+     * @param classModel class to test
+     * @return names of the classes imported by its test, sorted
+     */
+    @NonNull
+    Set<String> getAllImports(@NonNull final ClassModel classModel) {
+        final Set<String> result = new TreeSet<>();
+
+        for (final MethodModel declaredConstructor : classModel.getConstructors()) {
+            for (final TypeModel class1 : declaredConstructor.getParameterTypes()) {
+                if (!class1.isPrimitive() && !class1.isArray()) {
+                    result.add(class1.getName());
+                }
+            }
+        }
+
+        for (final MethodModel declaredMethod : classModel.getMethods()) {
+            for (final TypeModel class1 : declaredMethod.getParameterTypes()) {
+                if (!class1.isPrimitive() && !class1.isArray()) {
+                    result.add(class1.getName());
+                }
+            }
+            for (final TypeModel class1 : declaredMethod.getExceptionTypes()) {
+                if (!class1.isPrimitive() && !class1.isArray()) {
+                    result.add(class1.getName());
+                }
+            }
+
+            final TypeModel returnMethod = declaredMethod.getReturnType();
+            if (!returnMethod.isPrimitive() && !returnMethod.isArray()) {
+                result.add(returnMethod.getName());
+            }
+        }
+
+        return result;
+    }
+
+    private void appendLowerCaseFirst(@NonNull final String value, @NonNull final StringBuilder out) {
+        if (!value.isEmpty()) {
+            out.append(Character.toLowerCase(value.charAt(0))).append(value, 1, value.length());
+        }
+    }
+
+    private void appendUpperCaseFirst(@NonNull final String value, @NonNull final StringBuilder out) {
+        if (!value.isEmpty()) {
+            out.append(Character.toUpperCase(value.charAt(0))).append(value, 1, value.length());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package aka.junitgenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Latency histogram with power of two buckets of nanoseconds.
+ * Percentiles are the upper bound of their bucket, so at most twice the real value.
+ * Instances can be updated by several threads without locking.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    @NonNull
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    @NonNull
+    private final LongAdder count = new LongAdder();
+    @NonNull
+    private final LongAdder totalNanos = new LongAdder();
+    @NonNull
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos duration in nanoseconds, negative values count as 0
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        this.counts.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        this.count.increment();
+        this.totalNanos.add(value);
+        this.maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * @return sum of the recorded durations, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    /**
+     * @return longest recorded duration, in nanoseconds
+     */
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+    /**
+     * @param percentile percentile, between 0 and 100
+     * @return duration under which this percentage of the recorded durations are, in nanoseconds
+     */
+    public long getPercentileNanos(final double percentile) {
+        long total = 0;
+        final long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                // Bucket i holds [2^(i-1), 2^i - 1], bucket 0 holds 0
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
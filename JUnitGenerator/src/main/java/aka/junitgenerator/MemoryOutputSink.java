@@ -0,0 +1,61 @@
+package aka.junitgenerator;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@link OutputSink} keeping the generated files in memory, for tools using the tests without writing them.
+ */
+public final class MemoryOutputSink implements OutputSink {
+
+    @NonNull
+    private final ConcurrentSkipListMap<String, String> files = new ConcurrentSkipListMap<>();
+
+    @Override
+    @NonNull
+    public String getLocation() {
+        return "memory";
+    }
+
+    @Override
+    public boolean write(@NonNull final String relativePath, @NonNull final CharSequence content) {
+        final String text = content.toString();
+        return !text.equals(this.files.put(relativePath, text));
+    }
+
+    @Override
+    public boolean exists(@NonNull final String relativePath) {
+        return this.files.containsKey(relativePath);
+    }
+
+    @Override
+    public void delete(@NonNull final String relativePath) {
+        this.files.remove(relativePath);
+    }
+
+    /**
+     * @param relativePath path of a file
+     * @return content of the file, <code>null</code> if it does not exist
+     */
+    @Nullable
+    public String getContent(@NonNull final String relativePath) {
+        return this.files.get(relativePath);
+    }
+
+    /**
+     * @return content of the files by path, sorted by path
+     */
+    @NonNull
+    public Map<String, String> getFiles() {
+        return Collections.unmodifiableMap(this.files);
+    }
+
+    @Override
+    public void close() {
+        // Files stay available
+    }
+}
@@ -0,0 +1,105 @@
+package aka.junitgenerator;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Constructor or method declared by a class.
+ */
+public final class MethodModel {
+
+    /**
+     * Name used by the class file format for constructors.
+     */
+    @NonNull
+    public static final String CONSTRUCTOR_NAME = "<init>";
+
+    @NonNull
+    private final String name;
+    private final int modifiers;
+    @NonNull
+    private final List<@NonNull TypeModel> parameterTypes;
+    @NonNull
+    private final TypeModel returnType;
+    @NonNull
+    private final List<@NonNull TypeModel> exceptionTypes;
+
+    /**
+     * Constructor.
+     *
+     * @param name name of the method, {@link #CONSTRUCTOR_NAME} for a constructor
+     * @param modifiers access flags of the method
+     * @param parameterTypes parameter types
+     * @param returnType return type (void for constructors)
+     * @param exceptionTypes declared exception types
+     */
+    public MethodModel(@NonNull final String name, final int modifiers, @NonNull final List<@NonNull TypeModel> parameterTypes, @NonNull final TypeModel returnType, @NonNull final List<@NonNull TypeModel> exceptionTypes) {
+        this.name = name;
+        this.modifiers = modifiers;
+        this.parameterTypes = parameterTypes;
+        this.returnType = returnType;
+        this.exceptionTypes = exceptionTypes;
+    }
+
+    /**
+     * @return name of the method
+     */
+    @NonNull
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return access flags of the method
+     */
+    public int getModifiers() {
+        return this.modifiers;
+    }
+
+    /**
+     * @return parameter types
+     */
+    @NonNull
+    public List<@NonNull TypeModel> getParameterTypes() {
+        return this.parameterTypes;
+    }
+
+    /**
+     * @return return type
+     */
+    @NonNull
+    public TypeModel getReturnType() {
+        return this.returnType;
+    }
+
+    /**
+     * @return declared exception types
+     */
+    @NonNull
+    public List<@NonNull TypeModel> getExceptionTypes() {
+        return this.exceptionTypes;
+    }
+
+    /**
+     * @return <code>true</code> if this is a constructor
+     */
+    public boolean isConstructor() {
+        return CONSTRUCTOR_NAME.equals(this.name);
+    }
+
+    /**
+     * @return <code>true</code> if the method is public
+     */
+    public boolean isPublic() {
+        return Modifier.isPublic(this.modifiers);
+    }
+
+    /**
+     * @return <code>true</code> if the method is static
+     */
+    public boolean isStatic() {
+        return Modifier.isStatic(this.modifiers);
+    }
+}
@@ -0,0 +1,45 @@
+package aka.junitgenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Destination of the generated files: a directory, an archive or the memory.
+ * Paths are relative to the destination and '/' separated.
+ * Implementations must be safe for use by several threads; {@link #close()} completes the output.
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * @return description of the destination, for logs and events
+     */
+    @NonNull
+    String getLocation();
+
+    /**
+     * Write a file, replacing the previous one; nothing is written if the content did not change.
+     *
+     * @param relativePath path of the file
+     * @param content content of the file, written in UTF-8; not kept once this method returns, the caller may reuse it
+     * @return <code>true</code> if the file was written, <code>false</code> if it already had this content
+     * @throws IOException if the file can not be written
+     */
+    boolean write(@NonNull String relativePath, @NonNull CharSequence content) throws IOException;
+
+    /**
+     * @param relativePath path of a file
+     * @return <code>true</code> if the file exists
+     * @throws IOException if the destination can not be read
+     */
+    boolean exists(@NonNull String relativePath) throws IOException;
+
+    /**
+     * Delete a file, if it exists.
+     *
+     * @param relativePath path of the file
+     * @throws IOException if the file can not be deleted
+     */
+    void delete(@NonNull String relativePath) throws IOException;
+}
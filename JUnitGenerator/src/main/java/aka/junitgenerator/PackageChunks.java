@@ -0,0 +1,115 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Split the classes of a run into chunks of whole packages whose class files fit in a budget, for the bounded-memory mode.
+ * A package larger than the budget is a chunk of its own: the classes of a package must be defined by the same class loader
+ * to reach the package-private members of each other.
+ * Chunks are streamed from the index of the input archives, packages sorted: only the names of the packages
+ * and of the classes of the chunk being built are listed.
+ */
+final class PackageChunks {
+
+    @NonNull
+    private final InputArchives inputArchives;
+    @NonNull
+    private final Predicate<String> discovered;
+    @NonNull
+    private final Predicate<String> selected;
+    private final long budgetBytes;
+    @NonNull
+    private final Iterator<String> packageNames;
+    @Nullable
+    private List<String> pendingPackage;
+    private long pendingPackageBytes;
+    private int discoveredClassCount;
+
+    /**
+     * Constructor.
+     *
+     * @param inputArchives archives containing the classes
+     * @param discovered filter of the classes of the archives to generate
+     * @param selected filter of the discovered classes generated by this run
+     * @param budgetBytes maximum size of the class files of a chunk, unless a single package is larger
+     */
+    PackageChunks(@NonNull final InputArchives inputArchives, @NonNull final Predicate<String> discovered, @NonNull final Predicate<String> selected, final long budgetBytes) {
+        this.inputArchives = inputArchives;
+        this.discovered = discovered;
+        this.selected = selected;
+        this.budgetBytes = budgetBytes;
+        this.packageNames = inputArchives.getPackageNames().iterator();
+    }
+
+    /**
+     * @return binary names of the classes of the next chunk, sorted by package then by name, <code>null</code> once all the classes were given
+     * @throws IOException if the size of a class file can not be read
+     */
+    @Nullable
+    List<String> next() throws IOException {
+        List<String> result = null;
+        long resultBytes = 0;
+        while (true) {
+            List<String> currentPackage = this.pendingPackage;
+            if (currentPackage == null) {
+                currentPackage = readNextPackage();
+                if (currentPackage == null) {
+                    return result;
+                }
+            }
+            if (result != null && resultBytes + this.pendingPackageBytes > this.budgetBytes) {
+                // Kept for the next chunk
+                this.pendingPackage = currentPackage;
+                return result;
+            }
+            if (result == null) {
+                result = currentPackage;
+            } else {
+                result.addAll(currentPackage);
+            }
+            resultBytes += this.pendingPackageBytes;
+            this.pendingPackage = null;
+        }
+    }
+
+    /**
+     * @return number of discovered classes in the packages read so far, all of them once {@link #next()} returned <code>null</code>
+     */
+    int getDiscoveredClassCount() {
+        return this.discoveredClassCount;
+    }
+
+    /**
+     * Read the next package with selected classes, and the size of their class files.
+     *
+     * @return binary names of its selected classes, <code>null</code> if there are no more packages
+     */
+    @Nullable
+    private List<String> readNextPackage() throws IOException {
+        while (this.packageNames.hasNext()) {
+            final List<String> result = new ArrayList<>();
+            long bytes = 0;
+            for (final String className : this.inputArchives.getClassNames(this.packageNames.next())) {
+                if (this.discovered.test(className)) {
+                    this.discoveredClassCount++;
+                    if (this.selected.test(className)) {
+                        result.add(className);
+                        bytes += Math.max(0, this.inputArchives.getClassFileSize(className));
+                    }
+                }
+            }
+            if (!result.isEmpty()) {
+                this.pendingPackageBytes = bytes;
+                return result;
+            }
+        }
+        return null;
+    }
+}
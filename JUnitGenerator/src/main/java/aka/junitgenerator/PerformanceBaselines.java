@@ -0,0 +1,265 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Performance baselines of the invocable constructors and methods of every measured class, saved next to the generated tests.
+ * A class measured without any invocable member is recorded too, so that it is not measured again.
+ * Instances can be updated by several threads.
+ */
+public final class PerformanceBaselines {
+
+    /**
+     * Name of the constructors in member keys.
+     */
+    @NonNull
+    public static final String CONSTRUCTOR = "<init>";
+
+    private static final String HEADER = "# JunitTestGenerator baselines v1";
+    private static final char SEPARATOR = '\t';
+
+    @NonNull
+    private final ConcurrentMap<String, Map<String, Baseline>> baselinesByClassName = new ConcurrentHashMap<>();
+
+    /**
+     * Load the baselines from the given file.
+     *
+     * @param baselineFile baseline file
+     * @return baselines read, empty if the file does not exist
+     * @throws IOException if the file can not be read or is not a baseline file
+     */
+    @NonNull
+    public static PerformanceBaselines load(@NonNull final Path baselineFile) throws IOException {
+        final PerformanceBaselines result = new PerformanceBaselines();
+        if (!Files.exists(baselineFile)) {
+            return result;
+        }
+        final List<String> lines = Files.readAllLines(baselineFile, Charset.forName("UTF-8"));
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+            throw new IOException("Not a baseline file: " + baselineFile);
+        }
+        final Map<String, Map<String, Baseline>> baselinesByClassName = new TreeMap<>();
+        for (final String line : lines.subList(1, lines.size())) {
+            final String[] columns = line.split(String.valueOf(SEPARATOR));
+            final Map<String, Baseline> baselines = baselinesByClassName.computeIfAbsent(columns[0], k -> new TreeMap<>());
+            if (columns.length == 9) {
+                try {
+                    baselines.put(columns[1], new Baseline(Long.parseLong(columns[2]), Long.parseLong(columns[3]), Long.parseLong(columns[4]), Long.parseLong(columns[5]), Long.parseLong(columns[6]), Long.parseLong(columns[7]), Long.parseLong(columns[8])));
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Invalid baseline line: " + line, e);
+                }
+            } else if (columns.length != 1) {
+                throw new IOException("Invalid baseline line: " + line);
+            }
+        }
+        for (final Entry<String, Map<String, Baseline>> entry : baselinesByClassName.entrySet()) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Save the baselines to the given file, replacing it atomically.
+     *
+     * @param baselineFile baseline file
+     * @throws IOException if the file can not be written
+     */
+    public void save(@NonNull final Path baselineFile) throws IOException {
+        final List<String> lines = new ArrayList<>(this.baselinesByClassName.size() + 1);
+        lines.add(HEADER);
+        final StringBuilder line = new StringBuilder();
+        for (final Entry<String, Map<String, Baseline>> entry : new TreeMap<>(this.baselinesByClassName).entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                lines.add(entry.getKey());
+            }
+            for (final Entry<String, Baseline> memberEntry : entry.getValue().entrySet()) {
+                final Baseline baseline = memberEntry.getValue();
+                line.setLength(0);
+                line.append(entry.getKey()).append(SEPARATOR).append(memberEntry.getKey());
+                line.append(SEPARATOR).append(baseline.getIterations()).append(SEPARATOR).append(baseline.getMeanNanos());
+                line.append(SEPARATOR).append(baseline.getMedianNanos()).append(SEPARATOR).append(baseline.getP99Nanos()).append(SEPARATOR).append(baseline.getMaxNanos());
+                line.append(SEPARATOR).append(baseline.getMinNanos()).append(SEPARATOR).append(baseline.getBytesPerCall());
+                lines.add(line.toString());
+            }
+        }
+        final Path parent = baselineFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporaryFile = baselineFile.resolveSibling(baselineFile.getFileName() + ".tmp");
+        Files.write(temporaryFile, lines, Charset.forName("UTF-8"));
+        Files.move(temporaryFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Key of a constructor or method, such as <code>&lt;init&gt;(int)</code> or <code>parse(long,boolean)</code>.
+     *
+     * @param name name of the method, {@link #CONSTRUCTOR} for a constructor
+     * @param parameterTypeNames names of its parameter types
+     * @return key of the member
+     */
+    @NonNull
+    public static String getMemberKey(@NonNull final String name, @NonNull final List<String> parameterTypeNames) {
+        return name + "(" + String.join(",", parameterTypeNames) + ")";
+    }
+
+    /**
+     * Key of a constructor or method of a class model.
+     *
+     * @param methodModel constructor or method
+     * @param constructor <code>true</code> for a constructor
+     * @return key of the member
+     */
+    @NonNull
+    public static String getMemberKey(@NonNull final MethodModel methodModel, final boolean constructor) {
+        final List<String> parameterTypeNames = new ArrayList<>(methodModel.getParameterTypes().size());
+        for (final TypeModel parameterType : methodModel.getParameterTypes()) {
+            parameterTypeNames.add(parameterType.getName());
+        }
+        return getMemberKey(constructor ? CONSTRUCTOR : methodModel.getName(), parameterTypeNames);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return <code>true</code> if the class was measured
+     */
+    public boolean contains(@NonNull final String className) {
+        return this.baselinesByClassName.containsKey(className);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @return baselines of the members of the class by member key, <code>null</code> if the class was not measured
+     */
+    @Nullable
+    public Map<String, Baseline> get(@NonNull final String className) {
+        return this.baselinesByClassName.get(className);
+    }
+
+    /**
+     * @param className binary name of a class
+     * @param memberKey key of a constructor or method of the class
+     * @return baseline of the member, <code>null</code> if none
+     */
+    @Nullable
+    public Baseline get(@NonNull final String className, @NonNull final String memberKey) {
+        final Map<String, Baseline> baselines = this.baselinesByClassName.get(className);
+        return baselines == null ? null : baselines.get(memberKey);
+    }
+
+    /**
+     * Set the baselines of a class, replacing the previous ones.
+     *
+     * @param className binary name of the class
+     * @param baselines baselines by member key, empty if nothing can be invoked
+     */
+    public void put(@NonNull final String className, @NonNull final Map<String, Baseline> baselines) {
+        this.baselinesByClassName.put(className, Collections.unmodifiableMap(new TreeMap<>(baselines)));
+    }
+
+    /**
+     * @return number of measured classes
+     */
+    public int size() {
+        return this.baselinesByClassName.size();
+    }
+
+    /**
+     * Measures of the calls of a constructor or method.
+     */
+    public static final class Baseline {
+
+        private final long iterations;
+        private final long meanNanos;
+        private final long medianNanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final long minNanos;
+        private final long bytesPerCall;
+
+        /**
+         * Constructor.
+         *
+         * @param iterations number of measured calls
+         * @param meanNanos mean duration of a call, in nanoseconds
+         * @param medianNanos median duration of a call, in nanoseconds
+         * @param p99Nanos 99th percentile of the duration of a call, in nanoseconds
+         * @param maxNanos longest call, in nanoseconds
+         * @param minNanos shortest call, in nanoseconds
+         * @param bytesPerCall mean number of bytes allocated by a call, -1 if unknown
+         */
+        public Baseline(final long iterations, final long meanNanos, final long medianNanos, final long p99Nanos, final long maxNanos, final long minNanos, final long bytesPerCall) {
+            this.iterations = iterations;
+            this.meanNanos = meanNanos;
+            this.medianNanos = medianNanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.minNanos = minNanos;
+            this.bytesPerCall = bytesPerCall;
+        }
+
+        /**
+         * @return number of measured calls
+         */
+        public long getIterations() {
+            return this.iterations;
+        }
+
+        /**
+         * @return mean duration of a call, in nanoseconds
+         */
+        public long getMeanNanos() {
+            return this.meanNanos;
+        }
+
+        /**
+         * @return median duration of a call, in nanoseconds, at most twice the real value
+         */
+        public long getMedianNanos() {
+            return this.medianNanos;
+        }
+
+        /**
+         * @return 99th percentile of the duration of a call, in nanoseconds, at most twice the real value
+         */
+        public long getP99Nanos() {
+            return this.p99Nanos;
+        }
+
+        /**
+         * @return longest call, in nanoseconds
+         */
+        public long getMaxNanos() {
+            return this.maxNanos;
+        }
+
+        /**
+         * @return shortest call, in nanoseconds
+         */
+        public long getMinNanos() {
+            return this.minNanos;
+        }
+
+        /**
+         * @return mean number of bytes allocated by a call, -1 if unknown
+         */
+        public long getBytesPerCall() {
+            return this.bytesPerCall;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package aka.junitgenerator;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Build a {@link ClassModel} from a loaded class, using reflection.
+ */
+public final class ReflectionClassModelReader {
+
+    /**
+     * Read the given class.
+     *
+     * @param loadedClass class to read
+     * @return model of the class
+     */
+    @NonNull
+    public ClassModel read(@NonNull final Class<?> loadedClass) {
+        final Constructor<?>[] declaredConstructors = loadedClass.getDeclaredConstructors();
+        final List<@NonNull MethodModel> constructors = new ArrayList<>(declaredConstructors.length);
+        for (final Constructor<?> declaredConstructor : declaredConstructors) {
+            constructors.add(new MethodModel(MethodModel.CONSTRUCTOR_NAME, declaredConstructor.getModifiers(), toTypeModels(declaredConstructor.getParameterTypes()), toTypeModel(void.class), toTypeModels(declaredConstructor.getExceptionTypes())));
+        }
+
+        final Method[] declaredMethods = loadedClass.getDeclaredMethods();
+        final List<@NonNull MethodModel> methods = new ArrayList<>(declaredMethods.length);
+        for (final Method declaredMethod : declaredMethods) {
+            methods.add(new MethodModel(declaredMethod.getName(), declaredMethod.getModifiers(), toTypeModels(declaredMethod.getParameterTypes()), toTypeModel(declaredMethod.getReturnType()), toTypeModels(declaredMethod.getExceptionTypes())));
+        }
+
+        // Class.getPackage() is null for classes defined by a loader which does not define packages
+        final String name = loadedClass.getName();
+        final int lastDot = name.lastIndexOf('.');
+        final String packageName = lastDot < 0 ? "" : name.substring(0, lastDot);
+        return new ClassModel(name, packageName, loadedClass.getSimpleName(), loadedClass.getModifiers(), constructors, methods);
+    }
+
+    @NonNull
+    private List<@NonNull TypeModel> toTypeModels(final Class<?>[] types) {
+        final List<@NonNull TypeModel> result = new ArrayList<>(types.length);
+        for (final Class<?> type : types) {
+            result.add(toTypeModel(type));
+        }
+        return result;
+    }
+
+    @NonNull
+    private TypeModel toTypeModel(@NonNull final Class<?> type) {
+        return new TypeModel(type.getName(), type.getSimpleName(), type.isPrimitive(), type.isArray());
+    }
+}
@@ -0,0 +1,87 @@
+package aka.junitgenerator;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+import aka.junitgenerator.GenerationMetrics.Phase;
+
+/**
+ * {@link ClassModelProvider} loading the classes and using reflection.
+ * The classes of the inputs are loaded by a child of the dependency class loader, replaced at the end of every chunk
+ * so that the classes of the previous chunks can be unloaded.
+ */
+final class ReflectionModelProvider implements ClassModelProvider {
+
+    @NonNull
+    private final ReflectionClassModelReader reflectionClassModelReader = new ReflectionClassModelReader();
+    @NonNull
+    private final InputArchives inputArchives;
+    @NonNull
+    private final ArchiveClassLoader dependencyClassLoader;
+    // Guarded by this
+    @Nullable
+    private ArchiveClassLoader chunkClassLoader;
+    @NonNull
+    private final GenerationMetrics generationMetrics;
+
+    /**
+     * Constructor.
+     *
+     * @param inputArchives archives containing the classes, not closed by this provider
+     * @param dependencyIndex classpath of the dependencies, not closed by this provider
+     * @param generationMetrics measures of the run
+     */
+    ReflectionModelProvider(@NonNull final InputArchives inputArchives, @NonNull final DependencyIndex dependencyIndex, @NonNull final GenerationMetrics generationMetrics) {
+        final ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        if (systemClassLoader == null) {
+            throw new IllegalStateException("No system class loader");
+        }
+        this.inputArchives = inputArchives;
+        this.dependencyClassLoader = new ArchiveClassLoader(dependencyIndex, systemClassLoader);
+        this.generationMetrics = generationMetrics;
+    }
+
+    @Override
+    @NonNull
+    public ClassModel getClassModel(@NonNull final String className, @Nullable final ByteBuffer classFile) throws ClassNotFoundException {
+        long start = System.nanoTime();
+        final Class<?> loadedClass = getOrCreateChunkClassLoader().loadClass(className);
+        this.generationMetrics.record(Phase.LOAD, System.nanoTime() - start);
+        start = System.nanoTime();
+        final ClassModel result = this.reflectionClassModelReader.read(loadedClass);
+        this.generationMetrics.record(Phase.MODEL, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * @return class loader of the classes of the current chunk, <code>null</code> until a class of the chunk is loaded
+     */
+    @Nullable
+    synchronized ArchiveClassLoader getChunkClassLoader() {
+        return this.chunkClassLoader;
+    }
+
+    @NonNull
+    private synchronized ArchiveClassLoader getOrCreateChunkClassLoader() {
+        // Created once, by the first class of the chunk: the model workers must share it
+        ArchiveClassLoader result = this.chunkClassLoader;
+        if (result == null) {
+            result = new ArchiveClassLoader(this.inputArchives, this.dependencyClassLoader);
+            this.chunkClassLoader = result;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void endChunk() {
+        // Models keep no reference to the classes: once dropped, the loader and its classes can be collected
+        this.chunkClassLoader = null;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close, the archives belong to the caller
+    }
+}
@@ -0,0 +1,38 @@
+package aka.junitgenerator;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Render a source file generated for a class, such as its JUnit test or its JMH benchmark.
+ * The source is appended to a caller supplied buffer, so a worker can reuse the same buffer for every class.
+ * Implementations must be safe for use by several threads.
+ */
+public interface SourceRenderer {
+
+    /**
+     * Whether a file is generated for the given class.
+     *
+     * @param classModel class to render a file for
+     * @return <code>true</code> if the class is rendered, which is the default
+     */
+    default boolean accepts(@NonNull final ClassModel classModel) {
+        return true;
+    }
+
+    /**
+     * Path of the file generated for the given class.
+     *
+     * @param classModel class to render a file for
+     * @return path of the file, relative to the destination directory, '/' separated
+     */
+    @NonNull
+    String getRelativePath(@NonNull ClassModel classModel);
+
+    /**
+     * Append the source generated for the given class.
+     *
+     * @param classModel class to render a file for
+     * @param out buffer to append to
+     */
+    void render(@NonNull ClassModel classModel, @NonNull StringBuilder out);
+}
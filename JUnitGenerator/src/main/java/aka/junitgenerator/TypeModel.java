@@ -0,0 +1,67 @@
+package aka.junitgenerator;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Type used by a constructor or a method (parameter, return or exception type).
+ * Names follow the {@link Class#getName()} and {@link Class#getSimpleName()} conventions.
+ */
+public final class TypeModel {
+
+    @NonNull
+    private final String name;
+    @NonNull
+    private final String simpleName;
+    private final boolean primitive;
+    private final boolean array;
+
+    /**
+     * Constructor.
+     *
+     * @param name binary name of the type, as returned by {@link Class#getName()}
+     * @param simpleName simple name of the type, as returned by {@link Class#getSimpleName()}
+     * @param primitive <code>true</code> if the type is a primitive type (or void)
+     * @param array <code>true</code> if the type is an array
+     */
+    public TypeModel(@NonNull final String name, @NonNull final String simpleName, final boolean primitive, final boolean array) {
+        this.name = name;
+        this.simpleName = simpleName;
+        this.primitive = primitive;
+        this.array = array;
+    }
+
+    /**
+     * @return binary name of the type
+     */
+    @NonNull
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return simple name of the type
+     */
+    @NonNull
+    public String getSimpleName() {
+        return this.simpleName;
+    }
+
+    /**
+     * @return <code>true</code> if the type is a primitive type (or void)
+     */
+    public boolean isPrimitive() {
+        return this.primitive;
+    }
+
+    /**
+     * @return <code>true</code> if the type is an array
+     */
+    public boolean isArray() {
+        return this.array;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,324 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Jar or war read through its central directory only.
+ * The file is memory-mapped once: stored entries are returned as slices of the mapping without any copy,
+ * deflated entries are inflated on demand. Stored nested archives (as in Spring Boot fat jars) are sliced the same way.
+ * Reads do not change any shared state, so several threads can read entries at the same time.
+ */
+public final class ZipClassArchive implements ClassArchive {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int ENCRYPTED_FLAG = 0x1;
+    private static final long MAGIC_32 = 0xFFFFFFFFL;
+
+    @NonNull
+    private final String location;
+    @NonNull
+    private final ByteBuffer archive;
+    // Time the file of the archive, or of the archive containing it, was modified, -1 if unknown
+    private final long lastModified;
+    @NonNull
+    private final Map<String, EntryLocation> classEntries = new LinkedHashMap<>();
+    @NonNull
+    private final List<EntryLocation> nestedArchiveEntries = new ArrayList<>();
+
+    private ZipClassArchive(@NonNull final String location, @NonNull final ByteBuffer archive, final long lastModified) throws IOException {
+        this.location = location;
+        this.archive = archive.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.lastModified = lastModified;
+        readCentralDirectory();
+    }
+
+    /**
+     * Open and memory-map the given jar or war.
+     *
+     * @param path path to the archive
+     * @return archive
+     * @throws IOException if the file can not be mapped or is not a zip file
+     */
+    @NonNull
+    public static ZipClassArchive open(@NonNull final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive larger than 2 GB: " + path);
+            }
+            // The mapping stays valid once the channel is closed
+            return new ZipClassArchive(path.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), Files.getLastModifiedTime(path).toMillis());
+        }
+    }
+
+    /**
+     * Read an archive already in memory.
+     *
+     * @param location location of the archive, for messages
+     * @param archive bytes of the archive, between position and limit
+     * @return archive
+     * @throws IOException if the bytes are not a zip file
+     */
+    @NonNull
+    public static ZipClassArchive wrap(@NonNull final String location, @NonNull final ByteBuffer archive) throws IOException {
+        return new ZipClassArchive(location, archive, -1);
+    }
+
+    @Override
+    @NonNull
+    public String getLocation() {
+        return this.location;
+    }
+
+    @Override
+    @NonNull
+    public List<String> getClassNames() {
+        return new ArrayList<>(this.classEntries.keySet());
+    }
+
+    @Override
+    public long getClassFileSize(@NonNull final String className) {
+        final EntryLocation entryLocation = this.classEntries.get(className);
+        return entryLocation == null ? -1 : entryLocation.uncompressedSize;
+    }
+
+    /**
+     * Entries are not rewritten in place: the time the archive was modified.
+     */
+    @Override
+    public long getLastModified(@NonNull final String className) {
+        return this.classEntries.containsKey(className) ? this.lastModified : -1;
+    }
+
+    @Override
+    @Nullable
+    public ByteBuffer readClassFile(@NonNull final String className) throws IOException {
+        final EntryLocation entryLocation = this.classEntries.get(className);
+        if (entryLocation == null) {
+            return null;
+        }
+        return readEntry(entryLocation);
+    }
+
+    @Override
+    @NonNull
+    public List<ClassArchive> getNestedArchives() throws IOException {
+        final List<ClassArchive> result = new ArrayList<>(this.nestedArchiveEntries.size());
+        for (final EntryLocation entryLocation : this.nestedArchiveEntries) {
+            result.add(new ZipClassArchive(this.location + "!/" + entryLocation.name, readEntry(entryLocation), this.lastModified));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        // A mapping is released when it is no longer referenced, there is no way to unmap it earlier in Java 8
+        this.classEntries.clear();
+        this.nestedArchiveEntries.clear();
+    }
+
+    private void readCentralDirectory() throws IOException {
+        final ByteBuffer buffer = this.archive;
+        final int endOfCentralDirectory = findEndOfCentralDirectory();
+        long entriesCount = buffer.getShort(endOfCentralDirectory + 10) & 0xFFFF;
+        long centralDirectorySize = buffer.getInt(endOfCentralDirectory + 12) & MAGIC_32;
+        long centralDirectoryOffset = buffer.getInt(endOfCentralDirectory + 16) & MAGIC_32;
+        int centralDirectoryEnd = endOfCentralDirectory;
+
+        final int locator = endOfCentralDirectory - ZIP64_LOCATOR_SIZE;
+        if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+            final long zip64End = buffer.getLong(locator + 8);
+            // Offsets are relative to the start of the zip data, which may follow a launch script
+            final long shift = locator - (zip64End + 56);
+            final int zip64EndPosition = toPosition(zip64End + shift);
+            if (buffer.getInt(zip64EndPosition) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new IOException("Invalid zip64 end of central directory in " + this.location);
+            }
+            entriesCount = buffer.getLong(zip64EndPosition + 32);
+            centralDirectorySize = buffer.getLong(zip64EndPosition + 40);
+            centralDirectoryOffset = buffer.getLong(zip64EndPosition + 48);
+            centralDirectoryEnd = zip64EndPosition;
+        }
+
+        // Offsets are relative to the start of the zip data, which may follow a launch script
+        final long shift = centralDirectoryEnd - centralDirectorySize - centralDirectoryOffset;
+        int position = toPosition(centralDirectoryOffset + shift);
+        for (long i = 0; i < entriesCount; i++) {
+            if (buffer.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new IOException("Invalid central directory entry " + i + " in " + this.location);
+            }
+            final int flags = buffer.getShort(position + 8) & 0xFFFF;
+            final int method = buffer.getShort(position + 10) & 0xFFFF;
+            long compressedSize = buffer.getInt(position + 20) & MAGIC_32;
+            long uncompressedSize = buffer.getInt(position + 24) & MAGIC_32;
+            final int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+            final int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+            final int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = buffer.getInt(position + 42) & MAGIC_32;
+            final String name = readName(position + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+
+            if (compressedSize == MAGIC_32 || uncompressedSize == MAGIC_32 || localHeaderOffset == MAGIC_32) {
+                // Real values are in the zip64 extra field, in this order, only for the fields set to 0xFFFFFFFF
+                int extra = position + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength;
+                final int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    final int headerId = buffer.getShort(extra) & 0xFFFF;
+                    final int dataSize = buffer.getShort(extra + 2) & 0xFFFF;
+                    if (headerId == ZIP64_EXTRA_FIELD) {
+                        int field = extra + 4;
+                        if (uncompressedSize == MAGIC_32) {
+                            uncompressedSize = buffer.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == MAGIC_32) {
+                            compressedSize = buffer.getLong(field);
+                            field += 8;
+                        }
+                        if (localHeaderOffset == MAGIC_32) {
+                            localHeaderOffset = buffer.getLong(field);
+                        }
+                        break;
+                    }
+                    extra += 4 + dataSize;
+                }
+            }
+
+            if ((flags & ENCRYPTED_FLAG) == 0 && !name.endsWith("/")) {
+                final EntryLocation entryLocation = new EntryLocation(name, method, toPosition(localHeaderOffset + shift), toSize(compressedSize), toSize(uncompressedSize));
+                final String className = ClassNames.fromPath(name);
+                if (className != null) {
+                    this.classEntries.putIfAbsent(className, entryLocation);
+                } else if (name.endsWith(".jar")) {
+                    this.nestedArchiveEntries.add(entryLocation);
+                }
+            }
+            position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        final int last = this.archive.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        final int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int position = last; position >= first; position--) {
+            if (this.archive.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new IOException("Not a zip file: " + this.location);
+    }
+
+    @NonNull
+    private String readName(final int position, final int length) {
+        final byte[] name = new byte[length];
+        final ByteBuffer buffer = this.archive.duplicate();
+        buffer.position(position);
+        buffer.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    @NonNull
+    private ByteBuffer readEntry(@NonNull final EntryLocation entryLocation) throws IOException {
+        final ByteBuffer buffer = this.archive.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int localHeader = entryLocation.localHeaderPosition;
+        if (buffer.getInt(localHeader) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header for " + entryLocation.name + " in " + this.location);
+        }
+        // Name and extra field of the local header may differ from the central directory ones
+        final int dataPosition = localHeader + LOCAL_HEADER_SIZE + (buffer.getShort(localHeader + 26) & 0xFFFF) + (buffer.getShort(localHeader + 28) & 0xFFFF);
+        buffer.limit(dataPosition + entryLocation.compressedSize);
+        buffer.position(dataPosition);
+        final ByteBuffer data = buffer.slice();
+        if (entryLocation.method == STORED) {
+            return data.asReadOnlyBuffer();
+        }
+        if (entryLocation.method != DEFLATED) {
+            throw new IOException("Unsupported compression method " + entryLocation.method + " for " + entryLocation.name + " in " + this.location);
+        }
+        final byte[] compressed = new byte[entryLocation.compressedSize];
+        data.get(compressed);
+        final byte[] result = new byte[entryLocation.uncompressedSize];
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < result.length) {
+                final int inflated = inflater.inflate(result, length, result.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != result.length) {
+                throw new IOException("Truncated entry " + entryLocation.name + " in " + this.location);
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("Invalid entry " + entryLocation.name + " in " + this.location, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(result).asReadOnlyBuffer();
+    }
+
+    private int toPosition(final long offset) throws IOException {
+        if (offset < 0 || offset >= this.archive.limit()) {
+            throw new IOException("Invalid offset " + offset + " in " + this.location);
+        }
+        return (int) offset;
+    }
+
+    private int toSize(final long size) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Invalid entry size " + size + " in " + this.location);
+        }
+        return (int) size;
+    }
+
+    /**
+     * Where an entry is and how it is stored.
+     */
+    private static final class EntryLocation {
+
+        @NonNull
+        private final String name;
+        private final int method;
+        private final int localHeaderPosition;
+        private final int compressedSize;
+        private final int uncompressedSize;
+
+        EntryLocation(@NonNull final String name, final int method, final int localHeaderPosition, final int compressedSize, final int uncompressedSize) {
+            this.name = name;
+            this.method = method;
+            this.localHeaderPosition = localHeaderPosition;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+        }
+    }
+}
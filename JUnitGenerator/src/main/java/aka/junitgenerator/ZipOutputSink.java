@@ -0,0 +1,534 @@
+package aka.junitgenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@link OutputSink} writing every file to a single zip archive, such as a <code>.srcjar</code>, when closed.
+ * Files are compressed by the writing threads; the archive is then written in one pass, sorted by path and with a fixed time,
+ * so that the same files always give the same archive.
+ * Files of the previous archive which are neither replaced nor deleted are kept, their compressed bytes copied as they are,
+ * and the previous archive is not touched when no file changed.
+ */
+public final class ZipOutputSink implements OutputSink {
+
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int DEFLATED = 8;
+    private static final int ENCRYPTED_FLAG = 1;
+    private static final int ZIP64_EXTRA_FIELD = 1;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+    // 1980-01-01 00:00, the first date of the format
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (1 << 5) | 1;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final long MAX_OFFSET = 0xFFFFFFFFL;
+
+    @NonNull
+    private final Path archive;
+    @Nullable
+    private final FileChannel previousArchive;
+    @NonNull
+    private final Map<String, PreviousEntry> previousEntries = new HashMap<>();
+    @NonNull
+    private final Set<String> deletedEntries = ConcurrentHashMap.newKeySet();
+    @NonNull
+    private final ConcurrentSkipListMap<String, CompressedEntry> entries = new ConcurrentSkipListMap<>();
+    @NonNull
+    private final ThreadLocal<ContentWriter> contentWriters = ThreadLocal.withInitial(ContentWriter::new);
+    @NonNull
+    private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private volatile boolean changed;
+
+    /**
+     * Constructor.
+     *
+     * @param archive archive to write, its files are kept unless replaced or deleted
+     * @throws IOException if the existing archive can not be read
+     */
+    public ZipOutputSink(@NonNull final Path archive) throws IOException {
+        this.archive = archive;
+        if (Files.exists(archive)) {
+            final FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ);
+            try {
+                readCentralDirectory(channel);
+            } catch (final IOException e) {
+                channel.close();
+                throw e;
+            } catch (final RuntimeException e) {
+                // Offsets out of the archive
+                channel.close();
+                throw new IOException("Invalid zip archive: " + archive, e);
+            }
+            this.previousArchive = channel;
+        } else {
+            this.previousArchive = null;
+            this.changed = true;
+        }
+    }
+
+    @Override
+    @NonNull
+    public String getLocation() {
+        return this.archive.toString();
+    }
+
+    @Override
+    public boolean write(@NonNull final String relativePath, @NonNull final CharSequence content) throws IOException {
+        final ByteBuffer encoded = this.contentWriters.get().encode(content);
+        final int size = encoded.remaining();
+        final CRC32 crc32 = new CRC32();
+        crc32.update(encoded.duplicate());
+        final int crc = (int) crc32.getValue();
+        // Same length and checksum: same content
+        final CompressedEntry current = this.entries.get(relativePath);
+        if (current != null) {
+            if (current.crc == crc && current.size == size) {
+                return false;
+            }
+        } else {
+            final PreviousEntry previous = this.previousEntries.get(relativePath);
+            if (previous != null && !this.deletedEntries.contains(relativePath) && previous.crc == crc && previous.size == size) {
+                return false;
+            }
+        }
+        this.entries.put(relativePath, new CompressedEntry(crc, size, deflate(encoded)));
+        this.changed = true;
+        return true;
+    }
+
+    @Override
+    public boolean exists(@NonNull final String relativePath) {
+        return this.entries.containsKey(relativePath) || this.previousEntries.containsKey(relativePath) && !this.deletedEntries.contains(relativePath);
+    }
+
+    @Override
+    public void delete(@NonNull final String relativePath) {
+        if (this.entries.remove(relativePath) != null) {
+            this.changed = true;
+        }
+        if (this.previousEntries.containsKey(relativePath) && this.deletedEntries.add(relativePath)) {
+            this.changed = true;
+        }
+    }
+
+    /**
+     * Write the archive if a file changed, replacing the previous one atomically.
+     *
+     * @throws IOException if the archive can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.changed) {
+                writeArchive();
+            }
+        } finally {
+            final FileChannel currentPreviousArchive = this.previousArchive;
+            if (currentPreviousArchive != null) {
+                currentPreviousArchive.close();
+            }
+            for (Deflater deflater = this.deflaters.poll(); deflater != null; deflater = this.deflaters.poll()) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Read the entries of the previous archive from its central directory, with what is needed to copy their compressed bytes.
+     */
+    private void readCentralDirectory(@NonNull final FileChannel channel) throws IOException {
+        final long archiveSize = channel.size();
+        // The end of central directory record is followed by a comment of at most 65535 bytes
+        final int tailSize = (int) Math.min(archiveSize, END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF);
+        final ByteBuffer tail = read(channel, archiveSize - tailSize, tailSize);
+        int end = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE;
+        while (end >= 0 && tail.getInt(end) != END_OF_CENTRAL_DIRECTORY) {
+            end--;
+        }
+        if (end < 0) {
+            throw new IOException("Not a zip archive: " + this.archive);
+        }
+        long entryCount = tail.getShort(end + 10) & 0xFFFF;
+        long centralDirectorySize = tail.getInt(end + 12) & MAX_OFFSET;
+        long centralDirectoryOffset = tail.getInt(end + 16) & MAX_OFFSET;
+        final int locator = end - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+        if (locator >= 0 && tail.getInt(locator) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR) {
+            final ByteBuffer zip64End = read(channel, tail.getLong(locator + 8), 56);
+            if (zip64End.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                throw new IOException("Invalid zip64 archive: " + this.archive);
+            }
+            entryCount = zip64End.getLong(32);
+            centralDirectorySize = zip64End.getLong(40);
+            centralDirectoryOffset = zip64End.getLong(48);
+        }
+        if (centralDirectorySize > Integer.MAX_VALUE) {
+            throw new IOException("Central directory larger than 2 GB: " + this.archive);
+        }
+        final ByteBuffer centralDirectory = read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+        int position = 0;
+        for (long i = 0; i < entryCount; i++) {
+            if (centralDirectory.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+                throw new IOException("Invalid central directory: " + this.archive);
+            }
+            final int flags = centralDirectory.getShort(position + 8) & 0xFFFF;
+            final int method = centralDirectory.getShort(position + 10) & 0xFFFF;
+            final int crc = centralDirectory.getInt(position + 16);
+            long compressedSize = centralDirectory.getInt(position + 20) & MAX_OFFSET;
+            long size = centralDirectory.getInt(position + 24) & MAX_OFFSET;
+            final int nameLength = centralDirectory.getShort(position + 28) & 0xFFFF;
+            final int extraLength = centralDirectory.getShort(position + 30) & 0xFFFF;
+            final int commentLength = centralDirectory.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = centralDirectory.getInt(position + 42) & MAX_OFFSET;
+            final byte[] nameBytes = new byte[nameLength];
+            ((ByteBuffer) centralDirectory.duplicate().position(position + CENTRAL_DIRECTORY_HEADER_SIZE)).get(nameBytes);
+            // Values too large for their field are in the zip64 extra field, in this order
+            int extra = position + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength;
+            final int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                final int extraId = centralDirectory.getShort(extra) & 0xFFFF;
+                final int extraSize = centralDirectory.getShort(extra + 2) & 0xFFFF;
+                if (extraId == ZIP64_EXTRA_FIELD) {
+                    int field = extra + 4;
+                    if (size == MAX_OFFSET) {
+                        size = centralDirectory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == MAX_OFFSET) {
+                        compressedSize = centralDirectory.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == MAX_OFFSET) {
+                        localHeaderOffset = centralDirectory.getLong(field);
+                    }
+                }
+                extra += 4 + extraSize;
+            }
+            final String name = new String(nameBytes, Charset.forName("UTF-8"));
+            if (!name.endsWith("/")) {
+                if ((flags & ENCRYPTED_FLAG) != 0) {
+                    throw new IOException("Encrypted entry " + name + ": " + this.archive);
+                }
+                if (compressedSize >= MAX_OFFSET || size > Integer.MAX_VALUE) {
+                    throw new IOException("Entry larger than 2 GB " + name + ": " + this.archive);
+                }
+                this.previousEntries.put(name, new PreviousEntry(method, crc, compressedSize, (int) size, localHeaderOffset));
+            }
+            position = extraEnd + commentLength;
+        }
+    }
+
+    private void writeArchive() throws IOException {
+        final Set<String> names = new TreeSet<>(this.entries.keySet());
+        for (final String name : this.previousEntries.keySet()) {
+            if (!this.deletedEntries.contains(name)) {
+                names.add(name);
+            }
+        }
+        final Path parent = this.archive.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path temporaryFile = this.archive.resolveSibling(this.archive.getFileName() + ".tmp");
+        boolean written = false;
+        try {
+            try (ArchiveWriter writer = new ArchiveWriter(new BufferedOutputStream(Files.newOutputStream(temporaryFile), 64 * 1024))) {
+                writeEntries(writer, names);
+            }
+            final FileChannel currentPreviousArchive = this.previousArchive;
+            if (currentPreviousArchive != null) {
+                // Must be closed before being replaced on some platforms
+                currentPreviousArchive.close();
+            }
+            Files.move(temporaryFile, this.archive, StandardCopyOption.REPLACE_EXISTING);
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+    }
+
+    private void writeEntries(@NonNull final ArchiveWriter writer, @NonNull final Set<String> names) throws IOException {
+        final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream(names.size() * 96);
+        final ArchiveWriter centralDirectoryWriter = new ArchiveWriter(centralDirectory);
+        final ByteBuffer copyBuffer = ByteBuffer.allocate(64 * 1024);
+        for (final String name : names) {
+            final CompressedEntry entry = this.entries.get(name);
+            final PreviousEntry previousEntry = entry == null ? this.previousEntries.get(name) : null;
+            final int method;
+            final int crc;
+            final long compressedSize;
+            final int size;
+            if (entry != null) {
+                method = DEFLATED;
+                crc = entry.crc;
+                compressedSize = entry.deflated.length;
+                size = entry.size;
+            } else if (previousEntry != null) {
+                method = previousEntry.method;
+                crc = previousEntry.crc;
+                compressedSize = previousEntry.compressedSize;
+                size = previousEntry.size;
+            } else {
+                throw new IOException("Missing entry " + name + ": " + this.archive);
+            }
+            final byte[] nameBytes = name.getBytes(Charset.forName("UTF-8"));
+            final long offset = writer.getOffset();
+            if (offset > MAX_OFFSET) {
+                throw new IOException("Archive larger than 4 GB: " + this.archive);
+            }
+            writer.writeInt(LOCAL_FILE_HEADER);
+            writer.writeShort(VERSION);
+            writeEntryHeader(writer, method, crc, compressedSize, size, nameBytes.length);
+            writer.writeShort(0);
+            writer.write(nameBytes);
+            if (entry != null) {
+                writer.write(entry.deflated);
+            } else if (previousEntry != null) {
+                copyPreviousEntry(name, previousEntry, writer, copyBuffer);
+            }
+
+            centralDirectoryWriter.writeInt(CENTRAL_DIRECTORY_HEADER);
+            centralDirectoryWriter.writeShort(VERSION);
+            centralDirectoryWriter.writeShort(VERSION);
+            writeEntryHeader(centralDirectoryWriter, method, crc, compressedSize, size, nameBytes.length);
+            // Extra field, comment, disk, internal and external attributes
+            centralDirectoryWriter.writeShort(0);
+            centralDirectoryWriter.writeShort(0);
+            centralDirectoryWriter.writeShort(0);
+            centralDirectoryWriter.writeShort(0);
+            centralDirectoryWriter.writeInt(0);
+            centralDirectoryWriter.writeInt((int) offset);
+            centralDirectoryWriter.write(nameBytes);
+        }
+        final long centralDirectoryOffset = writer.getOffset();
+        centralDirectory.writeTo(writer);
+        final long centralDirectorySize = centralDirectory.size();
+        final boolean zip64 = names.size() >= MAX_ENTRIES || centralDirectoryOffset >= MAX_OFFSET;
+        if (zip64) {
+            final long zip64EndOffset = writer.getOffset();
+            writer.writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY);
+            writer.writeLong(44);
+            writer.writeShort(ZIP64_VERSION);
+            writer.writeShort(ZIP64_VERSION);
+            writer.writeInt(0);
+            writer.writeInt(0);
+            writer.writeLong(names.size());
+            writer.writeLong(names.size());
+            writer.writeLong(centralDirectorySize);
+            writer.writeLong(centralDirectoryOffset);
+            writer.writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR);
+            writer.writeInt(0);
+            writer.writeLong(zip64EndOffset);
+            writer.writeInt(1);
+        }
+        writer.writeInt(END_OF_CENTRAL_DIRECTORY);
+        writer.writeShort(0);
+        writer.writeShort(0);
+        writer.writeShort(zip64 ? MAX_ENTRIES : names.size());
+        writer.writeShort(zip64 ? MAX_ENTRIES : names.size());
+        writer.writeInt((int) centralDirectorySize);
+        writer.writeInt(zip64 ? (int) MAX_OFFSET : (int) centralDirectoryOffset);
+        writer.writeShort(0);
+    }
+
+    private static void writeEntryHeader(@NonNull final ArchiveWriter writer, final int method, final int crc, final long compressedSize, final int size, final int nameLength) throws IOException {
+        writer.writeShort(UTF8_FLAG);
+        writer.writeShort(method);
+        writer.writeShort(DOS_TIME);
+        writer.writeShort(DOS_DATE);
+        writer.writeInt(crc);
+        writer.writeInt((int) compressedSize);
+        writer.writeInt(size);
+        writer.writeShort(nameLength);
+    }
+
+    /**
+     * Copy the compressed bytes of an entry of the previous archive, without inflating them.
+     */
+    private void copyPreviousEntry(@NonNull final String name, @NonNull final PreviousEntry previousEntry, @NonNull final ArchiveWriter writer, @NonNull final ByteBuffer copyBuffer) throws IOException {
+        final FileChannel currentPreviousArchive = this.previousArchive;
+        if (currentPreviousArchive == null) {
+            throw new IOException("Missing entry " + name + ": " + this.archive);
+        }
+        final ByteBuffer localHeader = read(currentPreviousArchive, previousEntry.localHeaderOffset, LOCAL_FILE_HEADER_SIZE);
+        if (localHeader.getInt(0) != LOCAL_FILE_HEADER) {
+            throw new IOException("Invalid entry " + name + ": " + this.archive);
+        }
+        // The name and extra field of the local header may differ from those of the central directory
+        long position = previousEntry.localHeaderOffset + LOCAL_FILE_HEADER_SIZE + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+        long remaining = previousEntry.compressedSize;
+        while (remaining > 0) {
+            copyBuffer.clear();
+            copyBuffer.limit((int) Math.min(copyBuffer.capacity(), remaining));
+            final int read = currentPreviousArchive.read(copyBuffer, position);
+            if (read < 0) {
+                throw new EOFException("Truncated entry " + name + ": " + this.archive);
+            }
+            writer.write(copyBuffer.array(), 0, read);
+            position += read;
+            remaining -= read;
+        }
+    }
+
+    @NonNull
+    private static ByteBuffer read(@NonNull final FileChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (result.hasRemaining()) {
+            if (channel.read(result, position + result.position()) < 0) {
+                throw new EOFException("Truncated zip archive");
+            }
+        }
+        result.clear();
+        return result;
+    }
+
+    @NonNull
+    private byte[] deflate(@NonNull final ByteBuffer content) {
+        Deflater deflater = this.deflaters.poll();
+        if (deflater == null) {
+            // Raw deflate data, the zip headers are written by this sink
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        try {
+            final byte[] input = new byte[content.remaining()];
+            content.duplicate().get(input);
+            deflater.setInput(input);
+            deflater.finish();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 3 + 64);
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.reset();
+            this.deflaters.add(deflater);
+        }
+    }
+
+    /**
+     * Compressed file with what the zip headers need.
+     */
+    private static final class CompressedEntry {
+
+        private final int crc;
+        private final int size;
+        @NonNull
+        private final byte[] deflated;
+
+        CompressedEntry(final int crc, final int size, @NonNull final byte[] deflated) {
+            this.crc = crc;
+            this.size = size;
+            this.deflated = deflated;
+        }
+    }
+
+    /**
+     * Entry of the previous archive, located by its central directory record.
+     */
+    private static final class PreviousEntry {
+
+        private final int method;
+        private final int crc;
+        private final long compressedSize;
+        private final int size;
+        private final long localHeaderOffset;
+
+        PreviousEntry(final int method, final int crc, final long compressedSize, final int size, final long localHeaderOffset) {
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    /**
+     * Little-endian writer counting the bytes written.
+     */
+    private static final class ArchiveWriter extends OutputStream {
+
+        @NonNull
+        private final OutputStream outputStream;
+        @NonNull
+        private final ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        private long offset;
+
+        ArchiveWriter(@NonNull final OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        long getOffset() {
+            return this.offset;
+        }
+
+        void writeShort(final int value) throws IOException {
+            this.buffer.clear();
+            this.buffer.putShort((short) value);
+            write(this.buffer.array(), 0, 2);
+        }
+
+        void writeInt(final int value) throws IOException {
+            this.buffer.clear();
+            this.buffer.putInt(value);
+            write(this.buffer.array(), 0, 4);
+        }
+
+        void writeLong(final long value) throws IOException {
+            this.buffer.clear();
+            this.buffer.putLong(value);
+            write(this.buffer.array(), 0, 8);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.outputStream.write(b);
+            this.offset++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            this.outputStream.write(b, off, len);
+            this.offset += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.outputStream.close();
+        }
+    }
+}
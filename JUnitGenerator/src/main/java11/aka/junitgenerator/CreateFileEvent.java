@@ -0,0 +1,28 @@
+package aka.junitgenerator;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of the writing of a test file.
+ */
+@Name("aka.junitgenerator.CreateFile")
+@Label("Create Test File")
+@Category("JunitTestGenerator")
+@Description("Writing of the JUnit test of a class")
+final class CreateFileEvent extends Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Path")
+    String path;
+
+    @Label("Length")
+    @DataAmount(DataAmount.BYTES)
+    long length;
+}
@@ -0,0 +1,126 @@
+package aka.junitgenerator;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Emit the flight recorder events of the generator when the JVM has a flight recorder.
+ * Version of the multi-release jar for Java 11 and later; event classes are only loaded when <code>jdk.jfr</code> is present,
+ * as it may be left out of a custom runtime image.
+ */
+final class FlightRecorderEvents {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorderEvents() {
+        // Utility class
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Start the event of a generation run.
+     *
+     * @return event to give to {@link #endGeneration(Object, String, String, GenerationMetrics)}, <code>null</code> if there is no flight recorder
+     */
+    @Nullable
+    static Object beginGeneration() {
+        return AVAILABLE ? Events.beginGeneration() : null;
+    }
+
+    /**
+     * End and commit the event of a generation run.
+     *
+     * @param event event returned by {@link #beginGeneration()}
+     * @param inputs inputs of the run
+     * @param destination destination directory
+     * @param generationMetrics measures of the run
+     */
+    static void endGeneration(@Nullable final Object event, @NonNull final String inputs, @NonNull final String destination, @NonNull final GenerationMetrics generationMetrics) {
+        if (event != null) {
+            Events.endGeneration(event, inputs, destination, generationMetrics);
+        }
+    }
+
+    /**
+     * Start the event of the writing of a test file.
+     *
+     * @return event to give to {@link #endCreateFile(Object, String, String, long)}, <code>null</code> if there is no flight recorder or the event is disabled
+     */
+    @Nullable
+    static Object beginCreateFile() {
+        return AVAILABLE ? Events.beginCreateFile() : null;
+    }
+
+    /**
+     * End and commit the event of the writing of a test file.
+     *
+     * @param event event returned by {@link #beginCreateFile()}
+     * @param className binary name of the tested class
+     * @param path path of the file, relative to the destination directory
+     * @param length length of the content, in chars
+     */
+    static void endCreateFile(@Nullable final Object event, @NonNull final String className, @NonNull final String path, final long length) {
+        if (event != null) {
+            Events.endCreateFile(event, className, path, length);
+        }
+    }
+
+    /**
+     * Only loaded when the flight recorder is available.
+     */
+    private static final class Events {
+
+        @Nullable
+        static Object beginGeneration() {
+            final GenerationEvent event = new GenerationEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+            event.begin();
+            return event;
+        }
+
+        static void endGeneration(@NonNull final Object event, @NonNull final String inputs, @NonNull final String destination, @NonNull final GenerationMetrics generationMetrics) {
+            final GenerationEvent generationEvent = (GenerationEvent) event;
+            generationEvent.end();
+            if (generationEvent.shouldCommit()) {
+                generationEvent.inputs = inputs;
+                generationEvent.destination = destination;
+                generationEvent.discoveredClasses = generationMetrics.getDiscoveredClasses();
+                generationEvent.generatedFiles = generationMetrics.getGeneratedFiles();
+                generationEvent.generatedBenchmarks = generationMetrics.getGeneratedBenchmarks();
+                generationEvent.failedClasses = generationMetrics.getFailureCount();
+                generationEvent.commit();
+            }
+        }
+
+        @Nullable
+        static Object beginCreateFile() {
+            final CreateFileEvent event = new CreateFileEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+            event.begin();
+            return event;
+        }
+
+        static void endCreateFile(@NonNull final Object event, @NonNull final String className, @NonNull final String path, final long length) {
+            final CreateFileEvent createFileEvent = (CreateFileEvent) event;
+            createFileEvent.end();
+            if (createFileEvent.shouldCommit()) {
+                createFileEvent.className = className;
+                createFileEvent.path = path;
+                createFileEvent.length = length;
+                createFileEvent.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package aka.junitgenerator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a whole generation run.
+ */
+@Name("aka.junitgenerator.Generation")
+@Label("JUnit Test Generation")
+@Category("JunitTestGenerator")
+@Description("Generation of the JUnit tests of the given inputs")
+final class GenerationEvent extends Event {
+
+    @Label("Inputs")
+    String inputs;
+
+    @Label("Destination")
+    String destination;
+
+    @Label("Discovered Classes")
+    int discoveredClasses;
+
+    @Label("Generated Files")
+    long generatedFiles;
+
+    @Label("Generated Benchmarks")
+    long generatedBenchmarks;
+
+    @Label("Failed Classes")
+    long failedClasses;
+}
@@ -0,0 +1,128 @@
+package aka.junitgenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+
+public class ClassFileReader_Test {
+
+    /**
+     * Class exercising arrays, nested types, exceptions and static methods.
+     */
+    public static class Fixture {
+
+        public Fixture(final int value, final String[] names) {
+            // Nothing
+        }
+
+        protected Fixture(final Map.Entry<String, Integer> entry) throws IOException {
+            // Nothing
+        }
+
+        public static long[][] compute(final char c, final List<Map.Entry<String, Integer>> entries) {
+            return new long[0][0];
+        }
+
+        public void run() throws IOException, InterruptedException {
+            // Nothing
+        }
+
+        private Fixture nested(final Fixture fixture) {
+            return fixture;
+        }
+    }
+
+    @org.junit.Test
+    public void Test_readMatchesReflection() throws IOException {
+        assertSameModel(Fixture.class);
+        assertSameModel(JunitTestGenerator.class);
+        assertSameModel(ClassFileReader.class);
+        assertSameModel(ArrayList.class);
+        assertSameModel(Thread.State.class);
+    }
+
+    @org.junit.Test(expected = IOException.class)
+    public void Test_readInvalidClassFile() throws IOException {
+        new ClassFileReader().read(new byte[] { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0 });
+    }
+
+    @org.junit.Test(expected = IOException.class)
+    public void Test_readTruncatedAttribute() throws IOException {
+        final ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(classFile)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            // Constant pool: the class and its super class
+            out.writeShort(5);
+            out.writeByte(1);
+            out.writeUTF("Broken");
+            out.writeByte(7);
+            out.writeShort(1);
+            out.writeByte(1);
+            out.writeUTF("java/lang/Object");
+            out.writeByte(7);
+            out.writeShort(3);
+            out.writeShort(0x21);
+            out.writeShort(2);
+            out.writeShort(4);
+            // No interface, a field with an attribute longer than the file
+            out.writeShort(0);
+            out.writeShort(1);
+            out.writeShort(0);
+            out.writeShort(1);
+            out.writeShort(1);
+            out.writeShort(1);
+            out.writeShort(1);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        new ClassFileReader().read(classFile.toByteArray());
+    }
+
+    private void assertSameModel(final Class<?> loadedClass) throws IOException {
+        final byte[] classFile;
+        try (InputStream inputStream = loadedClass.getResourceAsStream("/" + loadedClass.getName().replace('.', '/') + ".class")) {
+            classFile = IOUtils.toByteArray(inputStream);
+        }
+        final ClassModel expected = new ReflectionClassModelReader().read(loadedClass);
+        final ClassModel actual = new ClassFileReader().read(classFile);
+
+        Assert.assertEquals(expected.getName(), actual.getName());
+        Assert.assertEquals(expected.getPackageName(), actual.getPackageName());
+        Assert.assertEquals(expected.getSimpleName(), actual.getSimpleName());
+        Assert.assertEquals(expected.isAbstract(), actual.isAbstract());
+        Assert.assertEquals(expected.isInterface(), actual.isInterface());
+        Assert.assertEquals(describe(expected.getConstructors()), describe(actual.getConstructors()));
+        Assert.assertEquals(describe(expected.getMethods()), describe(actual.getMethods()));
+    }
+
+    private List<String> describe(final List<MethodModel> methods) {
+        final List<String> result = new ArrayList<>();
+        for (final MethodModel method : methods) {
+            final StringBuilder description = new StringBuilder();
+            description.append(method.getModifiers()).append(' ').append(describe(method.getReturnType())).append(' ').append(method.getName()).append('(');
+            for (final TypeModel parameterType : method.getParameterTypes()) {
+                description.append(describe(parameterType)).append(',');
+            }
+            description.append(") throws ");
+            for (final TypeModel exceptionType : method.getExceptionTypes()) {
+                description.append(describe(exceptionType)).append(',');
+            }
+            result.add(description.toString());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private String describe(final TypeModel typeModel) {
+        return typeModel.getName() + "/" + typeModel.getSimpleName() + "/" + typeModel.isPrimitive() + "/" + typeModel.isArray();
+    }
+}
@@ -0,0 +1,61 @@
+package aka.junitgenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+
+public class ClassFilter_Test {
+
+    @org.junit.Test
+    public void Test_patterns() {
+        final ClassFilter classFilter = new ClassFilter(Arrays.asList("a.b.*", "c.**"), Collections.singletonList("**.Internal*"));
+        Assert.assertTrue(classFilter.accept("a.b.C"));
+        Assert.assertTrue(classFilter.accept("a.b.C$D"));
+        Assert.assertFalse(classFilter.accept("a.b.c.D"));
+        Assert.assertTrue(classFilter.accept("c.d.e.F"));
+        Assert.assertFalse(classFilter.accept("c.d.InternalF"));
+        Assert.assertFalse(classFilter.accept("d.E"));
+        Assert.assertTrue(ClassFilter.ALL.accept("d.E"));
+    }
+
+    @org.junit.Test
+    public void Test_shards() {
+        final List<String> classNames = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            classNames.add("p" + i % 17 + ".C" + i);
+        }
+        final List<String> all = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final List<String> shard = ClassFilter.ALL.withShard(i, 4).filter(classNames);
+            Assert.assertTrue(shard.size() > 2_000 && shard.size() < 3_000);
+            all.addAll(shard);
+        }
+        Collections.sort(all);
+        final List<String> sortedClassNames = new ArrayList<>(classNames);
+        Collections.sort(sortedClassNames);
+        Assert.assertEquals(sortedClassNames, all);
+
+        // Nested classes go with their top-level class, and the shards do not depend on the JVM
+        Assert.assertEquals(ClassFilter.getShard("a.B", 7), ClassFilter.getShard("a.B$C", 7));
+        Assert.assertEquals(3, ClassFilter.getShard("aka.junitgenerator.ClassFilter", 4));
+
+        // Adding a shard only moves classes to the new shard
+        int moved = 0;
+        for (final String className : classNames) {
+            final int shard = ClassFilter.getShard(className, 5);
+            if (shard != ClassFilter.getShard(className, 4)) {
+                Assert.assertEquals(4, shard);
+                moved++;
+            }
+        }
+        Assert.assertTrue(moved < 2_500);
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void Test_invalidShard() {
+        ClassFilter.ALL.withShard("4/4");
+    }
+}
@@ -0,0 +1,88 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+public class ClassModelIndex_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_saveAndOpen() throws IOException {
+        final List<Class<?>> classes = Arrays.asList(ClassFileReader_Test.Fixture.class, JunitTestGenerator.class, ArrayList.class, Thread.State.class);
+        final ClassModelIndexWriter writer = new ClassModelIndexWriter(ClassModelSource.BYTECODE);
+        for (final Class<?> indexedClass : classes) {
+            final ByteBuffer classFile = readClassFile(indexedClass);
+            writer.add(classFile, new ClassFileReader().read(classFile));
+        }
+        final File indexFile = new File(this.temporaryFolder.getRoot(), "models.idx");
+        writer.save(indexFile.toPath());
+
+        final ClassModelIndex index = ClassModelIndex.open(indexFile.toPath());
+        Assert.assertEquals(ClassModelSource.BYTECODE, index.getClassModelSource());
+        Assert.assertEquals(Arrays.asList("aka.junitgenerator.ClassFileReader_Test$Fixture", "aka.junitgenerator.JunitTestGenerator", "java.lang.Thread$State", "java.util.ArrayList"), new ArrayList<>(index.getClassNames()));
+        final JunitTestRenderer renderer = new JunitTestRenderer();
+        for (final Class<?> indexedClass : classes) {
+            final ByteBuffer classFile = readClassFile(indexedClass);
+            final ClassModel indexed = index.getClassModel(indexedClass.getName(), classFile);
+            Assert.assertNotNull(indexed);
+            Assert.assertEquals(render(renderer, new ClassFileReader().read(classFile)), render(renderer, indexed));
+            Assert.assertEquals(new ClassFileReader().read(classFile).getModifiers(), indexed.getModifiers());
+        }
+        Assert.assertNull(index.getClassModel("java.lang.Missing"));
+        Assert.assertNull(index.getClassModel(ArrayList.class.getName(), readClassFile(JunitTestGenerator.class)));
+    }
+
+    @org.junit.Test
+    public void Test_generatorReusesIndex() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(JunitTestGenerator.class).getPath();
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File manifest = new File(this.temporaryFolder.getRoot(), "manifest.txt");
+        final File indexFile = new File(this.temporaryFolder.getRoot(), "models.idx");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setManifestFile(manifest.getAbsolutePath());
+        generator.setClassModelIndexFile(indexFile.getAbsolutePath());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        final GenerationMetrics metrics = generator.getLastRunMetrics();
+        Assert.assertNotNull(metrics);
+        final int indexedClasses = ClassModelIndex.open(indexFile.toPath()).size();
+        Assert.assertEquals(metrics.getDiscoveredClasses() - metrics.getSkipped().get(GenerationMetrics.SkipReason.MODULE).intValue(), indexedClasses);
+
+        // Unchanged classes are skipped but keep their model
+        generator.setClassNames(Collections.singletonList(JunitTestGenerator.class.getName()));
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        final ClassModelIndex index = ClassModelIndex.open(indexFile.toPath());
+        Assert.assertEquals(indexedClasses, index.size());
+        Assert.assertTrue(index.contains(ClassModelIndex.class.getName()));
+        Assert.assertNotNull(index.getClassModel(JunitTestGenerator.class.getName(), readClassFile(JunitTestGenerator.class)));
+    }
+
+    @org.junit.Test(expected = IOException.class)
+    public void Test_openInvalidIndex() throws IOException {
+        ClassModelIndex.wrap("invalid", ByteBuffer.wrap(new byte[64]));
+    }
+
+    private static ByteBuffer readClassFile(final Class<?> loadedClass) throws IOException {
+        try (InputStream inputStream = loadedClass.getResourceAsStream("/" + loadedClass.getName().replace('.', '/') + ".class")) {
+            return ByteBuffer.wrap(IOUtils.toByteArray(inputStream));
+        }
+    }
+
+    private static String render(final JunitTestRenderer renderer, final ClassModel classModel) {
+        final StringBuilder out = new StringBuilder();
+        renderer.render(classModel, out);
+        return out.toString();
+    }
+}
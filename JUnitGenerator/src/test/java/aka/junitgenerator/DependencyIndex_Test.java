@@ -0,0 +1,71 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+public class DependencyIndex_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_wildcardsAndIndexFile() throws IOException {
+        final byte[] classFile = readClassFile(DependencyIndex.class);
+        final File lib = this.temporaryFolder.newFolder("lib");
+        final File first = zip(new File(lib, "a.jar"), "a/b/First.class", classFile);
+        zip(new File(lib, "b.jar"), "b/Second.class", classFile);
+        zip(new File(lib, "sub/c.jar"), "c/Third.class", classFile);
+        final Path indexFile = new File(this.temporaryFolder.getRoot(), "dependencies.idx").toPath();
+
+        try (DependencyIndex dependencyIndex = DependencyIndex.open(Collections.singletonList(lib.getPath() + "/*"), indexFile)) {
+            Assert.assertEquals(2, dependencyIndex.getPaths().size());
+            Assert.assertNotNull(dependencyIndex.readClassFile("a.b.First"));
+            Assert.assertNotNull(dependencyIndex.readClassFile("b.Second"));
+            Assert.assertNull(dependencyIndex.readClassFile("c.Third"));
+        }
+        final List<String> lines = FileUtils.readLines(indexFile.toFile(), StandardCharsets.UTF_8);
+        Assert.assertEquals(3, lines.size());
+
+        // A corrupted but unchanged jar is taken from the index file and never opened
+        final long lastModified = first.lastModified();
+        final byte[] corrupted = new byte[(int) first.length()];
+        FileUtils.writeByteArrayToFile(first, corrupted);
+        Assert.assertTrue(first.setLastModified(lastModified));
+        try (DependencyIndex dependencyIndex = DependencyIndex.open(Arrays.asList(lib.getPath() + "/**"), indexFile)) {
+            Assert.assertEquals(3, dependencyIndex.getPaths().size());
+            Assert.assertNotNull(dependencyIndex.readClassFile("b.Second"));
+            Assert.assertNotNull(dependencyIndex.readClassFile("c.Third"));
+        }
+        Assert.assertEquals(4, FileUtils.readLines(indexFile.toFile(), StandardCharsets.UTF_8).size());
+    }
+
+    private byte[] readClassFile(final Class<?> loadedClass) throws IOException {
+        try (InputStream inputStream = loadedClass.getResourceAsStream(loadedClass.getSimpleName() + ".class")) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    private File zip(final File file, final String entryName, final byte[] content) throws IOException {
+        FileUtils.forceMkdirParent(file);
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(FileUtils.openOutputStream(file))) {
+            zipOutputStream.putNextEntry(new ZipEntry(entryName));
+            zipOutputStream.write(content);
+            zipOutputStream.closeEntry();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,86 @@
+package aka.junitgenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+
+public class GenerationPipeline_Test {
+
+    @org.junit.Test(timeout = 30000)
+    public void Test_runEndsWhenProviderThrowsErrors() throws IOException, InterruptedException {
+        final ByteBuffer classFile;
+        try (InputStream inputStream = ClassFileReader_Test.Fixture.class.getResourceAsStream("ClassFileReader_Test$Fixture.class")) {
+            classFile = ByteBuffer.wrap(IOUtils.toByteArray(inputStream));
+        }
+        final ClassModel classModel = new ClassFileReader().read(classFile);
+        final ClassModelProvider classModelProvider = new ClassModelProvider() {
+
+            @Override
+            public ClassModel getClassModel(final String className, final ByteBuffer ignored) {
+                if (className.startsWith("broken.")) {
+                    // Neither an Exception nor a LinkageError
+                    throw new StackOverflowError(className);
+                }
+                return classModel;
+            }
+
+            @Override
+            public void close() {
+                // Nothing to release
+            }
+        };
+        final List<String> classNames = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            classNames.add("broken.Class" + i);
+        }
+        classNames.add(ClassFileReader_Test.Fixture.class.getName());
+        final GenerationMetrics generationMetrics = new GenerationMetrics(0);
+        final MemoryOutputSink outputSink = new MemoryOutputSink();
+        // A single worker and a small queue: a dead worker would block the discovery
+        new GenerationPipeline(classModelProvider, new JunitTestRenderer(), outputSink, 1, 1, 1, 2, generationMetrics).run(classNames);
+
+        Assert.assertEquals(20, generationMetrics.getFailureCount());
+        Assert.assertEquals(Long.valueOf(20), generationMetrics.getFailures().get(StackOverflowError.class.getName()));
+        Assert.assertEquals(1, outputSink.getFiles().size());
+    }
+
+    @org.junit.Test(timeout = 30000)
+    public void Test_runReusesBuffers() throws IOException, InterruptedException {
+        final List<Class<?>> classes = Arrays.asList(ClassFilter.class, ClassModel.class, FingerprintManifest.class, GenerationCache.class, JunitTestRenderer.class, MethodModel.class, PackageChunks.class, TypeModel.class);
+        final List<String> classNames = new ArrayList<>();
+        final List<String> expectedContents = new ArrayList<>();
+        for (final Class<?> testedClass : classes) {
+            classNames.add(testedClass.getName());
+            expectedContents.add(new JunitTestRenderer().render(readClassModel(testedClass.getName())).getContent());
+        }
+        final ClassModelProvider classModelProvider = new ClassModelProvider() {
+
+            @Override
+            public ClassModel getClassModel(final String className, final ByteBuffer ignored) throws IOException {
+                return readClassModel(className);
+            }
+
+            @Override
+            public void close() {
+                // Nothing to release
+            }
+        };
+        final MemoryOutputSink outputSink = new MemoryOutputSink();
+        // Files of several classes in flight at once, rendered by several workers
+        new GenerationPipeline(classModelProvider, new JunitTestRenderer(), outputSink, 2, 3, 2, 2, new GenerationMetrics(0)).run(classNames);
+
+        Assert.assertEquals(expectedContents, new ArrayList<>(outputSink.getFiles().values()));
+    }
+
+    private static ClassModel readClassModel(final String className) throws IOException {
+        try (InputStream inputStream = GenerationPipeline_Test.class.getResourceAsStream("/" + className.replace('.', '/') + ".class")) {
+            return new ClassFileReader().read(ByteBuffer.wrap(IOUtils.toByteArray(inputStream)));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+public class GeneratorDaemon_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_generateThroughDaemon() throws IOException, InterruptedException {
+        final String classesDirectory = TestResources.getCodeSource(JunitTestGenerator.class).getPath();
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final Path daemonFile = new File(this.temporaryFolder.getRoot(), "daemon").toPath();
+        final GeneratorDaemon generatorDaemon = new GeneratorDaemon(daemonFile, 64 * 1024 * 1024);
+        generatorDaemon.start();
+        try {
+            final String answer = GeneratorClient.send(daemonFile, Arrays.asList("destination " + destination.getAbsolutePath(), "input " + classesDirectory, "generate"));
+            Assert.assertTrue(answer, answer.startsWith("ok "));
+            Assert.assertEquals(FileUtils.listFiles(destination, null, true).size(), Integer.parseInt(answer.split(" ")[1]));
+            final int cachedClassModels = generatorDaemon.getGenerationCache().size();
+            Assert.assertTrue(cachedClassModels > 0);
+
+            // Single class, its model comes from the cache
+            final File typeModelTest = new File(destination, "aka/junitgenerator/TypeModel_TEST.java");
+            Assert.assertTrue(typeModelTest.delete());
+            final long hits = generatorDaemon.getGenerationCache().getHits();
+            Assert.assertEquals("ok 1 0", GeneratorClient.send(daemonFile, Arrays.asList("destination " + destination.getAbsolutePath(), "input " + classesDirectory, "class aka.junitgenerator.TypeModel", "generate")).replaceAll(" [0-9]+$", ""));
+            Assert.assertTrue(typeModelTest.isFile());
+            Assert.assertEquals(hits + 1, generatorDaemon.getGenerationCache().getHits());
+            Assert.assertEquals(cachedClassModels, generatorDaemon.getGenerationCache().size());
+
+            Assert.assertTrue(GeneratorClient.send(daemonFile, Arrays.asList("unknown key", "generate")).startsWith("error "));
+            // Relative paths would be resolved against the directory of the daemon
+            Assert.assertTrue(GeneratorClient.send(daemonFile, Arrays.asList("destination generated", "input " + classesDirectory, "generate")).startsWith("error "));
+            Assert.assertEquals("destination " + new File("generated").getAbsolutePath(), GeneratorClient.toLine("destination=generated"));
+            Assert.assertEquals("class a.B", GeneratorClient.toLine("class=a.B"));
+            Assert.assertEquals("ok", GeneratorClient.send(daemonFile, Collections.singletonList("stop")));
+            generatorDaemon.awaitStop();
+            Assert.assertFalse(daemonFile.toFile().exists());
+        } finally {
+            generatorDaemon.close();
+        }
+    }
+
+    @org.junit.Test
+    public void Test_reuseInputJars() throws IOException {
+        final File jar = new File(this.temporaryFolder.getRoot(), "input.jar");
+        writeJar(jar);
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final Path daemonFile = new File(this.temporaryFolder.getRoot(), "daemon").toPath();
+        try (GeneratorDaemon generatorDaemon = new GeneratorDaemon(daemonFile, 64 * 1024 * 1024)) {
+            generatorDaemon.start();
+            final String answer = GeneratorClient.send(daemonFile, Arrays.asList("destination " + destination.getAbsolutePath(), "input " + jar.getAbsolutePath(), "generate"));
+            Assert.assertEquals("ok 1 0", answer.replaceAll(" [0-9]+$", ""));
+            final ClassArchive classArchive = generatorDaemon.getGenerationCache().getClassArchive(jar.toPath());
+            Assert.assertNotNull(classArchive);
+
+            // Unchanged jar: kept open between requests
+            GeneratorClient.send(daemonFile, Arrays.asList("destination " + destination.getAbsolutePath(), "input " + jar.getAbsolutePath(), "generate"));
+            Assert.assertSame(classArchive, generatorDaemon.getGenerationCache().getClassArchive(jar.toPath()));
+
+            // Rewritten jar: opened again
+            writeJar(jar);
+            Assert.assertTrue(jar.setLastModified(jar.lastModified() - 60000));
+            Assert.assertNotSame(classArchive, generatorDaemon.getGenerationCache().getClassArchive(jar.toPath()));
+            // Directories are scanned by every request
+            Assert.assertNull(generatorDaemon.getGenerationCache().getClassArchive(destination.toPath()));
+        }
+    }
+
+    private static void writeJar(final File jar) throws IOException {
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(FileUtils.openOutputStream(jar)); InputStream inputStream = TypeModel.class.getResourceAsStream("TypeModel.class")) {
+            zipOutputStream.putNextEntry(new ZipEntry("aka/junitgenerator/TypeModel.class"));
+            IOUtils.copy(inputStream, zipOutputStream);
+            zipOutputStream.closeEntry();
+        }
+    }
+}
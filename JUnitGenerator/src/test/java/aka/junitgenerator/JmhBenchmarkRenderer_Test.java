@@ -0,0 +1,71 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class JmhBenchmarkRenderer_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_renderOverloadsCompiles() throws IOException {
+        final ClassModel classModel;
+        try (InputStream inputStream = Overloaded.class.getResourceAsStream("JmhBenchmarkRenderer_Test$Overloaded.class")) {
+            classModel = new ClassFileReader().read(ByteBuffer.wrap(IOUtils.toByteArray(inputStream)));
+        }
+        final JmhBenchmarkRenderer jmhBenchmarkRenderer = new JmhBenchmarkRenderer();
+        final StringBuilder out = new StringBuilder();
+        jmhBenchmarkRenderer.render(classModel, out);
+        final String content = out.toString();
+        // Arrays are named after their elements and dimensions, types of the same simple name are numbered
+        Assert.assertTrue(content.contains("public int benchmarkSizeWithintArray() {"));
+        Assert.assertTrue(content.contains("public int benchmarkSizeWithintArrayArray() {"));
+        Assert.assertTrue(content.contains("public int benchmarkSizeWithStringArray() {"));
+        Assert.assertTrue(content.contains("public int benchmarkSizeWithList() {"));
+        Assert.assertTrue(content.contains("public int benchmarkSizeWithList2() {"));
+
+        final File benchmarkFile = new File(this.temporaryFolder.getRoot(), jmhBenchmarkRenderer.getRelativePath(classModel));
+        FileUtils.writeStringToFile(benchmarkFile, content, "UTF-8");
+        final String classpath = TestResources.getCodeSource(Benchmark.class).getPath() + File.pathSeparator
+                + TestResources.getCodeSource(Overloaded.class).getPath();
+        final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertNotNull(javaCompiler);
+        Assert.assertEquals(0, javaCompiler.run(null, null, null, "-proc:none", "-cp", classpath, "-d", this.temporaryFolder.newFolder("classes").getAbsolutePath(), benchmarkFile.getAbsolutePath()));
+    }
+
+    public static class Overloaded {
+
+        public int size(final int[] values) {
+            return values.length;
+        }
+
+        public int size(final int[][] values) {
+            return values.length;
+        }
+
+        public int size(final String[] values) {
+            return values.length;
+        }
+
+        public int size(final java.util.List<?> values) {
+            return values.size();
+        }
+
+        public int size(final java.awt.List values) {
+            return values.getItemCount();
+        }
+    }
+}
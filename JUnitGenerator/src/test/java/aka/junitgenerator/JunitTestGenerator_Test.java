@@ -0,0 +1,413 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+public class JunitTestGenerator_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_generateJunitTestClassesIncrementally() throws IOException {
+        final File classesDirectory = this.temporaryFolder.newFolder("classes");
+        FileUtils.copyDirectory(TestResources.getCodeSource(JunitTestGenerator.class), classesDirectory);
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File manifest = new File(this.temporaryFolder.getRoot(), "manifest.txt");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setManifestFile(manifest.getAbsolutePath());
+
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        Assert.assertTrue(manifest.isFile());
+        final File typeModelTest = new File(destination, "aka/junitgenerator/TypeModel_TEST.java");
+        final File classModelTest = new File(destination, "aka/junitgenerator/ClassModel_TEST.java");
+        Assert.assertTrue(typeModelTest.isFile());
+        Assert.assertTrue(classModelTest.isFile());
+
+        // Unchanged classes are not generated again, removed classes lose their test
+        FileUtils.writeStringToFile(typeModelTest, "edited", "UTF-8");
+        Assert.assertTrue(new File(classesDirectory, "aka/junitgenerator/ClassModel.class").delete());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        Assert.assertEquals("edited", FileUtils.readFileToString(typeModelTest, "UTF-8"));
+        Assert.assertFalse(classModelTest.exists());
+
+        // Missing outputs are generated again
+        Assert.assertTrue(typeModelTest.delete());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        Assert.assertTrue(typeModelTest.isFile());
+    }
+
+    @org.junit.Test
+    public void Test_skipClassFilesOlderThanManifest() throws IOException {
+        final File classesDirectory = this.temporaryFolder.newFolder("classes");
+        // Copied with their modification time, older than the runs
+        FileUtils.copyDirectory(TestResources.getCodeSource(JunitTestGenerator.class), classesDirectory);
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setManifestFile(new File(this.temporaryFolder.getRoot(), "manifest.txt").getAbsolutePath());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        GenerationMetrics metrics = generator.getLastRunMetrics();
+        Assert.assertNotNull(metrics);
+        Assert.assertEquals(0, metrics.getHistogram(GenerationMetrics.Phase.READ).getCount());
+        Assert.assertEquals(0, metrics.getGeneratedFiles());
+
+        // A newer class file is read and fingerprinted, and still skipped if its content did not change
+        final File typeModelTest = new File(destination, "aka/junitgenerator/TypeModel_TEST.java");
+        FileUtils.writeStringToFile(typeModelTest, "edited", "UTF-8");
+        Assert.assertTrue(new File(classesDirectory, "aka/junitgenerator/TypeModel.class").setLastModified(System.currentTimeMillis() + 60000));
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        metrics = generator.getLastRunMetrics();
+        Assert.assertNotNull(metrics);
+        Assert.assertEquals(1, metrics.getHistogram(GenerationMetrics.Phase.READ).getCount());
+        Assert.assertEquals("edited", FileUtils.readFileToString(typeModelTest, "UTF-8"));
+    }
+
+    @org.junit.Test
+    public void Test_generateAgainWhenSettingsChange() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(JunitTestGenerator.class).getPath();
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File manifest = new File(this.temporaryFolder.getRoot(), "manifest.txt");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setManifestFile(manifest.getAbsolutePath());
+        generator.setBenchmarkDirectory(this.temporaryFolder.newFolder("benchmarks").getAbsolutePath());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        final String settings = FingerprintManifest.load(manifest.toPath()).getSettings();
+        Assert.assertNotNull(settings);
+
+        final File typeModelTest = new File(destination, "aka/junitgenerator/TypeModel_TEST.java");
+        FileUtils.writeStringToFile(typeModelTest, "edited", "UTF-8");
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        Assert.assertEquals("edited", FileUtils.readFileToString(typeModelTest, "UTF-8"));
+
+        // Same class files, other options: every class is generated again
+        final JunitTestGenerator otherGenerator = new JunitTestGenerator();
+        otherGenerator.setManifestFile(manifest.getAbsolutePath());
+        otherGenerator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        Assert.assertNotEquals("edited", FileUtils.readFileToString(typeModelTest, "UTF-8"));
+        Assert.assertNotEquals(settings, FingerprintManifest.load(manifest.toPath()).getSettings());
+    }
+
+    @org.junit.Test
+    public void Test_generateBenchmarks() throws IOException {
+        final File classesDirectory = this.temporaryFolder.newFolder("classes");
+        FileUtils.copyDirectory(TestResources.getCodeSource(JunitTestGenerator.class), classesDirectory);
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File benchmarks = new File(this.temporaryFolder.getRoot(), "benchmarks");
+        final File manifest = new File(this.temporaryFolder.getRoot(), "manifest.txt");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setManifestFile(manifest.getAbsolutePath());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+
+        // Classes generated before the benchmarks were enabled get their benchmark
+        generator.setBenchmarkDirectory(benchmarks.getAbsolutePath());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        final GenerationMetrics metrics = generator.getLastRunMetrics();
+        Assert.assertNotNull(metrics);
+        // Their tests are rendered again with the same content
+        Assert.assertEquals(0, metrics.getGeneratedFiles());
+        Assert.assertEquals(FileUtils.listFiles(benchmarks, new String[] { "java" }, true).size(), metrics.getGeneratedBenchmarks());
+        Assert.assertTrue(FileUtils.readFileToString(new File(benchmarks, "pom.xml"), "UTF-8").contains("<artifactId>jmh-core</artifactId>"));
+        final File classFilterBenchmark = new File(benchmarks, "src/main/java/aka/junitgenerator/ClassFilter_Benchmark.java");
+        final String content = FileUtils.readFileToString(classFilterBenchmark, "UTF-8");
+        Assert.assertTrue(content.contains("public class ClassFilter_Benchmark {"));
+        Assert.assertTrue(content.contains("this.instance = new aka.junitgenerator.ClassFilter((List) null, (List) null);"));
+        Assert.assertTrue(content.contains("public int benchmarkGetShardWithStringint() {"));
+        Assert.assertTrue(content.contains("return aka.junitgenerator.ClassFilter.getShard(this.getShardWithStringintParam0, this.getShardWithStringintParam1);"));
+        Assert.assertTrue(content.contains("import java.util.List;"));
+        Assert.assertFalse(content.contains("import java.lang.String;"));
+
+        // Removed classes lose their benchmark
+        final File classModelBenchmark = new File(benchmarks, "src/main/java/aka/junitgenerator/ClassModel_Benchmark.java");
+        Assert.assertTrue(classModelBenchmark.isFile());
+        Assert.assertTrue(new File(classesDirectory, "aka/junitgenerator/ClassModel.class").delete());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        Assert.assertFalse(classModelBenchmark.exists());
+        Assert.assertTrue(classFilterBenchmark.isFile());
+    }
+
+    @org.junit.Test
+    public void Test_generateJunitTestClassesIsDeterministic() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(JunitTestGenerator.class).getPath();
+
+        final File serial = this.temporaryFolder.newFolder("serial");
+        final JunitTestGenerator serialGenerator = new JunitTestGenerator();
+        serialGenerator.setModelWorkers(1);
+        serialGenerator.setRenderWorkers(1);
+        serialGenerator.setWriteWorkers(1);
+        serialGenerator.generateJunitTestClasses(serial.getAbsolutePath(), classesDirectory, new ArrayList<>());
+
+        final File parallel = this.temporaryFolder.newFolder("parallel");
+        final JunitTestGenerator parallelGenerator = new JunitTestGenerator();
+        parallelGenerator.setModelWorkers(4);
+        parallelGenerator.setRenderWorkers(3);
+        parallelGenerator.setWriteWorkers(2);
+        parallelGenerator.setQueueCapacity(1);
+        parallelGenerator.generateJunitTestClasses(parallel.getAbsolutePath(), classesDirectory, new ArrayList<>());
+
+        final Collection<File> serialFiles = FileUtils.listFiles(serial, null, true);
+        Assert.assertTrue(new File(serial, "aka/junitgenerator/JunitTestGenerator_TEST.java").isFile());
+        Assert.assertEquals(serialFiles.size(), FileUtils.listFiles(parallel, null, true).size());
+        for (final File serialFile : serialFiles) {
+            final File parallelFile = new File(parallel, serial.toPath().relativize(serialFile.toPath()).toString());
+            Assert.assertEquals(FileUtils.readFileToString(serialFile, "UTF-8"), FileUtils.readFileToString(parallelFile, "UTF-8"));
+        }
+    }
+
+    @org.junit.Test
+    public void Test_generateWithMemoryBudget() throws IOException, ClassNotFoundException, InterruptedException {
+        // Three packages of about 600 KB of class files: a chunk each with a budget of 1 MB
+        final File classesDirectory = this.temporaryFolder.newFolder("classes");
+        final File sourcesDirectory = this.temporaryFolder.newFolder("sources");
+        final List<String> sourceFiles = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            final String helperSource = "package p" + i + ";\n\npublic class Helper {\n\n    int count;\n\n    public void add(final int value) {\n        this.count += value;\n    }\n}\n";
+            final File helperFile = new File(sourcesDirectory, "p" + i + "/Helper.java");
+            FileUtils.writeStringToFile(helperFile, helperSource, "UTF-8");
+            sourceFiles.add(writeBigSource(sourcesDirectory, "p" + i, "\n    public int size(final Helper helper) {\n        return helper.count;\n    }\n"));
+            sourceFiles.add(helperFile.getAbsolutePath());
+        }
+        compile(sourceFiles, classesDirectory);
+
+        try (InputArchives inputArchives = InputArchives.open(Collections.singletonList(classesDirectory.getAbsolutePath()), false); DependencyIndex dependencyIndex = DependencyIndex.open(new ArrayList<>(), null)) {
+            final PackageChunks packageChunks = new PackageChunks(inputArchives, className -> true, className -> true, 1024 * 1024);
+            Assert.assertEquals(Arrays.asList("p1.Big", "p1.Helper"), packageChunks.next());
+            Assert.assertEquals(Arrays.asList("p2.Big", "p2.Helper"), packageChunks.next());
+            Assert.assertEquals(Arrays.asList("p3.Big", "p3.Helper"), packageChunks.next());
+            Assert.assertNull(packageChunks.next());
+
+            // The class loader of a chunk is dropped at its end, with its classes
+            final ReflectionModelProvider reflectionModelProvider = new ReflectionModelProvider(inputArchives, dependencyIndex, new GenerationMetrics(0));
+            final WeakReference<ClassLoader> firstClassLoaderReference = getChunkClassLoader(reflectionModelProvider, "p1.Big");
+            reflectionModelProvider.endChunk();
+            Assert.assertNull(reflectionModelProvider.getChunkClassLoader());
+            final WeakReference<ClassLoader> secondClassLoaderReference = getChunkClassLoader(reflectionModelProvider, "p2.Big");
+            Assert.assertNotSame(firstClassLoaderReference.get(), secondClassLoaderReference.get());
+            reflectionModelProvider.endChunk();
+            for (int i = 0; i < 50 && firstClassLoaderReference.get() != null; i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            Assert.assertNull(firstClassLoaderReference.get());
+        }
+
+        final File unbounded = this.temporaryFolder.newFolder("unbounded");
+        final JunitTestGenerator unboundedGenerator = new JunitTestGenerator();
+        unboundedGenerator.setClassModelSource(ClassModelSource.REFLECTION);
+        unboundedGenerator.generateJunitTestClasses(unbounded.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+
+        final File bounded = this.temporaryFolder.newFolder("bounded");
+        final JunitTestGenerator boundedGenerator = new JunitTestGenerator();
+        boundedGenerator.setClassModelSource(ClassModelSource.REFLECTION);
+        boundedGenerator.setMemoryBudget(1);
+        boundedGenerator.generateJunitTestClasses(bounded.getAbsolutePath(), classesDirectory.getAbsolutePath(), new ArrayList<>());
+        final GenerationMetrics generationMetrics = boundedGenerator.getLastRunMetrics();
+        Assert.assertNotNull(generationMetrics);
+        Assert.assertEquals(6, generationMetrics.getDiscoveredClasses());
+
+        final Collection<File> unboundedFiles = FileUtils.listFiles(unbounded, null, true);
+        Assert.assertEquals(6, unboundedFiles.size());
+        Assert.assertEquals(unboundedFiles.size(), FileUtils.listFiles(bounded, null, true).size());
+        for (final File unboundedFile : unboundedFiles) {
+            final File boundedFile = new File(bounded, unbounded.toPath().relativize(unboundedFile.toPath()).toString());
+            Assert.assertEquals(FileUtils.readFileToString(unboundedFile, "UTF-8"), FileUtils.readFileToString(boundedFile, "UTF-8"));
+        }
+    }
+
+    @org.junit.Test
+    public void Test_generateWithMemoryBudgetKeepsHeapFlat() throws IOException {
+        // A chunk per package, each with a class of many methods: models kept for the whole run would show in the heap
+        final int packageCount = 12;
+        final File classesDirectory = this.temporaryFolder.newFolder("classes");
+        final File sourcesDirectory = this.temporaryFolder.newFolder("sources");
+        final List<String> sourceFiles = new ArrayList<>();
+        for (int i = 0; i < packageCount; i++) {
+            final StringBuilder methods = new StringBuilder();
+            for (int j = 0; j < 1000; j++) {
+                methods.append("\n    public java.util.List<String> method").append(j).append("(final String first").append(j).append(", final int second").append(j).append(") {\n        return null;\n    }\n");
+            }
+            sourceFiles.add(writeBigSource(sourcesDirectory, "p" + (char) ('a' + i), methods.toString()));
+        }
+        compile(sourceFiles, classesDirectory);
+
+        final List<Long> usedHeaps = new ArrayList<>();
+        final OutputSink heapSink = new OutputSink() {
+
+            @Override
+            public String getLocation() {
+                return "heap";
+            }
+
+            @Override
+            public boolean write(final String relativePath, final CharSequence content) throws IOException {
+                // Single writer, one file per chunk: measured once the models of the previous chunks are dropped
+                try {
+                    usedHeaps.add(Long.valueOf(getUsedHeapAfterGc()));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean exists(final String relativePath) {
+                return false;
+            }
+
+            @Override
+            public void delete(final String relativePath) {
+                // Nothing written
+            }
+
+            @Override
+            public void close() {
+                // Nothing written
+            }
+        };
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setWriteWorkers(1);
+        generator.setManifestFile(new File(this.temporaryFolder.getRoot(), "manifest.txt").getAbsolutePath());
+        generator.setClassModelIndexFile(new File(this.temporaryFolder.getRoot(), "models.idx").getAbsolutePath());
+        generator.setMemoryBudget(1);
+        generator.generateJunitTestClasses(heapSink, Collections.singletonList(classesDirectory.getAbsolutePath()), new ArrayList<>());
+
+        Assert.assertEquals(packageCount, usedHeaps.size());
+        // Lowest of a few chunks, as the buffers of the chunk being generated may survive a collection; the first chunk warms up
+        final long growth = Collections.min(usedHeaps.subList(packageCount - 3, packageCount)).longValue() - Collections.min(usedHeaps.subList(1, 4)).longValue();
+        Assert.assertTrue("Heap grew by " + growth + " bytes: " + usedHeaps, growth < 1024 * 1024);
+    }
+
+    @org.junit.Test
+    public void Test_generateShards() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(JunitTestGenerator.class).getPath();
+        final File manifest = new File(this.temporaryFolder.getRoot(), "manifest.txt");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setManifestFile(manifest.getAbsolutePath());
+        generator.generateJunitTestClasses(this.temporaryFolder.newFolder("all").getAbsolutePath(), classesDirectory, new ArrayList<>());
+
+        // Each shard generates a disjoint slice, the merged manifests are the manifest of a single run
+        final List<FingerprintManifest> shardManifests = new ArrayList<>();
+        int generatedFiles = 0;
+        for (int i = 0; i < 3; i++) {
+            final File shardManifest = new File(this.temporaryFolder.getRoot(), "manifest" + i + ".txt");
+            final JunitTestGenerator shardGenerator = new JunitTestGenerator();
+            shardGenerator.setManifestFile(shardManifest.getAbsolutePath());
+            shardGenerator.setClassFilter(ClassFilter.ALL.withShard(i + "/3"));
+            shardGenerator.generateJunitTestClasses(this.temporaryFolder.newFolder("shard" + i).getAbsolutePath(), classesDirectory, new ArrayList<>());
+            final GenerationMetrics metrics = shardGenerator.getLastRunMetrics();
+            Assert.assertNotNull(metrics);
+            Assert.assertTrue(metrics.getGeneratedFiles() > 0);
+            generatedFiles += metrics.getGeneratedFiles();
+            shardManifests.add(FingerprintManifest.load(shardManifest.toPath()));
+        }
+        final GenerationMetrics metrics = generator.getLastRunMetrics();
+        Assert.assertNotNull(metrics);
+        Assert.assertEquals(metrics.getGeneratedFiles(), generatedFiles);
+        Assert.assertEquals(FingerprintManifest.load(manifest.toPath()).getEntries().keySet(), FingerprintManifest.merge(shardManifests).getEntries().keySet());
+
+        // Filtered classes are not generated
+        final File filtered = this.temporaryFolder.newFolder("filtered");
+        final JunitTestGenerator filteredGenerator = new JunitTestGenerator();
+        filteredGenerator.setClassFilter(new ClassFilter(Collections.singletonList("aka.junitgenerator.Class*"), Collections.singletonList("**Index*")));
+        filteredGenerator.generateJunitTestClasses(filtered.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        Assert.assertTrue(new File(filtered, "aka/junitgenerator/ClassModel_TEST.java").isFile());
+        Assert.assertFalse(new File(filtered, "aka/junitgenerator/ClassModelIndex_TEST.java").exists());
+        Assert.assertFalse(new File(filtered, "aka/junitgenerator/TypeModel_TEST.java").exists());
+    }
+
+    @org.junit.Test
+    public void Test_runMetrics() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(JunitTestGenerator.class).getPath();
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File summary = new File(this.temporaryFolder.getRoot(), "summary.json");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setSlowestClassCount(3);
+        generator.setRunSummaryFile(summary.getAbsolutePath());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+
+        final GenerationMetrics metrics = generator.getLastRunMetrics();
+        Assert.assertNotNull(metrics);
+        Assert.assertEquals(FileUtils.listFiles(destination, null, true).size(), metrics.getGeneratedFiles());
+        Assert.assertEquals(1, metrics.getHistogram(GenerationMetrics.Phase.SCAN).getCount());
+        Assert.assertEquals(metrics.getGeneratedFiles(), metrics.getHistogram(GenerationMetrics.Phase.WRITE).getCount());
+        Assert.assertTrue(metrics.getSkipped().get(GenerationMetrics.SkipReason.INTERFACE).longValue() > 0);
+        Assert.assertTrue(metrics.getFailures().isEmpty());
+        Assert.assertEquals(3, metrics.getSlowestClasses().size());
+        final String json = FileUtils.readFileToString(summary, "UTF-8");
+        Assert.assertTrue(json.contains("\"generatedFiles\": " + metrics.getGeneratedFiles()));
+        Assert.assertTrue(json.contains("\"slowestClasses\""));
+
+        // Files rewritten with the same content are not counted
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        final GenerationMetrics againMetrics = generator.getLastRunMetrics();
+        Assert.assertNotNull(againMetrics);
+        Assert.assertEquals(metrics.getHistogram(GenerationMetrics.Phase.WRITE).getCount(), againMetrics.getHistogram(GenerationMetrics.Phase.WRITE).getCount());
+        Assert.assertEquals(0, againMetrics.getGeneratedFiles());
+    }
+
+//    @org.junit.Test
+//    public void Test_generateJunitTestClasses() {
+//        final JunitTestGenerator generator = new JunitTestGenerator();
+//        final List<String> dependentJarsListAbsolutePath = new ArrayList<>();
+//        dependentJarsListAbsolutePath.add("C:\\Users\\charlottew\\.m2\\repository\\aka\\jhttprequest\\JHTTPRequest\\1.1.0\\JHTTPRequest-1.1.0.jar");
+//        dependentJarsListAbsolutePath.add("C:\\Users\\charlottew\\.m2\\repository\\org\\apache\\httpcomponents\\httpcore\\4.4.8\\httpcore-4.4.8.jar");
+//        generator.generateJunitTestClasses("C:\\Projects\\Own\\jmetaagents\\src\\test\\java\\", "C:\\Projects\\Own\\jmetaagents\\target\\classes", dependentJarsListAbsolutePath);
+//    }
+
+    /**
+     * Write a class of about 600 KB of class file, to fill a chunk of a 1 MB budget.
+     *
+     * @return path of the source file
+     */
+    private static String writeBigSource(final File sourcesDirectory, final String packageName, final String members) throws IOException {
+        final StringBuilder bigSource = new StringBuilder("package ").append(packageName).append(";\n\npublic class Big {\n");
+        for (char c = 'a'; c < 'k'; c++) {
+            bigSource.append("    public static final String ").append(Character.toUpperCase(c)).append(" = \"").append(new String(new char[60000]).replace((char) 0, c)).append("\";\n");
+        }
+        bigSource.append(members).append("}\n");
+        final File bigFile = new File(sourcesDirectory, packageName + "/Big.java");
+        FileUtils.writeStringToFile(bigFile, bigSource.toString(), "UTF-8");
+        return bigFile.getAbsolutePath();
+    }
+
+    private static void compile(final List<String> sourceFiles, final File classesDirectory) {
+        final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertNotNull(javaCompiler);
+        final List<String> arguments = new ArrayList<>(Arrays.asList("-d", classesDirectory.getAbsolutePath()));
+        arguments.addAll(sourceFiles);
+        Assert.assertEquals(0, javaCompiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+    }
+
+    private static long getUsedHeapAfterGc() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static WeakReference<ClassLoader> getChunkClassLoader(final ReflectionModelProvider reflectionModelProvider, final String className) throws IOException, ClassNotFoundException {
+        // Not kept by the caller, which only gets a weak reference
+        reflectionModelProvider.getClassModel(className, null);
+        final ClassLoader result = reflectionModelProvider.getChunkClassLoader();
+        Assert.assertNotNull(result);
+        return new WeakReference<>(result);
+    }
+}
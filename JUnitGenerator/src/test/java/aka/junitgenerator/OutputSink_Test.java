@@ -0,0 +1,192 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+public class OutputSink_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_sinksGiveSameFiles() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(JunitTestGenerator.class).getPath();
+        final File directory = this.temporaryFolder.newFolder("generated");
+        final File archive = new File(this.temporaryFolder.getRoot(), "tests.srcjar");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.generateJunitTestClasses(directory.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        generator.generateJunitTestClasses(archive.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        final MemoryOutputSink memoryOutputSink = new MemoryOutputSink();
+        generator.generateJunitTestClasses(memoryOutputSink, Collections.singletonList(classesDirectory), new ArrayList<>());
+
+        final Map<String, String> expected = new TreeMap<>();
+        final Collection<File> files = FileUtils.listFiles(directory, null, true);
+        for (final File file : files) {
+            expected.put(directory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'), FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+        }
+        Assert.assertTrue(expected.containsKey("aka/junitgenerator/JunitTestGenerator_TEST.java"));
+        Assert.assertEquals(expected, memoryOutputSink.getFiles());
+        Assert.assertEquals(expected, readArchive(archive));
+
+        // Unchanged files are not written again
+        final Path file = new File(directory, "aka/junitgenerator/JunitTestGenerator_TEST.java").toPath();
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000_000_000L));
+        Files.setLastModifiedTime(archive.toPath(), FileTime.fromMillis(1_000_000_000_000L));
+        generator.generateJunitTestClasses(directory.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        generator.generateJunitTestClasses(archive.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        Assert.assertEquals(1_000_000_000_000L, Files.getLastModifiedTime(file).toMillis());
+        Assert.assertEquals(1_000_000_000_000L, Files.getLastModifiedTime(archive.toPath()).toMillis());
+    }
+
+    @org.junit.Test
+    public void Test_zipOutputSinkKeepsPreviousFiles() throws IOException {
+        final File archive = new File(this.temporaryFolder.getRoot(), "tests.zip");
+        try (ZipOutputSink zipOutputSink = new ZipOutputSink(archive.toPath())) {
+            Assert.assertTrue(zipOutputSink.write("a/A_TEST.java", "A"));
+            Assert.assertTrue(zipOutputSink.write("b/B_TEST.java", "B"));
+            Assert.assertTrue(zipOutputSink.write("c/C_TEST.java", "C"));
+            Assert.assertFalse(zipOutputSink.write("c/C_TEST.java", "C"));
+        }
+        try (ZipOutputSink zipOutputSink = new ZipOutputSink(archive.toPath())) {
+            Assert.assertTrue(zipOutputSink.exists("a/A_TEST.java"));
+            Assert.assertFalse(zipOutputSink.write("a/A_TEST.java", "A"));
+            Assert.assertTrue(zipOutputSink.write("b/B_TEST.java", "B2"));
+            zipOutputSink.delete("c/C_TEST.java");
+            Assert.assertFalse(zipOutputSink.exists("c/C_TEST.java"));
+        }
+        final Map<String, String> expected = new TreeMap<>();
+        expected.put("a/A_TEST.java", "A");
+        expected.put("b/B_TEST.java", "B2");
+        Assert.assertEquals(expected, readArchive(archive));
+    }
+
+    @org.junit.Test
+    public void Test_zipOutputSinkWritesZip64() throws IOException {
+        final File archive = new File(this.temporaryFolder.getRoot(), "large.srcjar");
+        try (ZipOutputSink zipOutputSink = new ZipOutputSink(archive.toPath())) {
+            for (int i = 0; i < 70_000; i++) {
+                zipOutputSink.write("p/C" + i + "_TEST.java", "class C" + i + " {}");
+            }
+        }
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Assert.assertEquals(70_000, zipFile.size());
+            try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry("p/C69999_TEST.java"))) {
+                Assert.assertEquals("class C69999 {}", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+            }
+        }
+
+        // Its entries are found through the zip64 end of central directory
+        try (ZipOutputSink zipOutputSink = new ZipOutputSink(archive.toPath())) {
+            Assert.assertTrue(zipOutputSink.exists("p/C69999_TEST.java"));
+            zipOutputSink.write("q/D_TEST.java", "class D {}");
+        }
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Assert.assertEquals(70_001, zipFile.size());
+            try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry("p/C69999_TEST.java"))) {
+                Assert.assertEquals("class C69999 {}", IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void Test_zipOutputSinkCopiesPreviousEntries() throws IOException {
+        final File archive = new File(this.temporaryFolder.getRoot(), "tests.srcjar");
+        final String content = new String(new char[10000]).replace((char) 0, 'a');
+        final byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            // Deflated without compression: compressing it again would change its bytes
+            zipOutputStream.setLevel(Deflater.NO_COMPRESSION);
+            zipOutputStream.putNextEntry(new ZipEntry("a/"));
+            zipOutputStream.putNextEntry(new ZipEntry("a/A_TEST.java"));
+            zipOutputStream.write(contentBytes);
+            final ZipEntry storedEntry = new ZipEntry("b/B_TEST.java");
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(contentBytes.length);
+            final CRC32 crc32 = new CRC32();
+            crc32.update(contentBytes);
+            storedEntry.setCrc(crc32.getValue());
+            zipOutputStream.putNextEntry(storedEntry);
+            zipOutputStream.write(contentBytes);
+        }
+        final long compressedSize;
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            compressedSize = zipFile.getEntry("a/A_TEST.java").getCompressedSize();
+        }
+        try (ZipOutputSink zipOutputSink = new ZipOutputSink(archive.toPath())) {
+            Assert.assertFalse(zipOutputSink.write("a/A_TEST.java", content));
+            Assert.assertTrue(zipOutputSink.write("c/C_TEST.java", "C"));
+        }
+
+        final Map<String, String> expected = new TreeMap<>();
+        expected.put("a/A_TEST.java", content);
+        expected.put("b/B_TEST.java", content);
+        expected.put("c/C_TEST.java", "C");
+        Assert.assertEquals(expected, readArchive(archive));
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Assert.assertEquals(compressedSize, zipFile.getEntry("a/A_TEST.java").getCompressedSize());
+            Assert.assertEquals(ZipEntry.STORED, zipFile.getEntry("b/B_TEST.java").getMethod());
+        }
+    }
+
+    @org.junit.Test
+    public void Test_zipOutputSinkDeletesTemporaryFileOnFailure() throws IOException {
+        final File archive = new File(this.temporaryFolder.getRoot(), "tests.srcjar");
+        try (ZipOutputSink zipOutputSink = new ZipOutputSink(archive.toPath())) {
+            zipOutputSink.write("a/A_TEST.java", "A");
+        }
+        final byte[] previous = Files.readAllBytes(archive.toPath());
+        final ZipOutputSink zipOutputSink = new ZipOutputSink(archive.toPath());
+        zipOutputSink.write("b/B_TEST.java", "B");
+        // Local header of the kept entry overwritten once its central directory was read
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(archive, "rw")) {
+            randomAccessFile.write(new byte[4]);
+        }
+        try {
+            zipOutputSink.close();
+            Assert.fail("Invalid entry copied");
+        } catch (final IOException e) {
+            Assert.assertFalse(new File(this.temporaryFolder.getRoot(), "tests.srcjar.tmp").exists());
+        }
+        // The previous archive is left as it was
+        Arrays.fill(previous, 0, 4, (byte) 0);
+        Assert.assertArrayEquals(previous, Files.readAllBytes(archive.toPath()));
+    }
+
+    private static Map<String, String> readArchive(final File archive) throws IOException {
+        final Map<String, String> result = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    result.put(entry.getName(), IOUtils.toString(inputStream, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return result;
+    }
+}
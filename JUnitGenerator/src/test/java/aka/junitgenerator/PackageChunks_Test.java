@@ -0,0 +1,51 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+public class PackageChunks_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_next() throws IOException {
+        final File classesDirectory = this.temporaryFolder.newFolder("classes");
+        writeClassFile(classesDirectory, "a/A1.class", 40);
+        writeClassFile(classesDirectory, "a/A2.class", 40);
+        writeClassFile(classesDirectory, "b/B.class", 30);
+        writeClassFile(classesDirectory, "c/C1.class", 150);
+        writeClassFile(classesDirectory, "c/C2.class", 50);
+        writeClassFile(classesDirectory, "d/D.class", 10);
+
+        try (InputArchives inputArchives = InputArchives.open(Collections.singletonList(classesDirectory.getAbsolutePath()), false)) {
+            final PackageChunks packageChunks = new PackageChunks(inputArchives, className -> true, className -> true, 100);
+            // Packages are kept whole, sorted
+            Assert.assertEquals(Arrays.asList("a.A1", "a.A2"), packageChunks.next());
+            Assert.assertEquals(Arrays.asList("b.B"), packageChunks.next());
+            // Larger than the budget: a chunk of its own
+            Assert.assertEquals(Arrays.asList("c.C1", "c.C2"), packageChunks.next());
+            Assert.assertEquals(Arrays.asList("d.D"), packageChunks.next());
+            Assert.assertNull(packageChunks.next());
+            Assert.assertEquals(6, packageChunks.getDiscoveredClassCount());
+
+            // Only the selected classes count in the budget
+            final PackageChunks selectedChunks = new PackageChunks(inputArchives, className -> !"d.D".equals(className), className -> !"a.A2".equals(className), 100);
+            Assert.assertEquals(Arrays.asList("a.A1", "b.B"), selectedChunks.next());
+            Assert.assertEquals(Arrays.asList("c.C1", "c.C2"), selectedChunks.next());
+            Assert.assertNull(selectedChunks.next());
+            Assert.assertEquals(5, selectedChunks.getDiscoveredClassCount());
+        }
+    }
+
+    private static void writeClassFile(final File classesDirectory, final String relativePath, final int size) throws IOException {
+        FileUtils.writeByteArrayToFile(new File(classesDirectory, relativePath), new byte[size]);
+    }
+}
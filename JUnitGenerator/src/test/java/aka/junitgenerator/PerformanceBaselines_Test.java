@@ -0,0 +1,179 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+import aka.junitgenerator.PerformanceBaselines.Baseline;
+
+public class PerformanceBaselines_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Measured class: a constructor and methods with primitive parameters.
+     */
+    public static class Fixture {
+
+        private long total;
+
+        public Fixture() {
+            this.total = 1;
+        }
+
+        public static int add(final int a, final int b) {
+            return a + b;
+        }
+
+        public void accumulate(final long value) {
+            this.total += value;
+        }
+
+        public String describe(final Object value) {
+            return value + " " + this.total;
+        }
+
+        public int fail() {
+            throw new IllegalStateException("Not invocable with zero values");
+        }
+    }
+
+    /**
+     * Measured class stopping the JVM which calls it.
+     */
+    public static class StopFixture {
+
+        public static void exit() {
+            System.exit(3);
+        }
+    }
+
+    /**
+     * Measured class with a member slower than the timeout.
+     */
+    public static class SlowFixture {
+
+        public SlowFixture() {
+            super();
+        }
+
+        public static void sleep() throws InterruptedException {
+            Thread.sleep(60000);
+        }
+    }
+
+    @org.junit.Test
+    public void Test_saveAndLoad() throws IOException {
+        final PerformanceBaselines performanceBaselines = new PerformanceBaselines();
+        final TreeMap<String, Baseline> baselines = new TreeMap<>();
+        baselines.put("add(int,int)", new Baseline(10000, 25, 31, 63, 900, 20, 0));
+        performanceBaselines.put("a.B", baselines);
+        performanceBaselines.put("a.C", Collections.emptyMap());
+        final File baselineFile = new File(this.temporaryFolder.getRoot(), "baselines.txt");
+        performanceBaselines.save(baselineFile.toPath());
+
+        final PerformanceBaselines loaded = PerformanceBaselines.load(baselineFile.toPath());
+        Assert.assertEquals(2, loaded.size());
+        Assert.assertTrue(loaded.contains("a.C"));
+        final Baseline baseline = loaded.get("a.B", "add(int,int)");
+        Assert.assertNotNull(baseline);
+        Assert.assertEquals(10000, baseline.getIterations());
+        Assert.assertEquals(63, baseline.getP99Nanos());
+        Assert.assertEquals(0, baseline.getBytesPerCall());
+        Assert.assertNull(loaded.get("a.C", "add(int,int)"));
+    }
+
+    @org.junit.Test
+    public void Test_generatePerformanceTests() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(PerformanceBaselines_Test.class).getPath();
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File baselineFile = new File(this.temporaryFolder.getRoot(), "baselines.txt");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setClassFilter(new ClassFilter(Collections.singletonList("aka.junitgenerator.PerformanceBaselines_Test$Fixture"), Collections.emptyList()));
+        generator.setBaselineFile(baselineFile.getAbsolutePath());
+        generator.setBaselineWarmupIterations(100);
+        generator.setBaselineIterations(100);
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+
+        final PerformanceBaselines performanceBaselines = PerformanceBaselines.load(baselineFile.toPath());
+        final String className = Fixture.class.getName();
+        Assert.assertNotNull(performanceBaselines.get(className, "<init>()"));
+        Assert.assertNotNull(performanceBaselines.get(className, "add(int,int)"));
+        Assert.assertNotNull(performanceBaselines.get(className, "accumulate(long)"));
+        Assert.assertNull(performanceBaselines.get(className, "fail()"));
+        Assert.assertNull(performanceBaselines.get(className, "describe(java.lang.Object)"));
+        final Baseline baseline = performanceBaselines.get(className, "add(int,int)");
+        Assert.assertNotNull(baseline);
+        Assert.assertEquals(100, baseline.getIterations());
+        Assert.assertTrue(baseline.getMinNanos() <= baseline.getMeanNanos() && baseline.getMeanNanos() <= baseline.getMaxNanos());
+
+        final String content = FileUtils.readFileToString(new File(destination, "aka/junitgenerator/Fixture_TEST.java"), "UTF-8");
+        Assert.assertTrue(content.contains("public void testFixture0Performance() throws Exception {"));
+        Assert.assertTrue(content.contains("assertPerformance(() -> Fixture.add((int) 0, (int) 0), 100, "));
+        Assert.assertTrue(content.contains("assertPerformance(() -> { fixture.accumulate((long) 0); return null; }, 100, "));
+        Assert.assertFalse(content.contains("testFailPerformance"));
+        Assert.assertTrue(content.contains("private static void assertPerformance("));
+
+        // Classes with a baseline are not measured again
+        final String saved = FileUtils.readFileToString(baselineFile, "UTF-8");
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+        Assert.assertEquals(saved, FileUtils.readFileToString(baselineFile, "UTF-8"));
+    }
+
+    @org.junit.Test
+    public void Test_measureInSeparateJvm() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(PerformanceBaselines_Test.class).getPath();
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File baselineFile = new File(this.temporaryFolder.getRoot(), "baselines.txt");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setClassFilter(new ClassFilter(Arrays.asList("aka.junitgenerator.PerformanceBaselines_Test$Fixture", "aka.junitgenerator.PerformanceBaselines_Test$StopFixture"), Collections.emptyList()));
+        generator.setBaselineFile(baselineFile.getAbsolutePath());
+        generator.setBaselineWarmupIterations(100);
+        generator.setBaselineIterations(100);
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+
+        // Measured after another class, it stopped its JVM and not this one, and is the one blamed
+        final PerformanceBaselines performanceBaselines = PerformanceBaselines.load(baselineFile.toPath());
+        Assert.assertTrue(performanceBaselines.contains(StopFixture.class.getName()));
+        Assert.assertNull(performanceBaselines.get(StopFixture.class.getName(), "exit()"));
+        Assert.assertNotNull(performanceBaselines.get(Fixture.class.getName(), "add(int,int)"));
+    }
+
+    @org.junit.Test
+    public void Test_keepBaselinesWhenNothingIsMeasured() throws IOException {
+        final String classesDirectory = TestResources.getCodeSource(PerformanceBaselines_Test.class).getPath();
+        final File destination = this.temporaryFolder.newFolder("generated");
+        final File baselineFile = new File(this.temporaryFolder.getRoot(), "baselines.txt");
+        final JunitTestGenerator generator = new JunitTestGenerator();
+        generator.setClassFilter(new ClassFilter(Collections.singletonList("aka.junitgenerator.PerformanceBaselines_Test$StopFixture"), Collections.emptyList()));
+        generator.setBaselineFile(baselineFile.getAbsolutePath());
+        generator.generateJunitTestClasses(destination.getAbsolutePath(), classesDirectory, new ArrayList<>());
+
+        // The JVM stopped before measuring any class: not blamed on the class, measured again by the next run
+        Assert.assertFalse(baselineFile.exists());
+        final String content = FileUtils.readFileToString(new File(destination, "aka/junitgenerator/StopFixture_TEST.java"), "UTF-8");
+        Assert.assertFalse(content.contains("Performance()"));
+    }
+
+    @org.junit.Test
+    public void Test_keepPartialBaselinesOnTimeout() throws InterruptedException {
+        final ClassLoader classLoader = PerformanceBaselines_Test.class.getClassLoader();
+        Assert.assertNotNull(classLoader);
+        final BaselineMeasurer baselineMeasurer = new BaselineMeasurer(classLoader, 10, 10, 1000);
+        final Map<String, Baseline> baselines = baselineMeasurer.measure(SlowFixture.class.getName());
+
+        // Constructors are measured first
+        Assert.assertTrue(baselines.containsKey("<init>()"));
+        Assert.assertFalse(baselines.containsKey("sleep()"));
+    }
+}
@@ -0,0 +1,26 @@
+package aka.junitgenerator;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+/**
+ * Files of the test classpath.
+ */
+final class TestResources {
+
+    private TestResources() {
+        // Utility class
+    }
+
+    /**
+     * @param loadedClass class loaded from a directory or a jar
+     * @return directory or jar the class was loaded from, decoded from its URL so that paths with spaces work
+     */
+    static File getCodeSource(final Class<?> loadedClass) {
+        try {
+            return new File(loadedClass.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsoluteFile();
+        } catch (final URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package aka.junitgenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+public class ZipClassArchive_Test {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @org.junit.Test
+    public void Test_readFatJar() throws IOException {
+        final byte[] classFile = readClassFile(ZipClassArchive.class);
+        final byte[] nestedJar = zip(new Object[] { "lib/Nested.class", classFile, Boolean.FALSE });
+        final byte[] fatJar = zip(new Object[] { "BOOT-INF/classes/a/b/Stored.class", classFile, Boolean.TRUE }, new Object[] { "a/b/Deflated.class", classFile, Boolean.FALSE }, new Object[] { "a/b/package-info.class", classFile, Boolean.FALSE }, new Object[] { "META-INF/versions/9/a/b/Deflated.class", classFile, Boolean.FALSE }, new Object[] { "BOOT-INF/lib/nested.jar", nestedJar, Boolean.TRUE });
+
+        // A launch script in front of the zip data, as in fully executable jars
+        final File jar = this.temporaryFolder.newFile("fat.jar");
+        final byte[] script = "#!/bin/sh\nexec java -jar \"$0\"\n".getBytes(StandardCharsets.US_ASCII);
+        FileUtils.writeByteArrayToFile(jar, script);
+        FileUtils.writeByteArrayToFile(jar, fatJar, true);
+
+        try (ZipClassArchive archive = ZipClassArchive.open(jar.toPath())) {
+            final List<String> classNames = archive.getClassNames();
+            Assert.assertEquals(Arrays.asList("a.b.Stored", "a.b.Deflated"), classNames);
+            Assert.assertArrayEquals(classFile, toArray(archive.readClassFile("a.b.Stored")));
+            Assert.assertArrayEquals(classFile, toArray(archive.readClassFile("a.b.Deflated")));
+            Assert.assertNull(archive.readClassFile("a.b.Missing"));
+
+            final List<ClassArchive> nestedArchives = archive.getNestedArchives();
+            Assert.assertEquals(1, nestedArchives.size());
+            Assert.assertEquals(Arrays.asList("lib.Nested"), nestedArchives.get(0).getClassNames());
+            Assert.assertArrayEquals(classFile, toArray(nestedArchives.get(0).readClassFile("lib.Nested")));
+        }
+    }
+
+    @org.junit.Test
+    public void Test_openNestedArchivesLazily() throws IOException {
+        final byte[] classFile = readClassFile(ZipClassArchive.class);
+        final byte[] nestedJar = zip(new Object[] { "lib/Nested.class", classFile, Boolean.FALSE });
+        final File jar = this.temporaryFolder.newFile("fat.jar");
+        FileUtils.writeByteArrayToFile(jar, zip(new Object[] { "a/b/Main.class", classFile, Boolean.FALSE }, new Object[] { "BOOT-INF/lib/nested.jar", nestedJar, Boolean.FALSE }));
+
+        try (InputArchives inputArchives = InputArchives.open(Collections.singletonList(jar.getAbsolutePath()), false)) {
+            Assert.assertEquals(Arrays.asList("a.b.Main"), inputArchives.getClassNames());
+            Assert.assertArrayEquals(classFile, toArray(inputArchives.readClassFile("a.b.Main")));
+            // Not inflated until a class is missing from the main archive
+            Assert.assertFalse(inputArchives.isNestedArchivesOpen());
+            Assert.assertArrayEquals(classFile, toArray(inputArchives.readClassFile("lib.Nested")));
+            Assert.assertTrue(inputArchives.isNestedArchivesOpen());
+            Assert.assertFalse(inputArchives.isGenerated("lib.Nested"));
+            Assert.assertNull(inputArchives.readClassFile("lib.Missing"));
+        }
+        try (InputArchives inputArchives = InputArchives.open(Collections.singletonList(jar.getAbsolutePath()), true)) {
+            Assert.assertEquals(Arrays.asList("a.b.Main", "lib.Nested"), inputArchives.getClassNames());
+        }
+    }
+
+    private byte[] readClassFile(final Class<?> loadedClass) throws IOException {
+        try (InputStream inputStream = loadedClass.getResourceAsStream(loadedClass.getSimpleName() + ".class")) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    private byte[] zip(final Object[]... entries) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(result)) {
+            for (final Object[] entry : entries) {
+                final byte[] content = (byte[]) entry[1];
+                final ZipEntry zipEntry = new ZipEntry((String) entry[0]);
+                if (((Boolean) entry[2]).booleanValue()) {
+                    final CRC32 crc = new CRC32();
+                    crc.update(content);
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(content.length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                zipOutputStream.putNextEntry(zipEntry);
+                zipOutputStream.write(content);
+                zipOutputStream.closeEntry();
+            }
+        }
+        return result.toByteArray();
+    }
+
+    private byte[] toArray(final ByteBuffer buffer) {
+        final byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+}
@@ -1,14 +0,0 @@
-package aka.junitgenerator;
-
-public class JunitTestGenerator_Test {
-
-//    @org.junit.Test
-//    public void Test_generateJunitTestClasses() {
-//        final JunitTestGenerator generator = new JunitTestGenerator();
-//        final List<String> dependentJarsListAbsolutePath = new ArrayList<>();
-//        dependentJarsListAbsolutePath.add("C:\\Users\\charlottew\\.m2\\repository\\aka\\jhttprequest\\JHTTPRequest\\1.1.0\\JHTTPRequest-1.1.0.jar");
-//        dependentJarsListAbsolutePath.add("C:\\Users\\charlottew\\.m2\\repository\\org\\apache\\httpcomponents\\httpcore\\4.4.8\\httpcore-4.4.8.jar");
-//        generator.generateJunitTestClasses("C:\\Projects\\Own\\jmetaagents\\src\\test\\java\\", "C:\\Projects\\Own\\jmetaagents\\target\\classes", dependentJarsListAbsolutePath);
-//    }
-
-}